@@ -0,0 +1,114 @@
+package edu.brown.cs.student.main.columns;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * ByteSearch finds a run of bytes inside a range of a larger byte array, which is how substring
+ * searches look through the packed UTF-8 cells of a StringColumn without decoding any of them.
+ * UTF-8 never starts a character inside of another one, so the bytes of a word show up in the bytes
+ * of a cell exactly when the word shows up in the cell.
+ *
+ * <p>The fast version reads the cell eight bytes at a time as a long (SWAR, or SIMD within a
+ * register). For every position it checks both the first and the last byte of the word at once, and
+ * only positions where both agree have their middle bytes compared. Cells shorter than a long, and
+ * the last few bytes of longer ones, go through the scalar version, which compares byte by byte and
+ * always gives the same answer.
+ */
+public final class ByteSearch {
+
+  private static final VarHandle LONGS =
+      MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final long ONES = 0x0101010101010101L;
+  private static final long LOWS = 0x7F7F7F7F7F7F7F7FL;
+
+  private ByteSearch() {}
+
+  /**
+   * Finds the first place a word starts inside a range of bytes, eight bytes at a time.
+   *
+   * @param haystack the bytes to look through
+   * @param from the first position of the range
+   * @param to the position just past the end of the range
+   * @param needle the bytes of the word
+   * @return the position where the word first starts, or -1 if it is not in the range
+   */
+  public static int indexOf(byte[] haystack, int from, int to, byte[] needle) {
+    int length = needle.length;
+    if (length == 0) {
+      return from;
+    }
+    long first = ONES * (needle[0] & 0xFF);
+    long last = ONES * (needle[length - 1] & 0xFF);
+    int i = from;
+    // both loads have to stay inside the range, the second one starts length - 1 bytes later
+    for (; i + length - 1 + Long.BYTES <= to; i += Long.BYTES) {
+      long starts = equalBytes((long) LONGS.get(haystack, i), first);
+      long ends = equalBytes((long) LONGS.get(haystack, i + length - 1), last);
+      long both = starts & ends;
+      while (both != 0) {
+        int at = i + (Long.numberOfTrailingZeros(both) >>> 3);
+        if (middleEquals(haystack, at, needle)) {
+          return at;
+        }
+        both &= both - 1;
+      }
+    }
+    return indexOfScalar(haystack, i, to, needle);
+  }
+
+  /**
+   * Finds the first place a word starts inside a range of bytes, one byte at a time.
+   *
+   * @param haystack the bytes to look through
+   * @param from the first position of the range
+   * @param to the position just past the end of the range
+   * @param needle the bytes of the word
+   * @return the position where the word first starts, or -1 if it is not in the range
+   */
+  public static int indexOfScalar(byte[] haystack, int from, int to, byte[] needle) {
+    int length = needle.length;
+    for (int i = from; i + length <= to; i++) {
+      int j = 0;
+      while (j < length && haystack[i + j] == needle[j]) {
+        j++;
+      }
+      if (j == length) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Marks the bytes of a long that are equal to the byte repeated in a pattern. Every matching byte
+   * gets its high bit set and every other byte comes back as zero. Unlike the shorter has-zero-byte
+   * trick, no borrow moves between bytes, so only real matches are marked.
+   *
+   * @param word eight bytes of the haystack
+   * @param pattern the byte to look for, repeated eight times
+   * @return the high bit of every byte that matches
+   */
+  private static long equalBytes(long word, long pattern) {
+    long x = word ^ pattern;
+    return ~(((x & LOWS) + LOWS) | x | LOWS);
+  }
+
+  /**
+   * Compares the bytes between the first and the last of the word, which have already been checked.
+   *
+   * @param haystack the bytes to look through
+   * @param at where the word might start
+   * @param needle the bytes of the word
+   * @return true if the word starts at that position
+   */
+  private static boolean middleEquals(byte[] haystack, int at, byte[] needle) {
+    for (int j = 1; j < needle.length - 1; j++) {
+      if (haystack[at + j] != needle[j]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,209 @@
+package edu.brown.cs.student.main.columns;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cells holds the helpers that decide which type a single cell fits in, and that turn numbers back
+ * into the exact strings they were read from. A cell is only given a numeric type when its string
+ * can be rebuilt from the number, so "007", "+5", "-0" and "1e5" all stay strings, and a view of a
+ * typed column always shows the file as it was.
+ */
+final class Cells {
+
+  /** Doubles hold every decimal with at most this many significant digits exactly. */
+  private static final int DOUBLE_DIGITS = 15;
+
+  /** The header and fields of a String, the header of its array, and a reference to it. */
+  private static final int STRING_OVERHEAD = 24 + 16 + 4;
+
+  /** The constructor is private, since Cells only has static helpers. */
+  private Cells() {}
+
+  /**
+   * Reads a cell of a row, treating cells past the end of a short row as empty.
+   *
+   * @param row the row to read from
+   * @param column the index of the cell
+   * @return the cell, or an empty string if the row is too short
+   */
+  static String cell(List<String> row, int column) {
+    return column < row.size() ? row.get(column) : "";
+  }
+
+  /**
+   * Finds the narrowest type that can hold the cell and give it back unchanged.
+   *
+   * @param cell the cell to look at, which must not be empty
+   * @return the narrowest type for the cell
+   */
+  static ColumnType classify(String cell) {
+    int length = cell.length();
+    boolean negative = cell.charAt(0) == '-';
+    int intStart = negative ? 1 : 0;
+    int i = digitsFrom(cell, intStart);
+    int intDigits = i - intStart;
+    if (intDigits == 0 || (intDigits > 1 && cell.charAt(intStart) == '0')) {
+      return ColumnType.STRING;
+    }
+    if (i == length) {
+      if (negative && cell.charAt(intStart) == '0') {
+        return ColumnType.STRING;
+      }
+      if (intDigits < 10) {
+        return ColumnType.INT;
+      }
+      if (intDigits > 18) {
+        return ColumnType.STRING;
+      }
+      long value = Long.parseLong(cell);
+      return value == (int) value ? ColumnType.INT : ColumnType.LONG;
+    }
+    if (cell.charAt(i) != '.') {
+      return ColumnType.STRING;
+    }
+    int fractionStart = i + 1;
+    int end = digitsFrom(cell, fractionStart);
+    if (end != length || end == fractionStart || length - fractionStart > Byte.MAX_VALUE) {
+      return ColumnType.STRING;
+    }
+    int significant = 0;
+    for (int j = intStart; j < length; j++) {
+      char c = cell.charAt(j);
+      if (c != '.' && (significant > 0 || c != '0')) {
+        significant++;
+      }
+    }
+    if (significant > DOUBLE_DIGITS || (significant == 0 && negative)) {
+      return ColumnType.STRING;
+    }
+    return ColumnType.DOUBLE;
+  }
+
+  /**
+   * Checks if a whole number has too many digits to be kept exactly in a double.
+   *
+   * @param cell a cell that was classified as an int or a long
+   * @return true if the cell would lose digits as a double
+   */
+  static boolean tooWideForDouble(String cell) {
+    int digits = cell.charAt(0) == '-' ? cell.length() - 1 : cell.length();
+    return digits > DOUBLE_DIGITS;
+  }
+
+  /**
+   * Getter for the number of digits after the decimal point of a cell.
+   *
+   * @param cell a cell that was classified as a number
+   * @return the number of digits after the point, or 0 for whole numbers
+   */
+  static byte scale(String cell) {
+    int point = cell.indexOf('.');
+    return (byte) (point < 0 ? 0 : cell.length() - point - 1);
+  }
+
+  /**
+   * Builds the string of a double with a fixed number of digits after the point, which gives back
+   * the cell it was parsed from.
+   *
+   * @param value the number
+   * @param scale the number of digits after the point
+   * @return the number as a string
+   */
+  static String format(double value, int scale) {
+    if (scale == 0) {
+      return Long.toString((long) value);
+    }
+    return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_EVEN).toPlainString();
+  }
+
+  /**
+   * Compares a whole number to a string without building the string of the number.
+   *
+   * @param value the number
+   * @param s the string to compare to
+   * @return true if the string is exactly the decimal form of the number
+   */
+  static boolean sameLong(long value, String s) {
+    if (value == Long.MIN_VALUE) {
+      return s.equals(Long.toString(value));
+    }
+    int i = s.length() - 1;
+    long rest = Math.abs(value);
+    do {
+      if (i < 0 || s.charAt(i) != (char) ('0' + rest % 10)) {
+        return false;
+      }
+      rest /= 10;
+      i--;
+    } while (rest != 0);
+    if (value < 0) {
+      if (i < 0 || s.charAt(i) != '-') {
+        return false;
+      }
+      i--;
+    }
+    return i == -1;
+  }
+
+  /**
+   * Checks the first character of a string to rule out a match with a number cheaply.
+   *
+   * @param s the string to check
+   * @return true if the string could be the form of a number
+   */
+  static boolean couldBeNumber(String s) {
+    if (s.isEmpty()) {
+      return false;
+    }
+    char c = s.charAt(0);
+    return c == '-' || (c >= '0' && c <= '9');
+  }
+
+  /**
+   * Estimates the heap taken by a cell when it is kept as its own String in a list: the String
+   * object, its byte array rounded up to 8 bytes, and the reference to it in the list.
+   *
+   * @param cell the cell
+   * @return the estimated number of bytes
+   */
+  static long stringBytes(String cell) {
+    return STRING_OVERHEAD + ((cell.length() + 7) & ~7);
+  }
+
+  /**
+   * Counts the distinct keys among the first keys of an array, sorting them in place.
+   *
+   * @param keys the keys of the cells that are not empty, followed by room that is not looked at
+   * @param count the number of keys
+   * @param blanks whether the column has empty cells, which count as one more value
+   * @return the number of distinct cells
+   */
+  static int distinct(long[] keys, int count, boolean blanks) {
+    Arrays.sort(keys, 0, count);
+    int distinct = blanks ? 1 : 0;
+    for (int i = 0; i < count; i++) {
+      if (i == 0 || keys[i] != keys[i - 1]) {
+        distinct++;
+      }
+    }
+    return distinct;
+  }
+
+  /**
+   * Skips over the digits of a string.
+   *
+   * @param s the string
+   * @param from where to start
+   * @return the index of the first character at or after from that is not a digit
+   */
+  private static int digitsFrom(String s, int from) {
+    int i = from;
+    while (i < s.length() && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+      i++;
+    }
+    return i;
+  }
+}
@@ -0,0 +1,112 @@
+package edu.brown.cs.student.main.columns;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * Column is a single column of a ColumnarTable. Columns are stored as primitive arrays or as packed
+ * bytes, and hand their cells back as the exact strings that were in the file, so callers that only
+ * know about strings can read them through the table's rows.
+ */
+public interface Column {
+
+  /**
+   * Getter for the number of cells in the column.
+   *
+   * @return the number of cells
+   */
+  int size();
+
+  /**
+   * Getter for the type that was inferred for the column.
+   *
+   * @return the type of the column
+   */
+  ColumnType type();
+
+  /**
+   * Reads a cell back as a string, exactly as it was in the file.
+   *
+   * @param row the index of the cell
+   * @return the cell as a string
+   */
+  String get(int row);
+
+  /**
+   * Compares a cell to a string without building the string of the cell where the column can help
+   * it. This is what exact-match searches use.
+   *
+   * @param row the index of the cell
+   * @param value the string to compare to
+   * @return true if the cell is exactly equal to the string
+   */
+  boolean matches(int row, String value);
+
+  /**
+   * Builds a check for cells that are exactly equal to a string. The work of understanding the
+   * string (parsing a number, looking up a dictionary code) is done once here, so the check itself
+   * only compares what the column stores. This is what whole-dataset searches use.
+   *
+   * @param value the string to compare to
+   * @return a check that takes the index of a cell, or null if no cell of the column can match
+   */
+  default IntPredicate equalTo(String value) {
+    return row -> this.matches(row, value);
+  }
+
+  /**
+   * Builds a check for cells that have a string anywhere in them. This is what substring searches
+   * of one column use.
+   *
+   * @param word the string to look for
+   * @return a check that takes the index of a cell, or null if no cell of the column can match
+   */
+  default IntPredicate containing(String word) {
+    return row -> this.get(row).contains(word);
+  }
+
+  /**
+   * Reads a cell of a numeric column as a double. Longs past 2^53 come back as the nearest double,
+   * which is close enough to compare against a range but not to read the cell back. A column of
+   * strings has no numbers, so every one of its cells reads as NaN, like an empty cell.
+   *
+   * @param row the index of the cell
+   * @return the number in the cell, or NaN if the cell is empty or the column holds strings
+   */
+  default double number(int row) {
+    return Double.NaN;
+  }
+
+  /**
+   * Counts the distinct cells of the column, with the empty cell counted as one value. Columns that
+   * can count without building the string of every cell do so, and string columns count hashes of
+   * their bytes, so the count can come out a little low. It is used to guess how many rows a search
+   * will match, not to answer one.
+   *
+   * @return the number of distinct cells
+   */
+  default int distinct() {
+    Set<String> values = new HashSet<>();
+    for (int row = 0; row < this.size(); row++) {
+      values.add(this.get(row));
+    }
+    return values.size();
+  }
+
+  /**
+   * Getter for the way the cells of the column are stored, as it is shown in responses.
+   *
+   * @return "plain" for cells stored one by one, or the name of the encoding
+   */
+  default String encoding() {
+    return "plain";
+  }
+
+  /**
+   * Estimates how much heap the column takes up.
+   *
+   * @return the number of bytes used by the arrays of the column
+   */
+  long bytes();
+}
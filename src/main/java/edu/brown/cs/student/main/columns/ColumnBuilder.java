@@ -0,0 +1,202 @@
+package edu.brown.cs.student.main.columns;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ColumnBuilder infers the type of one column and then stores it. It is shown every cell of the
+ * column once to settle on the narrowest type that holds all of them, and then builds the column in
+ * a second pass over the rows. Empty cells fit in every type, so a column that is empty except for
+ * numbers is still numeric.
+ *
+ * <p>String columns with at most DICTIONARY_LIMIT distinct values are stored as a dictionary when
+ * that takes less room than packing every cell.
+ */
+final class ColumnBuilder {
+
+  /** The most distinct values a string column can have to be stored as a dictionary. */
+  static final int DICTIONARY_LIMIT = 1 << 16;
+
+  private final int column;
+  private ColumnType type;
+  private boolean wideWhole;
+  private long stringBytes;
+
+  /**
+   * The constructor for a builder of one column.
+   *
+   * @param column the index of the column in the rows
+   */
+  ColumnBuilder(int column) {
+    this.column = column;
+    this.type = null;
+    this.wideWhole = false;
+    this.stringBytes = 0;
+  }
+
+  /**
+   * Widens the type of the column so that it holds the cell.
+   *
+   * @param cell the next cell of the column
+   */
+  void observe(String cell) {
+    this.stringBytes += Cells.stringBytes(cell);
+    if (cell.isEmpty() || this.type == ColumnType.STRING) {
+      return;
+    }
+    ColumnType cellType = Cells.classify(cell);
+    if (cellType != ColumnType.DOUBLE && cellType != ColumnType.STRING) {
+      this.wideWhole = this.wideWhole || Cells.tooWideForDouble(cell);
+    }
+    this.type = this.type == null ? cellType : this.type.widen(cellType);
+  }
+
+  /**
+   * Getter for the type that the column settled on. Columns with only empty cells are strings, and
+   * so are columns that mix decimals with whole numbers too long to be kept in a double.
+   *
+   * @return the type of the column
+   */
+  ColumnType type() {
+    if (this.type == null || (this.type == ColumnType.DOUBLE && this.wideWhole)) {
+      return ColumnType.STRING;
+    }
+    return this.type;
+  }
+
+  /**
+   * Getter for the heap the cells of the column took up as separate strings, before they were
+   * stored in a column.
+   *
+   * @return the estimated number of bytes
+   */
+  long stringBytes() {
+    return this.stringBytes;
+  }
+
+  /**
+   * Stores the column in the array that fits its type.
+   *
+   * @param rows the rows to read the column from
+   * @param from the index of the first row that goes in the column
+   * @return the column
+   */
+  Column build(List<? extends List<String>> rows, int from) {
+    int size = rows.size() - from;
+    BitSet blanks = new BitSet();
+    switch (this.type()) {
+      case INT -> {
+        int[] values = new int[size];
+        for (int r = 0; r < size; r++) {
+          String cell = Cells.cell(rows.get(from + r), this.column);
+          if (cell.isEmpty()) {
+            blanks.set(r);
+          } else {
+            values[r] = Integer.parseInt(cell);
+          }
+        }
+        return new IntColumn(values, blanks);
+      }
+      case LONG -> {
+        long[] values = new long[size];
+        for (int r = 0; r < size; r++) {
+          String cell = Cells.cell(rows.get(from + r), this.column);
+          if (cell.isEmpty()) {
+            blanks.set(r);
+          } else {
+            values[r] = Long.parseLong(cell);
+          }
+        }
+        return new LongColumn(values, blanks);
+      }
+      case DOUBLE -> {
+        double[] values = new double[size];
+        byte[] scales = new byte[size];
+        for (int r = 0; r < size; r++) {
+          String cell = Cells.cell(rows.get(from + r), this.column);
+          if (cell.isEmpty()) {
+            blanks.set(r);
+          } else {
+            values[r] = Double.parseDouble(cell);
+            scales[r] = Cells.scale(cell);
+          }
+        }
+        return new DoubleColumn(values, scales, blanks);
+      }
+      default -> {
+        return this.buildStrings(rows, from, size);
+      }
+    }
+  }
+
+  /**
+   * Packs the cells of a string column into one byte array. ASCII cells are copied a character at a
+   * time, and only cells with other characters are encoded into a new array first. While packing,
+   * the distinct values are collected until there are too many of them, and the column becomes a
+   * dictionary column if that turns out to be smaller.
+   *
+   * @param rows the rows to read the column from
+   * @param from the index of the first row that goes in the column
+   * @param size the number of cells in the column
+   * @return the column
+   */
+  private Column buildStrings(List<? extends List<String>> rows, int from, int size) {
+    int[] offsets = new int[size + 1];
+    byte[] bytes = new byte[Math.max(16, size * 8)];
+    int length = 0;
+    Map<String, Integer> codesByValue = new HashMap<>();
+    List<String> dictionary = new ArrayList<>();
+    int[] codes = new int[size];
+    long dictionaryBytes = 0;
+    for (int r = 0; r < size; r++) {
+      String cell = Cells.cell(rows.get(from + r), this.column);
+      if (codes != null) {
+        Integer code = codesByValue.get(cell);
+        if (code == null) {
+          code = dictionary.size();
+          codesByValue.put(cell, code);
+          dictionary.add(cell);
+          dictionaryBytes += Cells.stringBytes(cell);
+        }
+        codes[r] = code;
+        if (dictionary.size() > DICTIONARY_LIMIT) {
+          codes = null;
+          codesByValue.clear();
+          dictionary.clear();
+        }
+      }
+      if (length + cell.length() > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, length + cell.length()));
+      }
+      int i = 0;
+      while (i < cell.length() && cell.charAt(i) < 0x80) {
+        bytes[length + i] = (byte) cell.charAt(i);
+        i++;
+      }
+      if (i == cell.length()) {
+        length += i;
+      } else {
+        byte[] encoded = cell.getBytes(StandardCharsets.UTF_8);
+        if (length + encoded.length > bytes.length) {
+          bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, length + encoded.length));
+        }
+        System.arraycopy(encoded, 0, bytes, length, encoded.length);
+        length += encoded.length;
+      }
+      offsets[r + 1] = length;
+    }
+    long packedBytes = length + 4L * offsets.length;
+    int codeBytes = dictionary.size() <= 1 << Byte.SIZE ? 1 : 2;
+    // the dictionary column also keeps a map from every value to its code
+    dictionaryBytes += (long) DictionaryColumn.MAP_ENTRY_BYTES * dictionary.size();
+    if (codes != null && dictionaryBytes + (long) codeBytes * size < packedBytes) {
+      return new DictionaryColumn(dictionary.toArray(new String[0]), codesByValue, codes);
+    }
+    return new StringColumn(Arrays.copyOf(bytes, length), offsets);
+  }
+}
@@ -0,0 +1,22 @@
+package edu.brown.cs.student.main.columns;
+
+/**
+ * ColumnMemory is how much heap one column of a ColumnarTable takes up, next to what its cells took
+ * up as separate strings before the table was built.
+ *
+ * @param type the type that was inferred for the column
+ * @param encoding how the cells of the column are stored
+ * @param bytes the estimated heap of the column
+ * @param stringBytes the estimated heap of the cells as separate strings
+ */
+public record ColumnMemory(ColumnType type, String encoding, long bytes, long stringBytes) {
+
+  /**
+   * Getter for how much storing the column saved.
+   *
+   * @return the difference between the heap as strings and the heap of the column
+   */
+  public long savedBytes() {
+    return this.stringBytes - this.bytes;
+  }
+}
@@ -0,0 +1,32 @@
+package edu.brown.cs.student.main.columns;
+
+/**
+ * ColumnType is the type that was inferred for a column when it was loaded. The types are ordered
+ * from the narrowest to the widest: every int is also a long, every long is also a double, and
+ * every cell can be kept as a string.
+ */
+public enum ColumnType {
+  INT,
+  LONG,
+  DOUBLE,
+  STRING;
+
+  /**
+   * Picks the type that can hold the cells of both this type and the other type.
+   *
+   * @param other the type of another cell of the column
+   * @return the wider of this type and the other type
+   */
+  ColumnType widen(ColumnType other) {
+    return this.compareTo(other) >= 0 ? this : other;
+  }
+
+  /**
+   * Getter for the name of the type, the way it is shown in responses.
+   *
+   * @return the lowercase name of the type
+   */
+  public String label() {
+    return this.name().toLowerCase();
+  }
+}
@@ -0,0 +1,296 @@
+package edu.brown.cs.student.main.columns;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.IntPredicate;
+
+/**
+ * ColumnarTable holds a loaded CSV column by column instead of row by row. The type of every column
+ * (int, long, double or string) is inferred from its cells when the table is built, and each column
+ * is kept in a primitive array or a packed byte array. Compared to a list of lists of strings this
+ * cuts the heap use of a table several times over, and a scan over one column walks one array.
+ *
+ * <p>The table is still a List of rows, so the searcher and the handlers read it the same way they
+ * read the parsed rows. Rows are small adapters that read their cells out of the columns, and every
+ * cell comes back exactly as it was in the file. The first row is kept as it is, since only the
+ * search request knows if it is a header, and it should not make a numeric column a string one.
+ *
+ * <p>A table can not be changed once it is built, so it can be handed to any number of requests at
+ * the same time.
+ */
+public class ColumnarTable extends AbstractList<List<String>> implements RandomAccess {
+
+  private final int size;
+  private final List<String> first;
+  private final Column[] columns;
+  private final int[] widths;
+  private final long[] stringBytes;
+
+  /**
+   * The constructor infers the schema of the rows and stores them column by column.
+   *
+   * @param rows the rows of the CSV, with the header first if there is one
+   */
+  public ColumnarTable(List<? extends List<String>> rows) {
+    this.size = rows.size();
+    this.first = rows.isEmpty() ? List.of() : List.copyOf(rows.get(0));
+    int width = 0;
+    boolean ragged = false;
+    for (int r = 1; r < this.size; r++) {
+      int rowWidth = rows.get(r).size();
+      ragged = ragged || (r > 1 && rowWidth != width);
+      width = Math.max(width, rowWidth);
+    }
+    this.widths = ragged ? new int[this.size - 1] : null;
+    ColumnBuilder[] builders = new ColumnBuilder[width];
+    for (int c = 0; c < width; c++) {
+      builders[c] = new ColumnBuilder(c);
+    }
+    for (int r = 1; r < this.size; r++) {
+      List<String> row = rows.get(r);
+      if (this.widths != null) {
+        this.widths[r - 1] = row.size();
+      }
+      for (int c = 0; c < row.size(); c++) {
+        builders[c].observe(row.get(c));
+      }
+    }
+    this.columns = new Column[width];
+    this.stringBytes = new long[width];
+    for (int c = 0; c < width; c++) {
+      this.columns[c] = builders[c].build(rows, Math.min(1, this.size));
+      this.stringBytes[c] = builders[c].stringBytes();
+    }
+  }
+
+  /**
+   * The constructor for a table whose columns are already built, as when it is read back from a
+   * snapshot.
+   *
+   * @param size the number of rows, with the first row
+   * @param first the first row
+   * @param columns the columns below the first row
+   * @param widths the width of every row below the first, or null if they all have every column
+   * @param stringBytes the heap every column took up as separate strings
+   */
+  ColumnarTable(int size, List<String> first, Column[] columns, int[] widths, long[] stringBytes) {
+    this.size = size;
+    this.first = first;
+    this.columns = columns;
+    this.widths = widths;
+    this.stringBytes = stringBytes;
+  }
+
+  /**
+   * Getter for a row of the table.
+   *
+   * @param index the index of the row, where 0 is the first row of the file
+   * @return a read-only view of the row
+   */
+  @Override
+  public List<String> get(int index) {
+    Objects.checkIndex(index, this.size);
+    if (index == 0) {
+      return this.first;
+    }
+    return new Row(index - 1);
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Getter for the number of cells in a row, without building the row.
+   *
+   * @param index the index of the row, where 0 is the first row of the file
+   * @return the number of cells in the row
+   */
+  public int width(int index) {
+    Objects.checkIndex(index, this.size);
+    if (index == 0) {
+      return this.first.size();
+    }
+    return this.widths == null ? this.columns.length : this.widths[index - 1];
+  }
+
+  /**
+   * Getter for the number of columns below the first row.
+   *
+   * @return the number of columns
+   */
+  public int columnCount() {
+    return this.columns.length;
+  }
+
+  /**
+   * Finds the column a request names, by its index or, when the first row is a header, by its name.
+   *
+   * @param param the index or name of the column
+   * @param header whether the first row holds the names of the columns
+   * @return the index of the column, or -1 if the table has no such column
+   */
+  public int columnOf(String param, boolean header) {
+    int column;
+    try {
+      column = Integer.parseInt(param.strip());
+    } catch (NumberFormatException e) {
+      column = header && this.size > 0 ? this.first.indexOf(param.strip()) : -1;
+    }
+    return column >= 0 && column < this.columns.length ? column : -1;
+  }
+
+  /**
+   * Getter for a column of the table. Cell i of the column is the cell of row i + 1 of the table.
+   *
+   * @param column the index of the column
+   * @return the column
+   */
+  public Column column(int column) {
+    return this.columns[column];
+  }
+
+  /**
+   * Getter for the types that were inferred for the columns.
+   *
+   * @return the type of every column, in order
+   */
+  public List<ColumnType> schema() {
+    List<ColumnType> schema = new ArrayList<>(this.columns.length);
+    for (Column column : this.columns) {
+      schema.add(column.type());
+    }
+    return schema;
+  }
+
+  /**
+   * Getter for how much heap every column takes up, next to what its cells took up as separate
+   * strings before the table was built.
+   *
+   * @return the memory use of every column, in order
+   */
+  public List<ColumnMemory> memory() {
+    List<ColumnMemory> memory = new ArrayList<>(this.columns.length);
+    for (int c = 0; c < this.columns.length; c++) {
+      Column column = this.columns[c];
+      memory.add(
+          new ColumnMemory(column.type(), column.encoding(), column.bytes(), this.stringBytes[c]));
+    }
+    return memory;
+  }
+
+  /**
+   * Builds a check for rows that have a cell exactly equal to a string. Every column turns the
+   * string into what it stores (a number or a dictionary code) once, columns where it can not occur
+   * are left out, and the check then only compares stored values.
+   *
+   * @param value the string to look for
+   * @return a check that takes the index of a row of the table
+   */
+  public IntPredicate anyCellEquals(String value) {
+    List<IntPredicate> checks = new ArrayList<>();
+    List<Integer> indices = new ArrayList<>();
+    for (int c = 0; c < this.columns.length; c++) {
+      IntPredicate check = this.columns[c].equalTo(value);
+      if (check != null) {
+        checks.add(check);
+        indices.add(c);
+      }
+    }
+    IntPredicate[] columnChecks = checks.toArray(new IntPredicate[0]);
+    int[] columnIndices = indices.stream().mapToInt(Integer::intValue).toArray();
+    return index -> {
+      if (index == 0) {
+        return this.first.contains(value);
+      }
+      int row = index - 1;
+      for (int i = 0; i < columnChecks.length; i++) {
+        boolean present = this.widths == null || columnIndices[i] < this.widths[row];
+        if (present && columnChecks[i].test(row)) {
+          return true;
+        }
+      }
+      return false;
+    };
+  }
+
+  /**
+   * Getter for the first row, as it was in the file.
+   *
+   * @return the first row
+   */
+  List<String> first() {
+    return this.first;
+  }
+
+  /**
+   * Getter for the widths of the rows below the first.
+   *
+   * @return the width of every row, or null if they all have every column
+   */
+  int[] widths() {
+    return this.widths;
+  }
+
+  /**
+   * Getter for the heap a column took up as separate strings.
+   *
+   * @param column the index of the column
+   * @return the estimated number of bytes
+   */
+  long stringBytes(int column) {
+    return this.stringBytes[column];
+  }
+
+  /**
+   * Row is the adapter that shows one row of the columns as a list of strings. It only holds the
+   * index of the row, so building one per read is cheap.
+   */
+  private class Row extends AbstractList<String> implements RandomAccess {
+
+    private final int row;
+
+    /**
+     * The constructor for a row adapter.
+     *
+     * @param row the index of the row in the columns
+     */
+    Row(int row) {
+      this.row = row;
+    }
+
+    @Override
+    public int size() {
+      return ColumnarTable.this.width(this.row + 1);
+    }
+
+    @Override
+    public String get(int index) {
+      Objects.checkIndex(index, this.size());
+      return ColumnarTable.this.columns[index].get(this.row);
+    }
+
+    /** Compares the cells in their columns, so numbers are not turned into strings to match. */
+    @Override
+    public int indexOf(Object o) {
+      if (o instanceof String value) {
+        int size = this.size();
+        for (int c = 0; c < size; c++) {
+          if (ColumnarTable.this.columns[c].matches(this.row, value)) {
+            return c;
+          }
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return this.indexOf(o) >= 0;
+    }
+  }
+}
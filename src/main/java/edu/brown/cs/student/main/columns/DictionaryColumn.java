@@ -0,0 +1,177 @@
+package edu.brown.cs.student.main.columns;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * DictionaryColumn keeps a string column with few distinct values as a dictionary of those values
+ * and one small code per cell. Census files repeat the same county, race and state names thousands
+ * of times, so every repeat costs one or two bytes instead of a string of its own.
+ *
+ * <p>Equality is checked on the codes: the search word is looked up in the dictionary once, and
+ * after that every cell is a single array read and an int compare.
+ */
+final class DictionaryColumn implements Column {
+
+  /**
+   * About what every entry of the map from values to codes takes past the string it shares with the
+   * dictionary: a HashMap node, the boxed code, and its slot in the table of the map.
+   */
+  static final int MAP_ENTRY_BYTES = 32 + 16 + 8;
+
+  private final String[] dictionary;
+  private final Map<String, Integer> codesByValue;
+  private final byte[] narrowCodes;
+  private final char[] wideCodes;
+
+  /**
+   * The constructor for a dictionary column. Codes are stored in bytes when there are at most 256
+   * distinct values, and in chars otherwise.
+   *
+   * @param dictionary the distinct values, where the code of a value is its index
+   * @param codesByValue the code of every distinct value
+   * @param codes the code of every cell
+   */
+  DictionaryColumn(String[] dictionary, Map<String, Integer> codesByValue, int[] codes) {
+    this.dictionary = dictionary;
+    this.codesByValue = codesByValue;
+    if (dictionary.length <= 1 << Byte.SIZE) {
+      this.narrowCodes = new byte[codes.length];
+      this.wideCodes = null;
+      for (int i = 0; i < codes.length; i++) {
+        this.narrowCodes[i] = (byte) codes[i];
+      }
+    } else {
+      this.narrowCodes = null;
+      this.wideCodes = new char[codes.length];
+      for (int i = 0; i < codes.length; i++) {
+        this.wideCodes[i] = (char) codes[i];
+      }
+    }
+  }
+
+  /**
+   * The constructor for a dictionary column whose codes are already stored, as when it is read back
+   * from a snapshot. Exactly one of the code arrays is set.
+   *
+   * @param dictionary the distinct values, where the code of a value is its index
+   * @param narrowCodes the code of every cell as a byte, or null
+   * @param wideCodes the code of every cell as a char, or null
+   */
+  DictionaryColumn(String[] dictionary, byte[] narrowCodes, char[] wideCodes) {
+    this.dictionary = dictionary;
+    this.codesByValue = new HashMap<>();
+    for (int code = 0; code < dictionary.length; code++) {
+      this.codesByValue.put(dictionary[code], code);
+    }
+    this.narrowCodes = narrowCodes;
+    this.wideCodes = wideCodes;
+  }
+
+  @Override
+  public int size() {
+    return this.narrowCodes != null ? this.narrowCodes.length : this.wideCodes.length;
+  }
+
+  @Override
+  public ColumnType type() {
+    return ColumnType.STRING;
+  }
+
+  @Override
+  public String get(int row) {
+    return this.dictionary[this.code(row)];
+  }
+
+  @Override
+  public boolean matches(int row, String value) {
+    return this.dictionary[this.code(row)].equals(value);
+  }
+
+  /** Looks the value up once, so the predicate only compares codes. */
+  @Override
+  public IntPredicate equalTo(String value) {
+    Integer code = this.codesByValue.get(value);
+    if (code == null) {
+      return null;
+    }
+    int wanted = code;
+    if (this.narrowCodes != null) {
+      byte[] codes = this.narrowCodes;
+      return row -> (codes[row] & 0xFF) == wanted;
+    }
+    char[] codes = this.wideCodes;
+    return row -> codes[row] == wanted;
+  }
+
+  /** Checks every distinct value once, so the predicate only reads codes. */
+  @Override
+  public IntPredicate containing(String word) {
+    boolean[] hits = new boolean[this.dictionary.length];
+    boolean any = false;
+    for (int code = 0; code < this.dictionary.length; code++) {
+      hits[code] = this.dictionary[code].contains(word);
+      any |= hits[code];
+    }
+    return any ? row -> hits[this.code(row)] : null;
+  }
+
+  @Override
+  public int distinct() {
+    return this.dictionary.length;
+  }
+
+  @Override
+  public String encoding() {
+    return "dictionary";
+  }
+
+  /** Counts the map from values to codes along with the dictionary and the codes. */
+  @Override
+  public long bytes() {
+    long bytes = this.narrowCodes != null ? this.narrowCodes.length : 2L * this.wideCodes.length;
+    bytes += (long) MAP_ENTRY_BYTES * this.dictionary.length;
+    for (String value : this.dictionary) {
+      bytes += Cells.stringBytes(value);
+    }
+    return bytes;
+  }
+
+  /**
+   * Getter for the code of a cell.
+   *
+   * @param row the index of the cell
+   * @return the index of the value of the cell in the dictionary
+   */
+  int code(int row) {
+    return this.narrowCodes != null ? this.narrowCodes[row] & 0xFF : this.wideCodes[row];
+  }
+
+  /**
+   * Getter for the distinct values of the column.
+   *
+   * @return the dictionary, where the code of a value is its index
+   */
+  String[] dictionary() {
+    return this.dictionary;
+  }
+
+  /**
+   * Getter for the codes of the column when they are stored in bytes.
+   *
+   * @return the codes, or null if they are stored in chars
+   */
+  byte[] narrowCodes() {
+    return this.narrowCodes;
+  }
+
+  /**
+   * Getter for the codes of the column when they are stored in chars.
+   *
+   * @return the codes, or null if they are stored in bytes
+   */
+  char[] wideCodes() {
+    return this.wideCodes;
+  }
+}
@@ -0,0 +1,130 @@
+package edu.brown.cs.student.main.columns;
+
+import java.util.BitSet;
+import java.util.function.IntPredicate;
+
+/**
+ * DoubleColumn keeps a column of decimal numbers as a double array. Next to every number it keeps
+ * how many digits the cell had after the point, so that "74.50" comes back as "74.50" and not as
+ * "74.5".
+ */
+final class DoubleColumn implements Column {
+
+  private final double[] values;
+  private final byte[] scales;
+  private final BitSet blanks;
+
+  /**
+   * The constructor for a double column.
+   *
+   * @param values the numbers of the column, 0 where the cell is empty
+   * @param scales the number of digits after the point of every cell
+   * @param blanks the cells that were empty in the file
+   */
+  DoubleColumn(double[] values, byte[] scales, BitSet blanks) {
+    this.values = values;
+    this.scales = scales;
+    this.blanks = blanks;
+  }
+
+  @Override
+  public int size() {
+    return this.values.length;
+  }
+
+  @Override
+  public ColumnType type() {
+    return ColumnType.DOUBLE;
+  }
+
+  @Override
+  public String get(int row) {
+    return this.blanks.get(row) ? "" : Cells.format(this.values[row], this.scales[row]);
+  }
+
+  @Override
+  public boolean matches(int row, String value) {
+    if (this.blanks.get(row)) {
+      return value.isEmpty();
+    }
+    return Cells.couldBeNumber(value) && this.get(row).equals(value);
+  }
+
+  /**
+   * Parses the string once, so the check only compares the number and its digit count. Two cells
+   * with the same number and the same digits after the point are always the same string.
+   */
+  @Override
+  public IntPredicate equalTo(String value) {
+    if (value.isEmpty()) {
+      return this.blanks.isEmpty() ? null : this.blanks::get;
+    }
+    ColumnType type = Cells.classify(value);
+    if (type == ColumnType.STRING || (type != ColumnType.DOUBLE && Cells.tooWideForDouble(value))) {
+      return null;
+    }
+    double wanted = Double.parseDouble(value);
+    byte scale = Cells.scale(value);
+    return row -> this.values[row] == wanted && this.scales[row] == scale && !this.blanks.get(row);
+  }
+
+  @Override
+  public double number(int row) {
+    return this.blanks.get(row) ? Double.NaN : this.values[row];
+  }
+
+  /** Counts the numbers of the column after sorting a copy of them, without any strings. */
+  @Override
+  public int distinct() {
+    long[] keys = new long[this.values.length];
+    int count = 0;
+    for (int row = 0; row < this.values.length; row++) {
+      if (!this.blanks.get(row)) {
+        keys[count++] = 31 * Double.doubleToLongBits(this.values[row]) + this.scales[row];
+      }
+    }
+    return Cells.distinct(keys, count, !this.blanks.isEmpty());
+  }
+
+  @Override
+  public long bytes() {
+    return 9L * this.values.length + (this.blanks.length() + 7) / Byte.SIZE;
+  }
+
+  /**
+   * Getter for a cell as a number.
+   *
+   * @param row the index of the cell
+   * @return the number in the cell, or 0 if the cell is empty
+   */
+  double getDouble(int row) {
+    return this.values[row];
+  }
+
+  /**
+   * Getter for the numbers of the column.
+   *
+   * @return the array of numbers, 0 where the cell is empty
+   */
+  double[] values() {
+    return this.values;
+  }
+
+  /**
+   * Getter for the cells that were empty in the file.
+   *
+   * @return the set of empty cells
+   */
+  BitSet blanks() {
+    return this.blanks;
+  }
+
+  /**
+   * Getter for the number of digits after the point of every cell.
+   *
+   * @return the array of digit counts
+   */
+  byte[] scales() {
+    return this.scales;
+  }
+}
@@ -0,0 +1,89 @@
+package edu.brown.cs.student.main.columns;
+
+import java.util.function.IntPredicate;
+
+/**
+ * FoldedDictionaryColumn is the folded form of a dictionary column. Only the dictionary is folded,
+ * and the codes of the cells are read from the original column, so the folded form of a column of
+ * county names costs a few strings no matter how many rows there are.
+ *
+ * <p>Two values of the original dictionary can fold to the same string, like "Asian" and "ASIAN",
+ * so a search word can stand for more than one code, and checks keep a flag for every code.
+ */
+final class FoldedDictionaryColumn implements Column {
+
+  private final DictionaryColumn original;
+  private final String[] folded;
+
+  /**
+   * The constructor folds the dictionary of a column.
+   *
+   * @param original the column to fold
+   */
+  FoldedDictionaryColumn(DictionaryColumn original) {
+    this.original = original;
+    String[] dictionary = original.dictionary();
+    this.folded = new String[dictionary.length];
+    for (int code = 0; code < dictionary.length; code++) {
+      this.folded[code] = Folding.fold(dictionary[code]);
+    }
+  }
+
+  @Override
+  public int size() {
+    return this.original.size();
+  }
+
+  @Override
+  public ColumnType type() {
+    return ColumnType.STRING;
+  }
+
+  @Override
+  public String get(int row) {
+    return this.folded[this.original.code(row)];
+  }
+
+  @Override
+  public boolean matches(int row, String value) {
+    return this.get(row).equals(value);
+  }
+
+  /** Checks every folded value once, so the predicate only reads codes. */
+  @Override
+  public IntPredicate equalTo(String value) {
+    boolean[] hits = new boolean[this.folded.length];
+    boolean any = false;
+    for (int code = 0; code < this.folded.length; code++) {
+      hits[code] = this.folded[code].equals(value);
+      any |= hits[code];
+    }
+    return any ? row -> hits[this.original.code(row)] : null;
+  }
+
+  /** Checks every folded value once, so the predicate only reads codes. */
+  @Override
+  public IntPredicate containing(String word) {
+    boolean[] hits = new boolean[this.folded.length];
+    boolean any = false;
+    for (int code = 0; code < this.folded.length; code++) {
+      hits[code] = this.folded[code].contains(word);
+      any |= hits[code];
+    }
+    return any ? row -> hits[this.original.code(row)] : null;
+  }
+
+  @Override
+  public String encoding() {
+    return "dictionary";
+  }
+
+  @Override
+  public long bytes() {
+    long bytes = 0;
+    for (String value : this.folded) {
+      bytes += Cells.stringBytes(value);
+    }
+    return bytes;
+  }
+}
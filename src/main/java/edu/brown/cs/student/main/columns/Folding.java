@@ -0,0 +1,71 @@
+package edu.brown.cs.student.main.columns;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Folding turns text into the form that case- and accent-insensitive searches compare: lower case,
+ * with accents taken off of their letters, so "Providence", "PROVIDENCE" and "providence" all fold
+ * to the same string, and so do "Peña" and "pena".
+ *
+ * <p>Folding a cell costs more than comparing it, so the folded form of every string column is
+ * built once when a table is loaded, and a search only folds its search word.
+ */
+public final class Folding {
+
+  /** The accents that are left over as their own characters once text is decomposed. */
+  private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+  /** The constructor is private, since Folding only has static helpers. */
+  private Folding() {}
+
+  /**
+   * Folds a string. ASCII strings only have to be put in lower case, and other strings are
+   * decomposed first, so that accents come apart from their letters and can be dropped.
+   *
+   * @param text the string to fold
+   * @return the folded string
+   */
+  public static String fold(String text) {
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) >= 0x80) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+      }
+    }
+    return text.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Builds the folded form of a column. Numeric columns are their own folded form, since digits,
+   * points and minus signs do not change. A dictionary column folds its dictionary and keeps the
+   * codes of the original, and other string columns are packed again from their folded cells,
+   * unless no cell changes.
+   *
+   * @param column the column to fold
+   * @return a column with the folded form of every cell
+   */
+  public static Column column(Column column) {
+    if (column.type() != ColumnType.STRING) {
+      return column;
+    }
+    if (column instanceof DictionaryColumn dictionary) {
+      return new FoldedDictionaryColumn(dictionary);
+    }
+    int size = column.size();
+    int[] offsets = new int[size + 1];
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    boolean changed = false;
+    for (int row = 0; row < size; row++) {
+      String cell = column.get(row);
+      String folded = fold(cell);
+      changed |= !folded.equals(cell);
+      bytes.writeBytes(folded.getBytes(StandardCharsets.UTF_8));
+      offsets[row + 1] = bytes.size();
+    }
+    return changed ? new StringColumn(bytes.toByteArray(), offsets) : column;
+  }
+}
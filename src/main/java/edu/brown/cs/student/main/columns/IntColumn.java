@@ -0,0 +1,109 @@
+package edu.brown.cs.student.main.columns;
+
+import java.util.BitSet;
+import java.util.function.IntPredicate;
+
+/** IntColumn keeps a column of whole numbers that all fit in an int as an int array. */
+final class IntColumn implements Column {
+
+  private final int[] values;
+  private final BitSet blanks;
+
+  /**
+   * The constructor for an int column.
+   *
+   * @param values the numbers of the column, 0 where the cell is empty
+   * @param blanks the cells that were empty in the file
+   */
+  IntColumn(int[] values, BitSet blanks) {
+    this.values = values;
+    this.blanks = blanks;
+  }
+
+  @Override
+  public int size() {
+    return this.values.length;
+  }
+
+  @Override
+  public ColumnType type() {
+    return ColumnType.INT;
+  }
+
+  @Override
+  public String get(int row) {
+    return this.blanks.get(row) ? "" : Integer.toString(this.values[row]);
+  }
+
+  @Override
+  public boolean matches(int row, String value) {
+    if (this.blanks.get(row)) {
+      return value.isEmpty();
+    }
+    return Cells.sameLong(this.values[row], value);
+  }
+
+  /** Parses the string once, so the check only compares ints. */
+  @Override
+  public IntPredicate equalTo(String value) {
+    if (value.isEmpty()) {
+      return this.blanks.isEmpty() ? null : this.blanks::get;
+    }
+    if (Cells.classify(value) != ColumnType.INT) {
+      return null;
+    }
+    int wanted = Integer.parseInt(value);
+    return row -> this.values[row] == wanted && !this.blanks.get(row);
+  }
+
+  @Override
+  public double number(int row) {
+    return this.blanks.get(row) ? Double.NaN : this.values[row];
+  }
+
+  /** Counts the numbers of the column after sorting a copy of them, without any strings. */
+  @Override
+  public int distinct() {
+    long[] keys = new long[this.values.length];
+    int count = 0;
+    for (int row = 0; row < this.values.length; row++) {
+      if (!this.blanks.get(row)) {
+        keys[count++] = this.values[row];
+      }
+    }
+    return Cells.distinct(keys, count, !this.blanks.isEmpty());
+  }
+
+  @Override
+  public long bytes() {
+    return 4L * this.values.length + (this.blanks.length() + 7) / Byte.SIZE;
+  }
+
+  /**
+   * Getter for a cell as a number.
+   *
+   * @param row the index of the cell
+   * @return the number in the cell, or 0 if the cell is empty
+   */
+  int getInt(int row) {
+    return this.values[row];
+  }
+
+  /**
+   * Getter for the numbers of the column.
+   *
+   * @return the array of numbers, 0 where the cell is empty
+   */
+  int[] values() {
+    return this.values;
+  }
+
+  /**
+   * Getter for the cells that were empty in the file.
+   *
+   * @return the set of empty cells
+   */
+  BitSet blanks() {
+    return this.blanks;
+  }
+}
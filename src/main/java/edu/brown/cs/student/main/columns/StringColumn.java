@@ -0,0 +1,120 @@
+package edu.brown.cs.student.main.columns;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntPredicate;
+
+/**
+ * StringColumn keeps a column of strings packed one after another as UTF-8 bytes in a single array,
+ * with the offset of every cell in a second array. This takes a fraction of the room of a String
+ * object per cell, and cells are only turned back into strings when they are read.
+ */
+final class StringColumn implements Column {
+
+  private final byte[] bytes;
+  private final int[] offsets;
+
+  /**
+   * The constructor for a string column.
+   *
+   * @param bytes the UTF-8 bytes of all cells, one after another
+   * @param offsets where every cell starts in bytes, with one more entry for the end of the last
+   */
+  StringColumn(byte[] bytes, int[] offsets) {
+    this.bytes = bytes;
+    this.offsets = offsets;
+  }
+
+  @Override
+  public int size() {
+    return this.offsets.length - 1;
+  }
+
+  @Override
+  public ColumnType type() {
+    return ColumnType.STRING;
+  }
+
+  @Override
+  public String get(int row) {
+    int start = this.offsets[row];
+    return new String(this.bytes, start, this.offsets[row + 1] - start, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Compares the bytes of the cell to the string. ASCII cells are compared in place, and only cells
+   * with other characters are decoded first.
+   */
+  @Override
+  public boolean matches(int row, String value) {
+    int start = this.offsets[row];
+    int length = this.offsets[row + 1] - start;
+    if (length < value.length()) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      byte b = this.bytes[start + i];
+      if (b < 0) {
+        return this.get(row).equals(value);
+      }
+      if (i >= value.length() || b != value.charAt(i)) {
+        return false;
+      }
+    }
+    return length == value.length();
+  }
+
+  /**
+   * Looks for the UTF-8 bytes of the word in the packed bytes of every cell, eight bytes at a time,
+   * so no cell is turned into a string. Words with surrogates go through the strings instead, since
+   * a lone surrogate has no UTF-8 bytes of its own.
+   */
+  @Override
+  public IntPredicate containing(String word) {
+    for (int i = 0; i < word.length(); i++) {
+      if (Character.isSurrogate(word.charAt(i))) {
+        return row -> this.get(row).contains(word);
+      }
+    }
+    byte[] needle = word.getBytes(StandardCharsets.UTF_8);
+    return row ->
+        ByteSearch.indexOf(this.bytes, this.offsets[row], this.offsets[row + 1], needle) >= 0;
+  }
+
+  /** Counts 64-bit FNV-1a hashes of the bytes of every cell, without decoding any of them. */
+  @Override
+  public int distinct() {
+    int size = this.size();
+    long[] keys = new long[size];
+    for (int row = 0; row < size; row++) {
+      long hash = 0xcbf29ce484222325L;
+      for (int i = this.offsets[row]; i < this.offsets[row + 1]; i++) {
+        hash = (hash ^ (this.bytes[i] & 0xFF)) * 0x100000001b3L;
+      }
+      keys[row] = hash;
+    }
+    return Cells.distinct(keys, size, false);
+  }
+
+  @Override
+  public long bytes() {
+    return this.bytes.length + 4L * this.offsets.length;
+  }
+
+  /**
+   * Getter for the packed bytes of the cells.
+   *
+   * @return the UTF-8 bytes of all cells, one after another
+   */
+  byte[] packed() {
+    return this.bytes;
+  }
+
+  /**
+   * Getter for where every cell starts in the packed bytes.
+   *
+   * @return the offsets, with one more entry for the end of the last cell
+   */
+  int[] offsets() {
+    return this.offsets;
+  }
+}
@@ -0,0 +1,329 @@
+package edu.brown.cs.student.main.columns;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * TableSnapshot writes a ColumnarTable to a compact binary file and reads it back. The file holds
+ * the arrays of the columns as they are in memory, so reading a snapshot is a memory map and a few
+ * bulk copies per column instead of tokenizing, creating and inferring every row again.
+ *
+ * <p>Every snapshot starts with a key that the caller picks, and a snapshot is only read back when
+ * the key matches. Snapshots written by another version of the format are never read.
+ */
+public final class TableSnapshot {
+
+  private static final int MAGIC = 0x43535653;
+  private static final int VERSION = 1;
+
+  private static final byte INT = 0;
+  private static final byte LONG = 1;
+  private static final byte DOUBLE = 2;
+  private static final byte STRING = 3;
+  private static final byte DICTIONARY = 4;
+
+  /** The constructor is private, since TableSnapshot only has static helpers. */
+  private TableSnapshot() {}
+
+  /**
+   * Writes a table to a snapshot file, replacing the file if it is there.
+   *
+   * @param table the table to write
+   * @param key what the snapshot is for, which has to match when it is read
+   * @param file the file to write to
+   * @throws IOException if the file can't be written
+   */
+  public static void write(ColumnarTable table, String key, Path file) throws IOException {
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      writeString(out, key);
+      out.writeInt(table.size());
+      writeStrings(out, table.first().toArray(new String[0]));
+      int[] widths = table.widths();
+      out.writeBoolean(widths != null);
+      if (widths != null) {
+        writeInts(out, widths);
+      }
+      out.writeInt(table.columnCount());
+      for (int c = 0; c < table.columnCount(); c++) {
+        out.writeLong(table.stringBytes(c));
+        writeColumn(out, table.column(c));
+      }
+    }
+  }
+
+  /**
+   * Reads a table back from a snapshot file by mapping it into memory.
+   *
+   * @param file the file to read
+   * @param key what the snapshot should be for
+   * @return the table, or null if the file is not a snapshot for the key
+   * @throws IOException if the file can't be read or is cut short
+   */
+  public static ColumnarTable read(Path file, String key) throws IOException {
+    MappedByteBuffer in;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try {
+      return read(in, key);
+    } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+      throw new IOException("Snapshot " + file + " is damaged", e);
+    }
+  }
+
+  /**
+   * Reads a table back from a mapped snapshot.
+   *
+   * @param in the mapped file
+   * @param key what the snapshot should be for
+   * @return the table, or null if the file is not a snapshot for the key
+   * @throws IOException if a column has a tag that write does not use
+   */
+  private static ColumnarTable read(ByteBuffer in, String key) throws IOException {
+    if (in.remaining() < 8 || in.getInt() != MAGIC || in.getInt() != VERSION) {
+      return null;
+    }
+    if (!readString(in).equals(key)) {
+      return null;
+    }
+    int size = in.getInt();
+    List<String> first = List.of(readStrings(in));
+    int[] widths = in.get() != 0 ? readInts(in) : null;
+    Column[] columns = new Column[in.getInt()];
+    long[] stringBytes = new long[columns.length];
+    for (int c = 0; c < columns.length; c++) {
+      stringBytes[c] = in.getLong();
+      columns[c] = readColumn(in);
+    }
+    return new ColumnarTable(size, first, columns, widths, stringBytes);
+  }
+
+  /**
+   * Writes one column, starting with a tag for its kind.
+   *
+   * @param out where to write
+   * @param column the column to write
+   * @throws IOException if the column can't be written
+   */
+  private static void writeColumn(DataOutputStream out, Column column) throws IOException {
+    if (column instanceof IntColumn ints) {
+      out.writeByte(INT);
+      writeLongs(out, ints.blanks().toLongArray());
+      writeInts(out, ints.values());
+    } else if (column instanceof LongColumn longs) {
+      out.writeByte(LONG);
+      writeLongs(out, longs.blanks().toLongArray());
+      writeLongs(out, longs.values());
+    } else if (column instanceof DoubleColumn doubles) {
+      out.writeByte(DOUBLE);
+      writeLongs(out, doubles.blanks().toLongArray());
+      out.writeInt(doubles.size());
+      for (double value : doubles.values()) {
+        out.writeDouble(value);
+      }
+      writeBytes(out, doubles.scales());
+    } else if (column instanceof DictionaryColumn dictionary) {
+      out.writeByte(DICTIONARY);
+      writeStrings(out, dictionary.dictionary());
+      out.writeBoolean(dictionary.narrowCodes() != null);
+      if (dictionary.narrowCodes() != null) {
+        writeBytes(out, dictionary.narrowCodes());
+      } else {
+        out.writeInt(dictionary.wideCodes().length);
+        for (char code : dictionary.wideCodes()) {
+          out.writeChar(code);
+        }
+      }
+    } else if (column instanceof StringColumn strings) {
+      out.writeByte(STRING);
+      writeBytes(out, strings.packed());
+      writeInts(out, strings.offsets());
+    } else {
+      throw new IOException("Can't write a snapshot of " + column.getClass().getSimpleName());
+    }
+  }
+
+  /**
+   * Reads one column back, copying its arrays out of the mapped file.
+   *
+   * @param in the mapped file, positioned at the tag of the column
+   * @return the column
+   * @throws IOException if the tag is not one that write uses
+   */
+  private static Column readColumn(ByteBuffer in) throws IOException {
+    byte tag = in.get();
+    switch (tag) {
+      case INT -> {
+        BitSet blanks = BitSet.valueOf(readLongs(in));
+        return new IntColumn(readInts(in), blanks);
+      }
+      case LONG -> {
+        BitSet blanks = BitSet.valueOf(readLongs(in));
+        return new LongColumn(readLongs(in), blanks);
+      }
+      case DOUBLE -> {
+        BitSet blanks = BitSet.valueOf(readLongs(in));
+        double[] values = new double[in.getInt()];
+        in.asDoubleBuffer().get(values);
+        in.position(in.position() + Double.BYTES * values.length);
+        return new DoubleColumn(values, readBytes(in), blanks);
+      }
+      case DICTIONARY -> {
+        String[] dictionary = readStrings(in);
+        if (in.get() != 0) {
+          return new DictionaryColumn(dictionary, readBytes(in), null);
+        }
+        char[] codes = new char[in.getInt()];
+        in.asCharBuffer().get(codes);
+        in.position(in.position() + Character.BYTES * codes.length);
+        return new DictionaryColumn(dictionary, null, codes);
+      }
+      case STRING -> {
+        byte[] bytes = readBytes(in);
+        return new StringColumn(bytes, readInts(in));
+      }
+      default -> throw new IOException("Unknown column in snapshot: " + tag);
+    }
+  }
+
+  /**
+   * Writes an int array, starting with its length.
+   *
+   * @param out where to write
+   * @param values the array
+   * @throws IOException if the array can't be written
+   */
+  private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+    out.writeInt(values.length);
+    for (int value : values) {
+      out.writeInt(value);
+    }
+  }
+
+  /**
+   * Reads an int array that writeInts wrote.
+   *
+   * @param in the mapped file
+   * @return the array
+   */
+  private static int[] readInts(ByteBuffer in) {
+    int[] values = new int[in.getInt()];
+    in.asIntBuffer().get(values);
+    in.position(in.position() + Integer.BYTES * values.length);
+    return values;
+  }
+
+  /**
+   * Writes a long array, starting with its length.
+   *
+   * @param out where to write
+   * @param values the array
+   * @throws IOException if the array can't be written
+   */
+  private static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+    out.writeInt(values.length);
+    for (long value : values) {
+      out.writeLong(value);
+    }
+  }
+
+  /**
+   * Reads a long array that writeLongs wrote.
+   *
+   * @param in the mapped file
+   * @return the array
+   */
+  private static long[] readLongs(ByteBuffer in) {
+    long[] values = new long[in.getInt()];
+    in.asLongBuffer().get(values);
+    in.position(in.position() + Long.BYTES * values.length);
+    return values;
+  }
+
+  /**
+   * Writes a byte array, starting with its length.
+   *
+   * @param out where to write
+   * @param values the array
+   * @throws IOException if the array can't be written
+   */
+  private static void writeBytes(DataOutputStream out, byte[] values) throws IOException {
+    out.writeInt(values.length);
+    out.write(values);
+  }
+
+  /**
+   * Reads a byte array that writeBytes wrote.
+   *
+   * @param in the mapped file
+   * @return the array
+   */
+  private static byte[] readBytes(ByteBuffer in) {
+    byte[] values = new byte[in.getInt()];
+    in.get(values);
+    return values;
+  }
+
+  /**
+   * Writes a string as its length and its UTF-8 bytes.
+   *
+   * @param out where to write
+   * @param value the string
+   * @throws IOException if the string can't be written
+   */
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Reads a string that writeString wrote.
+   *
+   * @param in the mapped file
+   * @return the string
+   */
+  private static String readString(ByteBuffer in) {
+    return new String(readBytes(in), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes an array of strings, starting with its length.
+   *
+   * @param out where to write
+   * @param values the strings
+   * @throws IOException if the strings can't be written
+   */
+  private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+    out.writeInt(values.length);
+    for (String value : values) {
+      writeString(out, value);
+    }
+  }
+
+  /**
+   * Reads an array of strings that writeStrings wrote.
+   *
+   * @param in the mapped file
+   * @return the strings
+   */
+  private static String[] readStrings(ByteBuffer in) {
+    String[] values = new String[in.getInt()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = readString(in);
+    }
+    return values;
+  }
+}
@@ -0,0 +1,142 @@
+package edu.brown.cs.student.main.handlers;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import edu.brown.cs.student.main.columns.ColumnarTable;
+import edu.brown.cs.student.main.searcher.Aggregation;
+import edu.brown.cs.student.main.searcher.Aggregation.Group;
+import edu.brown.cs.student.main.searcher.MySearcher;
+import edu.brown.cs.student.main.server.Dataset;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * The AggregateHandler class is responsible for handling GET requests for totals over the loaded
+ * CSV, so a client that wants the sum, mean or range of a column per county does not have to
+ * download the whole file. It takes the required "header" parameter, an optional "group" column to
+ * group the rows by, and an optional numeric "column" to total, where both columns are given by
+ * their index or, with a header, by their name. Every group comes back with its number of rows, and
+ * with a column also with the count, sum, avg, min and max of its numbers.
+ *
+ * <p>The totals are worked out in one pass over the loaded table (see Aggregation), which runs in
+ * parallel chunks for big files.
+ */
+public class AggregateHandler implements Route {
+
+  private final Dataset data;
+
+  /**
+   * Constructs a new AggregateHandler instance with the specified Dataset.
+   *
+   * @param current the Dataset to be aggregated.
+   */
+  public AggregateHandler(Dataset current) {
+    this.data = current;
+  }
+
+  /**
+   * Method that handles an HTTP request to aggregate the dataset. Constructs a success response
+   * with the totals of every group or an error response in JSON format.
+   *
+   * @param request the HTTP request containing the aggregation parameters.
+   * @param response the HTTP response to be populated with the totals or error messages.
+   * @return an HTTP response containing the totals or error messages in JSON format.
+   * @throws Exception if an error occurs during the aggregation or response construction.
+   */
+  @Override
+  public Object handle(Request request, Response response) throws Exception {
+    Moshi moshi = new Moshi.Builder().build();
+    Type mapStringObject = Types.newParameterizedType(Map.class, String.class, Object.class);
+    JsonAdapter<Map<String, Object>> adapter = moshi.adapter(mapStringObject);
+    Map<String, Object> responseMap = new HashMap<>();
+    try {
+      ColumnarTable table = this.data.getTable();
+      if (table.isEmpty()) {
+        responseMap.put("type", "error");
+        responseMap.put("error_type", "No files are loaded");
+        return adapter.toJson(responseMap);
+      }
+      String headerS = request.queryParams("header");
+      if (headerS == null) {
+        responseMap.put("type", "error");
+        responseMap.put("error_type", "missing_parameter");
+        responseMap.put("error_arg", "header");
+        return adapter.toJson(responseMap);
+      }
+      boolean header = headerS.equalsIgnoreCase("true");
+      String groupS = request.queryParams("group");
+      String columnS = request.queryParams("column");
+      int group = groupS == null ? -1 : table.columnOf(groupS, header);
+      if (groupS != null && group == -1) {
+        return this.invalidArgument(adapter, "group", groupS, "The table has no such column");
+      }
+      int column = columnS == null ? -1 : table.columnOf(columnS, header);
+      if (columnS != null && column == -1) {
+        return this.invalidArgument(adapter, "column", columnS, "The table has no such column");
+      }
+      Aggregation aggregation;
+      try {
+        aggregation = new Aggregation(table, group, column, header);
+      } catch (IllegalArgumentException e) {
+        return this.invalidArgument(adapter, "column", columnS, e.getMessage());
+      }
+      List<Group> groups =
+          aggregation.run(ForkJoinPool.commonPool(), MySearcher.PARALLEL_THRESHOLD);
+
+      List<Map<String, Object>> groupMaps = new ArrayList<>(groups.size());
+      for (Group totals : groups) {
+        Map<String, Object> groupMap = new HashMap<>();
+        groupMap.put("group", totals.key());
+        groupMap.put("rows", totals.rows());
+        if (column != -1) {
+          groupMap.put("count", totals.count());
+          groupMap.put("sum", totals.sum());
+          // a group without numbers has no average or range, and JSON has no NaN
+          if (totals.count() > 0) {
+            groupMap.put("avg", totals.avg());
+            groupMap.put("min", totals.min());
+            groupMap.put("max", totals.max());
+          }
+        }
+        groupMaps.add(groupMap);
+      }
+      responseMap.put("result", "success");
+      responseMap.put("group", groupS);
+      responseMap.put("column", columnS);
+      responseMap.put("groups", groupMaps);
+      return adapter.toJson(responseMap);
+    } catch (Exception e) {
+      responseMap.put("type", "error");
+      responseMap.put("error_type", e);
+      return adapter.toJson(responseMap);
+    }
+  }
+
+  /**
+   * Builds the error response for a parameter that can not be used, as JSON.
+   *
+   * @param adapter the adapter the response is written with
+   * @param param the name of the parameter
+   * @param value the value it was sent with
+   * @param details why the value can not be used
+   * @return the response as JSON
+   */
+  private String invalidArgument(
+      JsonAdapter<Map<String, Object>> adapter, String param, String value, String details) {
+    Map<String, Object> responseMap = new HashMap<>();
+    responseMap.put("type", "error");
+    responseMap.put("error_type", "invalid_argument");
+    responseMap.put("invalid_argument", param);
+    responseMap.put(param, value);
+    responseMap.put("details", details);
+    return adapter.toJson(responseMap);
+  }
+}
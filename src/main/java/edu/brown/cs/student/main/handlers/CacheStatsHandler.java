@@ -0,0 +1,60 @@
+package edu.brown.cs.student.main.handlers;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import edu.brown.cs.student.main.server.Dataset;
+import edu.brown.cs.student.main.server.ResultCache;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * The CacheStatsHandler class is responsible for handling GET requests for the counters of the
+ * cache of search responses: how many searches were answered from it, how many were not, how many
+ * responses were evicted to make room, and how full it is. These are what the size of the cache is
+ * tuned by.
+ */
+public class CacheStatsHandler implements Route {
+
+  private final Dataset data;
+
+  /**
+   * Constructs a new CacheStatsHandler instance with the specified Dataset.
+   *
+   * @param loaded the Dataset whose cache is reported on.
+   */
+  public CacheStatsHandler(Dataset loaded) {
+    this.data = loaded;
+  }
+
+  /**
+   * Method that handles an HTTP request for the counters of the cache. Constructs a success
+   * response with the counters in JSON format.
+   *
+   * @param request the HTTP request.
+   * @param response the HTTP response to be populated with the counters.
+   * @return an HTTP response containing the counters in JSON format.
+   * @throws Exception if an error occurs during response construction.
+   */
+  @Override
+  public Object handle(Request request, Response response) throws Exception {
+    Moshi moshi = new Moshi.Builder().build();
+    Type mapStringObject = Types.newParameterizedType(Map.class, String.class, Object.class);
+    JsonAdapter<Map<String, Object>> adapter = moshi.adapter(mapStringObject);
+
+    ResultCache.Stats stats = this.data.getResults().stats();
+    Map<String, Object> responseMap = new HashMap<>();
+    responseMap.put("result", "success");
+    responseMap.put("hits", stats.hits());
+    responseMap.put("misses", stats.misses());
+    responseMap.put("evictions", stats.evictions());
+    responseMap.put("entries", stats.entries());
+    responseMap.put("bytes", stats.bytes());
+    responseMap.put("max_bytes", stats.maxBytes());
+    return adapter.toJson(responseMap);
+  }
+}
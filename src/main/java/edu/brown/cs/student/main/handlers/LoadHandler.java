@@ -3,16 +3,25 @@ package edu.brown.cs.student.main.handlers;
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
 import com.squareup.moshi.Types;
+import edu.brown.cs.student.main.columns.ColumnMemory;
+import edu.brown.cs.student.main.columns.ColumnarTable;
 import edu.brown.cs.student.main.parser.MyParser;
+import edu.brown.cs.student.main.parser.ParseReport;
 import edu.brown.cs.student.main.rowhandler.CreatorFromRow;
 import edu.brown.cs.student.main.rowhandler.FactoryFailureException;
+import edu.brown.cs.student.main.searcher.BlockFilters;
 import edu.brown.cs.student.main.server.Dataset;
-import java.io.FileReader;
+import edu.brown.cs.student.main.server.SnapshotCache;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Type;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import spark.Request;
 import spark.Response;
 import spark.Route;
@@ -23,28 +32,51 @@ import spark.Route;
  */
 public class LoadHandler implements Route {
 
+  /** The false positive rate of block filters when the "fpp" parameter is not given. */
+  public static final double DEFAULT_FPP = 0.01;
+
   private final Dataset data;
+  private final SnapshotCache cache;
 
   /**
-   * Constructs a new LoadHandler instance with the specified Dataset.
+   * Constructs a new LoadHandler instance with the specified Dataset, caching snapshots of loaded
+   * files in the default directory.
    *
    * @param current The dataset to be used for viewing.
    */
   public LoadHandler(Dataset current) {
+    this(current, new SnapshotCache(SnapshotCache.DEFAULT_DIRECTORY));
+  }
+
+  /**
+   * Constructs a new LoadHandler instance with the specified Dataset and snapshot cache.
+   *
+   * @param current The dataset to be used for viewing.
+   * @param cache The cache of snapshots of files that were loaded before.
+   */
+  public LoadHandler(Dataset current, SnapshotCache cache) {
     this.data = current;
+    this.cache = cache;
   }
 
   /**
    * Method that handles an HTTP request to load a dataset from a file. The MyParser class is used
    * to parse the CSV file, and the `CreatorFromRow` interface and custom `Creator` class are used
    * to specify how rows from the CSV file are transformed into lists of strings. Upon successful
-   * loading, it updates the dataset in the `Dataset` object, and if an error occurs during loading,
-   * it generates a JSON response indicating the failure.
+   * loading, it updates the dataset in the `Dataset` object and responds with the type that was
+   * inferred for every column and the memory it saved. Files that were loaded before and did not
+   * change since are read back from a snapshot instead of being parsed, and the response says
+   * whether that happened and how long the load took. The optional "trigram" parameter picks
+   * columns to build trigram indexes for. The optional "bloom" parameter is a number of rows, and
+   * replaces the inverted index with a Bloom filter for every block of that many rows, which takes
+   * less room but has to check the rows of every block that might match. The optional "fpp"
+   * parameter sets the false positive rate of those filters. If an error occurs during loading, it
+   * generates a JSON response indicating the failure.
    *
-   * @param request  the HTTP request containing the file path to load.
+   * @param request the HTTP request containing the file path to load.
    * @param response the HTTP response to be populated with success or failure messages.
    * @return a success message if the file is loaded successfully; otherwise, a loading failure
-   * message in JSON format.
+   *     message in JSON format.
    * @throws Exception if an error occurs during file loading or response construction.
    */
   @Override
@@ -61,8 +93,52 @@ public class LoadHandler implements Route {
       responseMap.put("missing_argument", "filepath");
       return adapter.toJson(responseMap);
     }
+    String bloom = request.queryParams("bloom");
+    String fpp = request.queryParams("fpp");
+    BlockFilters.Settings blocks = null;
+    if (bloom != null) {
+      int blockRows;
+      double rate;
+      try {
+        blockRows = Integer.parseInt(bloom.strip());
+      } catch (NumberFormatException e) {
+        blockRows = 0;
+      }
+      if (blockRows < 1) {
+        return this.invalidArgument(adapter, responseMap, "bloom", bloom);
+      }
+      try {
+        rate = fpp == null ? DEFAULT_FPP : Double.parseDouble(fpp.strip());
+      } catch (NumberFormatException e) {
+        rate = Double.NaN;
+      }
+      if (!(rate > 0 && rate < 1)) {
+        return this.invalidArgument(adapter, responseMap, "fpp", fpp);
+      }
+      blocks = new BlockFilters.Settings(blockRows, rate);
+    }
+    long start = System.nanoTime();
     try {
-      FileReader freader = new FileReader(path);
+      // a file that was loaded before and did not change since is read back from its snapshot
+      SnapshotCache.Key key = this.cache.keyOf(Path.of(path));
+      ColumnarTable cached = this.cache.find(key);
+      if (cached != null) {
+        List<Integer> trigrams = this.trigramColumns(request.queryParams("trigram"), cached);
+        if (trigrams == null) {
+          return this.invalidArgument(
+              adapter, responseMap, "trigram", request.queryParams("trigram"));
+        }
+        this.data.setTable(cached, trigrams, blocks);
+        responseMap.put("result", "success");
+        responseMap.put("loaded", path);
+        this.putReport(responseMap, cached.size(), 0, List.of());
+        this.putColumns(responseMap, cached);
+        responseMap.put("trigram_columns", trigrams);
+        this.putBlocks(responseMap);
+        this.putTiming(responseMap, true, start);
+        return adapter.toJson(responseMap);
+      }
+
       //      RowHandler creator = new RowHandler();
       class Creator implements CreatorFromRow<List<String>> {
 
@@ -72,20 +148,179 @@ public class LoadHandler implements Route {
         }
       }
 
-      MyParser<List<String>> parser = new MyParser<>(freader, new Creator());
-      parser.toParse();
-      this.data.setDataset(parser.getDataset());
+      // the file is memory-mapped, so rows and fields are found without decoding the whole file
+      MyParser<List<String>> parser = new MyParser<>(Path.of(path), new Creator());
+      // Creator keeps no state, so the file can be parsed in parallel chunks
+      parser.toParse(ForkJoinPool.commonPool());
+      ColumnarTable table = new ColumnarTable(parser.getDataset());
+      this.cache.store(key, table);
+      List<Integer> trigrams = this.trigramColumns(request.queryParams("trigram"), table);
+      if (trigrams == null) {
+        return this.invalidArgument(
+            adapter, responseMap, "trigram", request.queryParams("trigram"));
+      }
+      this.data.setTable(table, trigrams, blocks);
       responseMap.put("result", "success");
       responseMap.put("loaded", path);
+      ParseReport report = parser.getReport();
+      this.putReport(
+          responseMap, report.getRowsRead(), report.getRowsRejected(), report.getRejects());
+      this.putColumns(responseMap, table);
+      responseMap.put("trigram_columns", trigrams);
+      this.putBlocks(responseMap);
+      this.putTiming(responseMap, false, start);
       return adapter.toJson(responseMap);
-    } catch (IOException e) {
+    } catch (IOException | UncheckedIOException | InvalidPathException e) {
       return new LoadingFailureResponse("error_datasource: " + path).serialize();
     }
   }
 
   /**
-   * A record representing a loading failure response. It can be serialized to JSON format.
+   * Helper that reads the optional "trigram" parameter, which picks the columns to build trigram
+   * indexes for, to speed up ind: and nam: searches. It is a comma-separated list of column indices
+   * or names from the first row, or "all" for every column.
+   *
+   * @param param the value of the parameter, or null if it was not given
+   * @param table the table that was loaded
+   * @return the indices of the columns, or null if one of them is not a column of the table
+   */
+  private List<Integer> trigramColumns(String param, ColumnarTable table) {
+    List<Integer> columns = new ArrayList<>();
+    if (param == null || param.isBlank()) {
+      return columns;
+    }
+    if (param.strip().equalsIgnoreCase("all")) {
+      for (int c = 0; c < table.columnCount(); c++) {
+        columns.add(c);
+      }
+      return columns;
+    }
+    List<String> names = table.isEmpty() ? List.of() : table.get(0);
+    for (String name : param.split(",")) {
+      int column;
+      try {
+        column = Integer.parseInt(name.strip());
+      } catch (NumberFormatException e) {
+        column = names.indexOf(name.strip());
+      }
+      if (column < 0 || column >= table.columnCount()) {
+        return null;
+      }
+      if (!columns.contains(column)) {
+        columns.add(column);
+      }
+    }
+    return columns;
+  }
+
+  /**
+   * Helper that builds the error response for a parameter that can not be used, like a "trigram"
+   * parameter that names a column the file does not have. The dataset that was loaded before stays
+   * loaded.
+   *
+   * @param adapter the adapter to serialize the response with
+   * @param responseMap the response to fill in
+   * @param param the name of the parameter
+   * @param value the value of the parameter
+   * @return the error response in JSON format
+   */
+  private String invalidArgument(
+      JsonAdapter<Map<String, Object>> adapter,
+      Map<String, Object> responseMap,
+      String param,
+      String value) {
+    responseMap.put("type", "error");
+    responseMap.put("error_type", "invalid_argument");
+    responseMap.put("invalid_argument", param);
+    responseMap.put(param, value);
+    return adapter.toJson(responseMap);
+  }
+
+  /**
+   * Helper that adds the parse report to the response: how many rows were read, accepted and
+   * rejected, and the first rows that were rejected. Creator never rejects a row, so a table read
+   * back from a snapshot had every one of its rows accepted.
+   *
+   * @param responseMap the response to add the report to
+   * @param read the number of rows that were read
+   * @param rejected the number of rows that were rejected
+   * @param logged the first rows that were rejected
+   */
+  private void putReport(
+      Map<String, Object> responseMap, int read, int rejected, List<ParseReport.Reject> logged) {
+    responseMap.put("rows_read", read);
+    responseMap.put("rows_accepted", read - rejected);
+    responseMap.put("rows_rejected", rejected);
+    List<Map<String, Object>> rejects = new ArrayList<>();
+    for (ParseReport.Reject reject : logged) {
+      Map<String, Object> rejectMap = new HashMap<>();
+      rejectMap.put("index", reject.index());
+      rejectMap.put("reason", reject.reason());
+      rejectMap.put("row", reject.row());
+      rejects.add(rejectMap);
+    }
+    responseMap.put("rejects", rejects);
+  }
+
+  /**
+   * Helper that adds the type of every column to the response, and how much memory storing the
+   * columns saved compared to keeping every cell as its own string.
+   *
+   * @param responseMap the response to add the columns to
+   * @param table the table that was loaded
    */
+  private void putColumns(Map<String, Object> responseMap, ColumnarTable table) {
+    List<String> schema = new ArrayList<>();
+    List<Map<String, Object>> memory = new ArrayList<>();
+    long saved = 0;
+    for (ColumnMemory column : table.memory()) {
+      schema.add(column.type().label());
+      Map<String, Object> columnMap = new HashMap<>();
+      columnMap.put("column", memory.size());
+      columnMap.put("encoding", column.encoding());
+      columnMap.put("bytes", column.bytes());
+      columnMap.put("string_bytes", column.stringBytes());
+      columnMap.put("saved_bytes", column.savedBytes());
+      memory.add(columnMap);
+      saved += column.savedBytes();
+    }
+    responseMap.put("schema", schema);
+    responseMap.put("memory", memory);
+    responseMap.put("saved_bytes", saved);
+  }
+
+  /**
+   * Helper that adds the block filters that were built to the response, if any were: their
+   * settings, how many there are, and the room they take.
+   *
+   * @param responseMap the response to add the filters to
+   */
+  private void putBlocks(Map<String, Object> responseMap) {
+    BlockFilters blocks = this.data.getLoaded().indexes().blocks();
+    if (blocks == null) {
+      return;
+    }
+    Map<String, Object> blocksMap = new HashMap<>();
+    blocksMap.put("block_rows", blocks.settings().blockRows());
+    blocksMap.put("fpp", blocks.settings().falsePositiveRate());
+    blocksMap.put("blocks", blocks.blocks());
+    blocksMap.put("bytes", blocks.bytes());
+    responseMap.put("bloom", blocksMap);
+  }
+
+  /**
+   * Helper that adds to the response whether the load was a cache hit, and how long it took.
+   *
+   * @param responseMap the response to add the timing to
+   * @param hit whether the table was read back from a snapshot
+   * @param start when the load started, from System.nanoTime
+   */
+  private void putTiming(Map<String, Object> responseMap, boolean hit, long start) {
+    responseMap.put("cache_hit", hit);
+    responseMap.put("load_ms", (System.nanoTime() - start) / 1e6);
+  }
+
+  /** A record representing a loading failure response. It can be serialized to JSON format. */
   public record LoadingFailureResponse(String response_type) {
 
     /**
@@ -0,0 +1,83 @@
+package edu.brown.cs.student.main.handlers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * SearchCursor is where the next page of a search goes on from. It is handed to clients as an
+ * opaque string, and it remembers which load and which search it belongs to, so a cursor that is
+ * used after another file was loaded, or with a different search, is turned down instead of giving
+ * back rows from the wrong place.
+ *
+ * @param generation the generation of the loaded table the search ran on
+ * @param search a digest of the parameters of the search (see digest)
+ * @param row the index of the row the next page goes on from
+ */
+record SearchCursor(long generation, long search, int row) {
+
+  /**
+   * Digests the parameters of a search into the number a cursor keeps. It is the first 64 bits of
+   * the SHA-256 digest of the parameters, so a cursor from one search is not taken by another the
+   * way it could be with a 32-bit hash. Every parameter is written with its length, and a missing
+   * one with -1, so no two lists of parameters are written the same way.
+   *
+   * @param params the parameters of the search, with null for the ones that were not given
+   * @return the digest of the parameters
+   */
+  static long digest(List<String> params) {
+    try {
+      MessageDigest sha = MessageDigest.getInstance("SHA-256");
+      for (String param : params) {
+        if (param == null) {
+          sha.update(ByteBuffer.allocate(4).putInt(-1).array());
+        } else {
+          byte[] bytes = param.getBytes(StandardCharsets.UTF_8);
+          sha.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+          sha.update(bytes);
+        }
+      }
+      return ByteBuffer.wrap(sha.digest()).getLong();
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform has to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Turns the cursor into the string that is handed to the client.
+   *
+   * @return the cursor as a string that is safe to put in a URL
+   */
+  String encode() {
+    String text = this.generation + ":" + this.search + ":" + this.row;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Reads a cursor back from the string a client sent.
+   *
+   * @param encoded the cursor as a string
+   * @return the cursor, or null if the string is not a cursor
+   */
+  static SearchCursor decode(String encoded) {
+    try {
+      String text = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+      String[] parts = text.split(":");
+      if (parts.length != 3) {
+        return null;
+      }
+      SearchCursor cursor =
+          new SearchCursor(
+              Long.parseLong(parts[0]), Long.parseLong(parts[1]), Integer.parseInt(parts[2]));
+      return cursor.row() < 0 ? null : cursor;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+}
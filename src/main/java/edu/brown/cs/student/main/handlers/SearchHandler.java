@@ -3,12 +3,20 @@ package edu.brown.cs.student.main.handlers;
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
 import com.squareup.moshi.Types;
-import edu.brown.cs.student.main.searcher.MySearcher;
+import edu.brown.cs.student.main.searcher.Matches;
+import edu.brown.cs.student.main.searcher.Matches.Page;
+import edu.brown.cs.student.main.searcher.NumberRange;
+import edu.brown.cs.student.main.searcher.SortOrder;
 import edu.brown.cs.student.main.server.Dataset;
+import edu.brown.cs.student.main.server.LoadedTable;
+import edu.brown.cs.student.main.server.ResultCache;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import spark.Request;
 import spark.Response;
 import spark.Route;
@@ -16,13 +24,51 @@ import spark.Route;
 /**
  * The SearchHandler class is responsible for handling GET requests for searching the loaded CSV
  * data. It takes in Dataset as a parameter along with query paramaters for the search. It uses the
- * provided query parameters to perform a search operation (using the MySearcher class) on the
- * dataset, constructs a JSON response containing the results, and handles errors by returning the
- * appropriate messages in JSON. Implements the `Route` Spark interface in order to create a mapping
- * between the HTTP request path.
+ * provided query parameters to perform a search operation (using the MySearcher class that is
+ * shared by every request for the loaded dataset) on the dataset, constructs a JSON response
+ * containing the results, and handles errors by returning the appropriate messages in JSON.
+ * Implements the `Route` Spark interface in order to create a mapping between the HTTP request
+ * path.
+ *
+ * <p>Instead of search and narrow, a request can give a query that joins searches of several
+ * columns with AND, OR and NOT, like query=nam:Race=Asian AND ind:1~2020.
+ *
+ * <p>Results can be asked for a page at a time with limit and offset. Every page that might not be
+ * the last comes with a next_cursor, which is sent back as cursor to get the page after it. The
+ * offset only skips rows before the first page, so a request with a cursor ignores it. The search
+ * stops as soon as a page is full, and the next page goes on from where it stopped, so a request
+ * never holds more than a page of rows no matter how many rows match.
+ *
+ * <p>Instead of search, a request can give gt, lt (either or both) or between=low,high to find the
+ * rows whose cell in the narrow column is a number in that range. Numeric columns answer these from
+ * a range index that is built when the file is loaded.
+ *
+ * <p>With fold=true, searches and queries ignore case and accents, so "providence" finds
+ * "Providence". The folded form of a column is built the first time it is searched with fold, and
+ * only the search word is folded for each later request.
+ *
+ * <p>With fuzzy=k, a search finds cells within an edit distance of k of the search word, so
+ * misspelled words still find what they were meant to. The distinct values of a column are put in a
+ * BK-tree the first time the column is searched with fuzzy, and kept until the next load, so a
+ * search does not work out the distance to every cell. fuzzy can not be given with fold, a query or
+ * a range, since those search in other ways.
+ *
+ * <p>With mode=count, only the number of matching rows is sent back and no rows are built. With
+ * mode=topk and k, the first k matching rows are sent back, and the search stops once it has them.
+ *
+ * <p>With sort=column or sort=column:desc, the matching rows come back in the order of their cells
+ * in that column, the same way viewcsv sorts them, and pages, cursors and topk follow that order.
+ * The matches are put in order by their place in the cached order of the whole column (see
+ * SortOrder), so a sorted search only sorts ints and compares no cells.
+ *
+ * <p>The responses of searches that ran are kept in the result cache of the Dataset, so a request
+ * that is sent again for the same loaded table is answered without searching or serializing again.
  */
 public class SearchHandler implements Route {
 
+  /** How many rows a page has when a page is asked for without a limit. */
+  private static final int DEFAULT_LIMIT = 100;
+
   private final Dataset data;
 
   /**
@@ -37,11 +83,11 @@ public class SearchHandler implements Route {
 
   /**
    * Method that handles an HTTP request to perform a search within the dataset. Extracts search
-   * parameters (search, narrow, header) from the HTTP request. Creates a MySearcher to perform
-   * search operation and constructs a success response with the search results or an error
-   * response.
+   * parameters (search, narrow, header) from the HTTP request. Uses the MySearcher of the loaded
+   * dataset to perform search operation and constructs a success response with the search results
+   * or an error response.
    *
-   * @param request  the HTTP request containing search parameters.
+   * @param request the HTTP request containing search parameters.
    * @param response the HTTP response to be populated with search results or error messages.
    * @return an HTTP response containing search results or error messages in JSON format.
    * @throws Exception if an error occurs during the search or response construction.
@@ -55,7 +101,8 @@ public class SearchHandler implements Route {
     Map<String, Object> responseMap = new HashMap<>();
     try {
       // check if we loaded anything
-      List<List<String>> currentData = this.data.getDataset();
+      LoadedTable loaded = this.data.getLoaded();
+      List<List<String>> currentData = loaded.table();
       if (currentData.isEmpty()) {
         responseMap.put("type", "error");
         responseMap.put("error_type", "No files are loaded");
@@ -63,8 +110,13 @@ public class SearchHandler implements Route {
       }
 
       String search = request.queryParams("search");
-      // check search parameter - required
-      if (search == null) {
+      String query = request.queryParams("query");
+      String gt = request.queryParams("gt");
+      String lt = request.queryParams("lt");
+      String between = request.queryParams("between");
+      boolean ranged = gt != null || lt != null || between != null;
+      // check search parameter - required, unless there is a query or a range
+      if (search == null && query == null && !ranged) {
         responseMap.put("type", "error");
         responseMap.put("error_type", "missing_parameter");
         responseMap.put("error_arg", "search");
@@ -84,24 +136,210 @@ public class SearchHandler implements Route {
         narrow = "NULL";
       }
       boolean header = headerS.equalsIgnoreCase("true");
-      // initialize the searcher and look for the words
-      MySearcher searcher = new MySearcher(currentData, header, narrow);
-      searcher.findRows(search);
-      List<List<String>> found = searcher.getFound();
-      // check the found - throw an exception in searcher?
-      if (found.isEmpty()) {
+      // sort is not required, and puts the rows in the order of a column
+      String sortS = request.queryParams("sort");
+      SortParam sort = sortS == null ? null : SortParam.parse(sortS, loaded.table(), header);
+      if (sortS != null && sort == null) {
+        responseMap = this.invalidArgumentMap("sort", sortS);
+        responseMap.put("details", "The table has no such column");
+        return adapter.toJson(responseMap);
+      }
+      // fold is not required, and makes the search ignore case and accents
+      boolean fold = "true".equalsIgnoreCase(request.queryParams("fold"));
+      // fuzzy is not required, and finds cells within that edit distance of the search word
+      String fuzzyS = request.queryParams("fuzzy");
+      int fuzzy = fuzzyS == null ? -1 : parseCount(fuzzyS, 0);
+      if (fuzzyS != null && fuzzy < 0) {
+        return this.invalidArgument(adapter, "fuzzy", fuzzyS);
+      }
+      if (fuzzy >= 0 && (fold || query != null || ranged)) {
+        responseMap = this.invalidArgumentMap("fuzzy", fuzzyS);
+        responseMap.put("details", "fuzzy can not be used with fold, query, gt, lt or between");
+        return adapter.toJson(responseMap);
+      }
+      // limit, offset and cursor are not required, and any of them asks for a page of rows
+      String limitS = request.queryParams("limit");
+      String offsetS = request.queryParams("offset");
+      String cursorS = request.queryParams("cursor");
+      int limit = limitS == null ? DEFAULT_LIMIT : parseCount(limitS, 1);
+      if (limit < 0) {
+        return this.invalidArgument(adapter, "limit", limitS);
+      }
+      int offset = offsetS == null ? 0 : parseCount(offsetS, 0);
+      if (offset < 0) {
+        return this.invalidArgument(adapter, "offset", offsetS);
+      }
+      // mode is not required: rows (the default), count, or topk with k
+      String mode = request.queryParams("mode");
+      mode = mode == null ? "rows" : mode.toLowerCase();
+      if (!mode.equals("rows") && !mode.equals("count") && !mode.equals("topk")) {
+        return this.invalidArgument(adapter, "mode", mode);
+      }
+      String kS = request.queryParams("k");
+      int k = 0;
+      if (mode.equals("topk")) {
+        if (kS == null) {
+          responseMap.put("type", "error");
+          responseMap.put("error_type", "missing_parameter");
+          responseMap.put("error_arg", "k");
+          return adapter.toJson(responseMap);
+        }
+        k = parseCount(kS, 1);
+        if (k < 0) {
+          return this.invalidArgument(adapter, "k", kS);
+        }
+      }
+      NumberRange range = null;
+      if (ranged && query == null) {
+        range = parseRange(gt, lt, between);
+        if (range == null) {
+          responseMap =
+              this.invalidArgumentMap("range", between != null ? between : gt != null ? gt : lt);
+          responseMap.put("details", "gt and lt take a number, and between two numbers on its own");
+          return adapter.toJson(responseMap);
+        }
+      }
+      List<String> searchParams =
+          Arrays.asList(
+              String.valueOf(header),
+              String.valueOf(fold),
+              String.valueOf(fuzzy),
+              search,
+              narrow,
+              query,
+              gt,
+              lt,
+              between,
+              sort == null ? null : String.valueOf(sort));
+      long searchKey = SearchCursor.digest(searchParams);
+      SearchCursor cursor = null;
+      if (cursorS != null) {
+        cursor = SearchCursor.decode(cursorS);
+        if (cursor == null
+            || cursor.generation() != loaded.generation()
+            || cursor.search() != searchKey) {
+          return this.invalidArgument(adapter, "cursor", cursorS);
+        }
+      }
+      // the same request on the same table always gets the same response
+      List<String> requestParams = new ArrayList<>(searchParams);
+      requestParams.addAll(
+          Arrays.asList(
+              mode,
+              String.valueOf(k),
+              limitS == null ? null : String.valueOf(limit),
+              offsetS == null ? null : String.valueOf(offset),
+              cursorS));
+      ResultCache.Key cacheKey = new ResultCache.Key(loaded.generation(), requestParams);
+      String cached = this.data.getResults().get(cacheKey);
+      if (cached != null) {
+        return cached;
+      }
+      // the searcher of the loaded table is shared by every request, and keeps no state
+      Matches matches;
+      if (query != null) {
+        try {
+          matches = loaded.searcher().queryMatches(query, header, fold);
+        } catch (IllegalArgumentException e) {
+          responseMap = this.invalidArgumentMap("query", query);
+          responseMap.put("details", e.getMessage());
+          return adapter.toJson(responseMap);
+        }
+      } else if (range != null) {
+        try {
+          matches = loaded.searcher().rangeMatches(range, header, narrow);
+        } catch (IllegalArgumentException e) {
+          responseMap = this.invalidArgumentMap("narrow", narrow);
+          responseMap.put("details", e.getMessage());
+          return adapter.toJson(responseMap);
+        }
+      } else if (fuzzy >= 0) {
+        matches = loaded.searcher().fuzzyMatches(search, fuzzy, header, narrow);
+      } else if (fold) {
+        matches = loaded.searcher().foldedMatches(search, header, narrow);
+      } else {
+        matches = loaded.searcher().matches(search, header, narrow);
+      }
+      if (mode.equals("count")) {
+        responseMap.put("result", "success");
+        responseMap.put("mode", "count");
+        responseMap.put("count", matches.count());
+        return this.remember(cacheKey, adapter.toJson(responseMap));
+      }
+      boolean paged = limitS != null || offsetS != null || cursor != null;
+      // the cursor already went past the offset, so it is only skipped before the first page
+      int skip = cursor == null ? offset : 0;
+      List<List<String>> found;
+      Page page = null;
+      if (sort != null) {
+        SortOrder order = loaded.indexes().order(sort.column());
+        int[] sorted = order.sort(matches.indices(), sort.descending());
+        int start = 0;
+        int end = sorted.length;
+        if (mode.equals("topk")) {
+          end = Math.min(k, sorted.length);
+        } else if (paged) {
+          // the cursor of a sorted search is a place in the sorted rows instead of a row
+          start = Math.min(sorted.length, cursor == null ? skip : cursor.row());
+          end = (int) Math.min(sorted.length, (long) start + limit);
+        }
+        found = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+          found.add(currentData.get(sorted[i]));
+        }
+        if (paged && !mode.equals("topk")) {
+          page = new Page(found, end < sorted.length ? end : -1);
+        }
+      } else if (mode.equals("topk")) {
+        found = matches.first(k);
+      } else if (paged) {
+        page = matches.page(cursor == null ? 0 : cursor.row(), skip, limit);
+        found = page.rows();
+      } else {
+        found = matches.all();
+      }
+      // a later page can be empty, but the first one being empty means nothing matched
+      if (found.isEmpty() && cursor == null && offset == 0) {
         responseMap.put("type", "error");
         responseMap.put("error_type", "no match found");
-        responseMap.put("search_word", search);
-        if (!narrow.equals("NULL")) {
+        if (query != null) {
+          responseMap.put("query", query);
+        } else if (range != null) {
           responseMap.put("specifier", narrow);
+          Map<String, String> bounds = new HashMap<>();
+          bounds.put("gt", gt);
+          bounds.put("lt", lt);
+          bounds.put("between", between);
+          bounds.values().removeIf(Objects::isNull);
+          responseMap.put("range", bounds);
+        } else {
+          responseMap.put("search_word", search);
+          if (fuzzy >= 0) {
+            responseMap.put("fuzzy", fuzzy);
+          }
+          if (!narrow.equals("NULL")) {
+            responseMap.put("specifier", narrow);
+          }
         }
-        return adapter.toJson(responseMap);
+        return this.remember(cacheKey, adapter.toJson(responseMap));
       }
 
       responseMap.put("result", "success");
       responseMap.put("view_data", found);
-      return adapter.toJson(responseMap);
+      if (mode.equals("topk")) {
+        responseMap.put("mode", "topk");
+        responseMap.put("k", k);
+      }
+      if (page != null) {
+        responseMap.put("limit", limit);
+        responseMap.put("offset", offset);
+        if (page.next() != -1) {
+          responseMap.put(
+              "next_cursor",
+              new SearchCursor(loaded.generation(), searchKey, page.next()).encode());
+        }
+      }
+      return this.remember(cacheKey, adapter.toJson(responseMap));
     } catch (Exception e) {
       System.out.println(e);
       responseMap.put("type", "error");
@@ -109,4 +347,94 @@ public class SearchHandler implements Route {
       return adapter.toJson(responseMap);
     }
   }
+
+  /**
+   * Keeps a response in the cache of search responses, so the same request gets it back.
+   *
+   * @param key the generation of the table and the parameters of the request
+   * @param response the response as JSON
+   * @return the response
+   */
+  private String remember(ResultCache.Key key, String response) {
+    this.data.getResults().put(key, response);
+    return response;
+  }
+
+  /**
+   * Reads a count parameter.
+   *
+   * @param value the parameter as it was sent
+   * @param min the smallest count that is allowed
+   * @return the count, or -1 if it is not a whole number of at least min
+   */
+  private static int parseCount(String value, int min) {
+    try {
+      int count = Integer.parseInt(value.strip());
+      return count < min ? -1 : count;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Reads the range of a range search from the gt, lt and between parameters. gt and lt leave out
+   * their bound and can be given together, and between keeps both of its bounds and is given on its
+   * own, as two numbers split by a comma.
+   *
+   * @param gt the number the cells have to be above, or null
+   * @param lt the number the cells have to be below, or null
+   * @param between the two numbers the cells have to be between, or null
+   * @return the range, or null if the parameters are not numbers or do not go together
+   */
+  private static NumberRange parseRange(String gt, String lt, String between) {
+    try {
+      if (between != null) {
+        String[] bounds = between.split(",");
+        if (gt != null || lt != null || bounds.length != 2) {
+          return null;
+        }
+        return NumberRange.between(
+            Double.parseDouble(bounds[0].strip()), Double.parseDouble(bounds[1].strip()));
+      }
+      NumberRange range = NumberRange.between(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+      if (gt != null) {
+        range = range.and(NumberRange.greaterThan(Double.parseDouble(gt.strip())));
+      }
+      if (lt != null) {
+        range = range.and(NumberRange.lessThan(Double.parseDouble(lt.strip())));
+      }
+      return range;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Builds the error response for a parameter that can not be used.
+   *
+   * @param param the name of the parameter
+   * @param value the value it was sent with
+   * @return the response, which more details can be added to
+   */
+  private Map<String, Object> invalidArgumentMap(String param, String value) {
+    Map<String, Object> responseMap = new HashMap<>();
+    responseMap.put("type", "error");
+    responseMap.put("error_type", "invalid_argument");
+    responseMap.put("invalid_argument", param);
+    responseMap.put(param, value);
+    return responseMap;
+  }
+
+  /**
+   * Builds the error response for a parameter that can not be used, as JSON.
+   *
+   * @param adapter the adapter the response is written with
+   * @param param the name of the parameter
+   * @param value the value it was sent with
+   * @return the response as JSON
+   */
+  private String invalidArgument(
+      JsonAdapter<Map<String, Object>> adapter, String param, String value) {
+    return adapter.toJson(this.invalidArgumentMap(param, value));
+  }
 }
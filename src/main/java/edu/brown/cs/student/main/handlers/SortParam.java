@@ -0,0 +1,37 @@
+package edu.brown.cs.student.main.handlers;
+
+import edu.brown.cs.student.main.columns.ColumnarTable;
+
+/**
+ * SortParam is the "sort" parameter of viewcsv and searchcsv, which is a column by its index or,
+ * with a header, by its name, followed by ":desc" for the largest cells first or ":asc" for the
+ * smallest first, which is also what it is without either.
+ *
+ * @param column the index of the column to sort by
+ * @param descending true to put the largest cells first
+ */
+record SortParam(int column, boolean descending) {
+
+  /**
+   * Reads a sort parameter.
+   *
+   * @param param the parameter as it was sent
+   * @param table the loaded table
+   * @param header whether the first row holds the names of the columns
+   * @return the column and direction, or null if the table has no such column
+   */
+  static SortParam parse(String param, ColumnarTable table, boolean header) {
+    String name = param;
+    boolean descending = false;
+    int colon = param.lastIndexOf(':');
+    if (colon != -1) {
+      String direction = param.substring(colon + 1).strip().toLowerCase();
+      if (direction.equals("desc") || direction.equals("asc")) {
+        name = param.substring(0, colon);
+        descending = direction.equals("desc");
+      }
+    }
+    int column = table.columnOf(name, header);
+    return column == -1 ? null : new SortParam(column, descending);
+  }
+}
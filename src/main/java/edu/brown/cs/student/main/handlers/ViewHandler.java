@@ -4,7 +4,9 @@ import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
 import com.squareup.moshi.Types;
 import edu.brown.cs.student.main.server.Dataset;
+import edu.brown.cs.student.main.server.LoadedTable;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -16,6 +18,12 @@ import spark.Route;
  * The ViewHandler class is responsible for handling GET requests for viewing the contents of a
  * loaded CSV. It takes in a Dataset and serializes the data into a JSON response or returns an
  * error response if no files are loaded.
+ *
+ * <p>With sort=column or sort=column:desc, the rows come back in the order of their cells in that
+ * column, which is given by its index or, with header=true, by its name. Numbers are compared as
+ * numbers, and empty cells go last either way. With header=true the first row stays on top. The
+ * order of a column is worked out the first time it is sorted by and kept until the next load, so
+ * later requests only read the rows through it.
  */
 public class ViewHandler implements Route {
 
@@ -34,7 +42,7 @@ public class ViewHandler implements Route {
    * Method that handles an HTTP request to retrieve and view the dataset's contents. Constructs a
    * success response with the contents or an error response in JSON format.
    *
-   * @param request  the HTTP request.
+   * @param request the HTTP request.
    * @param response the HTTP response to be populated with dataset contents or error messages.
    * @return an HTTP response containing the dataset's contents or error messages in JSON format.
    * @throws Exception if an error occurs during dataset retrieval or response construction.
@@ -54,6 +62,30 @@ public class ViewHandler implements Route {
         responseMap.put("error_type", "No files are loaded");
         return adapter.toJson(responseMap);
       }
+      String sortS = request.queryParams("sort");
+      if (sortS != null) {
+        LoadedTable loaded = this.data.getLoaded();
+        boolean header = "true".equalsIgnoreCase(request.queryParams("header"));
+        SortParam sort = SortParam.parse(sortS, loaded.table(), header);
+        if (sort == null) {
+          responseMap.put("type", "error");
+          responseMap.put("error_type", "invalid_argument");
+          responseMap.put("invalid_argument", "sort");
+          responseMap.put("sort", sortS);
+          responseMap.put("details", "The table has no such column");
+          return adapter.toJson(responseMap);
+        }
+        List<List<String>> sorted = new ArrayList<>();
+        if (header) {
+          sorted.add(loaded.table().get(0));
+        }
+        sorted.addAll(
+            loaded
+                .indexes()
+                .order(sort.column())
+                .view(loaded.table(), header ? 1 : 0, sort.descending()));
+        currentData = sorted;
+      }
       responseMap.put("result", "success");
       responseMap.put("viewData", currentData);
       return adapter.toJson(responseMap);
@@ -0,0 +1,58 @@
+package edu.brown.cs.student.main.parser;
+
+import edu.brown.cs.student.main.rowhandler.RowBlock;
+import edu.brown.cs.student.main.rowhandler.RowView;
+import java.nio.ByteBuffer;
+
+/**
+ * ByteBlock is the block that the memory-mapped source fills with rows. It only stores where each
+ * row starts and ends in the mapped buffer, and rows are tokenized once a creator asks for them.
+ */
+class ByteBlock implements RowBlock {
+
+  private final int[] bounds;
+  private final ByteRow row;
+  private int size;
+
+  /**
+   * The constructor for an empty block.
+   *
+   * @param buffer the buffer that holds the rows
+   * @param capacity the most rows the block can hold
+   */
+  ByteBlock(ByteBuffer buffer, int capacity) {
+    this.bounds = new int[2 * capacity];
+    this.row = new ByteRow(buffer);
+    this.size = 0;
+  }
+
+  /**
+   * Adds a row to the block.
+   *
+   * @param from position of the first byte of the row
+   * @param to position just past the last byte of the row, without its line terminator
+   * @return true if the block is full now
+   */
+  boolean add(int from, int to) {
+    this.bounds[2 * this.size] = from;
+    this.bounds[2 * this.size + 1] = to;
+    this.size++;
+    return 2 * this.size == this.bounds.length;
+  }
+
+  /** Empties the block, so it can be filled again. */
+  void clear() {
+    this.size = 0;
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public RowView row(int index) {
+    this.row.set(this.bounds[2 * index], this.bounds[2 * index + 1]);
+    return this.row;
+  }
+}
@@ -0,0 +1,99 @@
+package edu.brown.cs.student.main.parser;
+
+import edu.brown.cs.student.main.rowhandler.RowView;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ByteRow is the view that the memory-mapped source hands to creators. The fields stay as bytes in
+ * the mapped buffer, and are only decoded (as UTF-8) when a creator asks for them.
+ */
+class ByteRow implements RowView {
+
+  private final ByteBuffer buffer;
+  private final CSVTokenizer tokenizer;
+  private byte[] scratch;
+
+  /**
+   * The constructor for a view over a mapped buffer.
+   *
+   * @param buffer the buffer that holds the rows
+   */
+  ByteRow(ByteBuffer buffer) {
+    this.buffer = buffer;
+    this.tokenizer = new CSVTokenizer();
+    this.scratch = new byte[256];
+  }
+
+  /**
+   * Points the view at a new row of the buffer.
+   *
+   * @param from position of the first byte of the row
+   * @param to position just past the last byte of the row, without its line terminator
+   */
+  void set(int from, int to) {
+    this.tokenizer.tokenize(this.buffer, from, to);
+  }
+
+  @Override
+  public int size() {
+    return this.tokenizer.size();
+  }
+
+  @Override
+  public boolean isEmpty(int index) {
+    return this.tokenizer.start(index) == this.tokenizer.end(index);
+  }
+
+  @Override
+  public String get(int index) {
+    return this.decode(this.tokenizer.start(index), this.tokenizer.end(index));
+  }
+
+  /**
+   * Strips ASCII white space on the bytes before decoding, which covers everything our files have.
+   * The decoded string still goes through String.strip for any other white space, which doesn't
+   * copy it again when there is nothing left to strip.
+   *
+   * @param index index of the field
+   * @return the stripped field as a new string
+   */
+  @Override
+  public String strip(int index) {
+    int start = this.tokenizer.start(index);
+    int end = this.tokenizer.end(index);
+    while (start < end && isWhitespace(this.buffer.get(start))) {
+      start++;
+    }
+    while (end > start && isWhitespace(this.buffer.get(end - 1))) {
+      end--;
+    }
+    return this.decode(start, end).strip();
+  }
+
+  /**
+   * Decodes a range of the buffer into a string.
+   *
+   * @param start position of the first byte
+   * @param end position just past the last byte
+   * @return the decoded string
+   */
+  private String decode(int start, int end) {
+    int length = end - start;
+    if (length > this.scratch.length) {
+      this.scratch = new byte[Math.max(length, 2 * this.scratch.length)];
+    }
+    this.buffer.get(start, this.scratch, 0, length);
+    return new String(this.scratch, 0, length, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Checks a byte against the ASCII characters that Character.isWhitespace accepts.
+   *
+   * @param b the byte to check
+   * @return true if the byte is ASCII white space
+   */
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1C && b <= 0x1F);
+  }
+}
@@ -0,0 +1,178 @@
+package edu.brown.cs.student.main.parser;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * CSVTokenizer splits a single CSV line into its fields. It replaces the lookahead regex that
+ * MyParser used to split rows with, which rescanned the rest of the line for every comma and made
+ * wide rows with many quoted fields quadratic to split.
+ *
+ * <p>The tokenizer is a two-state machine (inside or outside of quotes) that walks the line from
+ * left to right. Quote characters toggle the state, so an escaped quote ("") toggles it twice and
+ * leaves it unchanged, and commas only separate fields while we are outside of quotes. The output
+ * is field-for-field identical to the old regex: quotes are kept in the fields, trailing empty
+ * fields are dropped, and a line without any separators comes back as a single field.
+ *
+ * <p>The regex split a comma whenever the rest of the line held an even number of quotes. For
+ * malformed lines with an odd number of quotes that is not the same as counting from the left, so
+ * the quotes of the line are counted once up front and the machine starts inside of quotes when
+ * that count is odd. For well-formed lines this changes nothing.
+ *
+ * <p>Lines can also be tokenized straight from the bytes of a file, which is how MappedRowSource
+ * finds fields without decoding the line first. Quotes and commas are plain ASCII bytes that never
+ * show up inside a multi-byte UTF-8 character, so the byte and char versions always agree.
+ *
+ * <p>A tokenizer keeps the field boundaries of the last line it split, so one instance should be
+ * reused for every line of a file and not shared between threads.
+ */
+public class CSVTokenizer {
+
+  private int[] bounds;
+  private int count;
+
+  /** The constructor sets up room for the field boundaries, which grows as wider rows come in. */
+  public CSVTokenizer() {
+    this.bounds = new int[32];
+    this.count = 0;
+  }
+
+  /**
+   * Splits the line into its fields.
+   *
+   * @param line a single line of a CSV file, without its line terminator
+   * @return a list of the fields of the line, in order
+   */
+  public List<String> split(String line) {
+    this.tokenize(line);
+    List<String> fields = new ArrayList<>(this.count);
+    for (int i = 0; i < this.count; i++) {
+      fields.add(line.substring(this.start(i), this.end(i)));
+    }
+    return fields;
+  }
+
+  /**
+   * Finds the field boundaries of the line without creating any strings. The boundaries can be read
+   * back with start and end until the next line is tokenized.
+   *
+   * @param line a single line of a CSV file, without its line terminator
+   * @return the number of fields in the line
+   */
+  public int tokenize(CharSequence line) {
+    int length = line.length();
+    int quotes = 0;
+    for (int i = 0; i < length; i++) {
+      if (line.charAt(i) == '"') {
+        quotes++;
+      }
+    }
+    boolean quoted = (quotes & 1) == 1;
+    this.count = 0;
+    int fieldStart = 0;
+    for (int i = 0; i < length; i++) {
+      char c = line.charAt(i);
+      if (c == '"') {
+        quoted = !quoted;
+      } else if (c == ',' && !quoted) {
+        this.addField(fieldStart, i);
+        fieldStart = i + 1;
+      }
+    }
+    this.addField(fieldStart, length);
+    this.dropTrailingEmpty();
+    return this.count;
+  }
+
+  /**
+   * Finds the field boundaries of a line that is stored as bytes in a buffer, following the same
+   * rules as the CharSequence version. The boundaries are positions in the buffer.
+   *
+   * @param buffer the buffer that holds the line
+   * @param from position of the first byte of the line
+   * @param to position just past the last byte of the line, without its line terminator
+   * @return the number of fields in the line
+   */
+  public int tokenize(ByteBuffer buffer, int from, int to) {
+    int quotes = 0;
+    for (int i = from; i < to; i++) {
+      if (buffer.get(i) == '"') {
+        quotes++;
+      }
+    }
+    boolean quoted = (quotes & 1) == 1;
+    this.count = 0;
+    int fieldStart = from;
+    for (int i = from; i < to; i++) {
+      byte b = buffer.get(i);
+      if (b == '"') {
+        quoted = !quoted;
+      } else if (b == ',' && !quoted) {
+        this.addField(fieldStart, i);
+        fieldStart = i + 1;
+      }
+    }
+    this.addField(fieldStart, to);
+    this.dropTrailingEmpty();
+    return this.count;
+  }
+
+  /**
+   * Getter for the number of fields in the last tokenized line.
+   *
+   * @return the number of fields
+   */
+  public int size() {
+    return this.count;
+  }
+
+  /**
+   * Getter for the start of a field in the last tokenized line.
+   *
+   * @param field index of the field
+   * @return the offset of the first character of the field
+   */
+  public int start(int field) {
+    return this.bounds[2 * field];
+  }
+
+  /**
+   * Getter for the end of a field in the last tokenized line.
+   *
+   * @param field index of the field
+   * @return the offset just past the last character of the field
+   */
+  public int end(int field) {
+    return this.bounds[2 * field + 1];
+  }
+
+  /**
+   * Records the boundaries of the next field, growing the boundary array when it is full.
+   *
+   * @param start offset of the first character of the field
+   * @param end offset just past the last character of the field
+   */
+  private void addField(int start, int end) {
+    if (2 * this.count + 1 >= this.bounds.length) {
+      this.bounds = Arrays.copyOf(this.bounds, 2 * this.bounds.length);
+    }
+    this.bounds[2 * this.count] = start;
+    this.bounds[2 * this.count + 1] = end;
+    this.count++;
+  }
+
+  /**
+   * Drops empty fields from the end of the line, the same way String.split does. A line that had no
+   * separators at all keeps its only field even when it is empty.
+   */
+  private void dropTrailingEmpty() {
+    if (this.count == 1) {
+      return;
+    }
+    while (this.count > 0 && this.start(this.count - 1) == this.end(this.count - 1)) {
+      this.count--;
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package edu.brown.cs.student.main.parser;
+
+import edu.brown.cs.student.main.rowhandler.RowBlock;
+import edu.brown.cs.student.main.rowhandler.RowView;
+
+/**
+ * LineBlock is the block that the Reader-based sources fill with lines. The lines are only
+ * tokenized once a creator asks for one of their rows.
+ */
+class LineBlock implements RowBlock {
+
+  private final String[] lines;
+  private final LineRow row;
+  private int size;
+
+  /**
+   * The constructor for an empty block.
+   *
+   * @param capacity the most lines the block can hold
+   */
+  LineBlock(int capacity) {
+    this.lines = new String[capacity];
+    this.row = new LineRow();
+    this.size = 0;
+  }
+
+  /**
+   * Adds a line to the block.
+   *
+   * @param line a single line of a CSV file, without its line terminator
+   * @return true if the block is full now
+   */
+  boolean add(String line) {
+    this.lines[this.size] = line;
+    this.size++;
+    return this.size == this.lines.length;
+  }
+
+  /** Empties the block, so it can be filled again. */
+  void clear() {
+    this.size = 0;
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public RowView row(int index) {
+    this.row.set(this.lines[index]);
+    return this.row;
+  }
+}
@@ -0,0 +1,57 @@
+package edu.brown.cs.student.main.parser;
+
+import edu.brown.cs.student.main.rowhandler.RowView;
+
+/**
+ * LineRow is the view that the Reader-based sources hand to creators. It holds on to the line that
+ * was read and the field boundaries that the tokenizer found in it, and only cuts fields out of the
+ * line when a creator asks for them.
+ */
+class LineRow implements RowView {
+
+  private final CSVTokenizer tokenizer;
+  private String line;
+
+  /** The constructor sets up the tokenizer that is reused for every line. */
+  LineRow() {
+    this.tokenizer = new CSVTokenizer();
+  }
+
+  /**
+   * Points the view at a new line.
+   *
+   * @param newLine a single line of a CSV file, without its line terminator
+   */
+  void set(String newLine) {
+    this.line = newLine;
+    this.tokenizer.tokenize(newLine);
+  }
+
+  @Override
+  public int size() {
+    return this.tokenizer.size();
+  }
+
+  @Override
+  public boolean isEmpty(int index) {
+    return this.tokenizer.start(index) == this.tokenizer.end(index);
+  }
+
+  @Override
+  public String get(int index) {
+    return this.line.substring(this.tokenizer.start(index), this.tokenizer.end(index));
+  }
+
+  @Override
+  public String strip(int index) {
+    int start = this.tokenizer.start(index);
+    int end = this.tokenizer.end(index);
+    while (start < end && Character.isWhitespace(this.line.charAt(start))) {
+      start++;
+    }
+    while (end > start && Character.isWhitespace(this.line.charAt(end - 1))) {
+      end--;
+    }
+    return this.line.substring(start, end);
+  }
+}
@@ -0,0 +1,240 @@
+package edu.brown.cs.student.main.parser;
+
+import edu.brown.cs.student.main.rowhandler.RowBlock;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MappedRowSource reads rows straight from a memory-mapped file. Going through a FileReader decodes
+ * every byte of the file with the platform charset and copies it through several buffers before a
+ * line comes out, and then the line is copied again into its fields. Here the row and field
+ * boundaries are found directly on the mapped bytes, and only the bytes of each field are decoded
+ * (as UTF-8) when a creator copies the field out of its ByteRow view.
+ *
+ * <p>A single mapping can't be bigger than 2 GB, so bigger files are mapped one window at a time.
+ * Each window is cut after the last row that fully fits in it, and the next window is mapped
+ * starting at the row that didn't, so rows are never split between windows. A single row still has
+ * to fit in one window.
+ *
+ * <p>Rows end at \n, \r or \r\n, the same as with BufferedReader.readLine.
+ */
+class MappedRowSource implements RowSource {
+
+  static final long WINDOW_SIZE = Integer.MAX_VALUE;
+  static final int MIN_CHUNK_BYTES = 1 << 16;
+
+  private final FileChannel channel;
+  private final long size;
+  private final long windowSize;
+  private long windowStart;
+  private Chunk rows;
+
+  /**
+   * The constructor opens the file and maps its first window.
+   *
+   * @param path path to the CSV file
+   * @throws IOException if the file can't be opened or mapped
+   */
+  MappedRowSource(Path path) throws IOException {
+    this(path, WINDOW_SIZE);
+  }
+
+  /**
+   * Constructor that picks the size of the mapping windows, so small windows can be tested without
+   * needing a file over 2 GB.
+   *
+   * @param path path to the CSV file
+   * @param windowSize the most bytes that are mapped at once
+   * @throws IOException if the file can't be opened or mapped
+   */
+  MappedRowSource(Path path, long windowSize) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    this.size = this.channel.size();
+    this.windowSize = Math.min(windowSize, WINDOW_SIZE);
+    this.rows = this.map(0);
+  }
+
+  /**
+   * Blocks never go past the end of a window, since the next window is a different buffer, so a
+   * block can come back with fewer rows than asked for. It only comes back empty at the end of the
+   * file.
+   *
+   * @param max the most rows to put in the block
+   * @return the next block
+   * @throws IOException if the next window can't be mapped
+   */
+  @Override
+  public RowBlock nextBlock(int max) throws IOException {
+    RowBlock block = this.rows.nextBlock(max);
+    while (block.size() == 0 && !this.rows.last) {
+      this.rows = this.map(this.windowStart + this.rows.to);
+      block = this.rows.nextBlock(max);
+    }
+    return block;
+  }
+
+  @Override
+  public List<RowSource> split(int parts) throws IOException {
+    List<RowSource> chunks = new ArrayList<>();
+    while (true) {
+      chunks.addAll(this.rows.split(parts));
+      if (this.rows.last) {
+        return chunks;
+      }
+      this.rows = this.map(this.windowStart + this.rows.to);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.channel.close();
+  }
+
+  /**
+   * Maps the window of the file that starts at the given byte, and cuts it after its last complete
+   * row. A window that ends in \r is cut before that row too, since its \n might be in the next
+   * window.
+   *
+   * @param start offset in the file where the window starts
+   * @return a chunk with the complete rows of the window
+   * @throws IOException if the window can't be mapped, or a single row doesn't fit in it
+   */
+  private Chunk map(long start) throws IOException {
+    long length = Math.min(this.windowSize, this.size - start);
+    MappedByteBuffer window = this.channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+    this.windowStart = start;
+    int limit = window.limit();
+    if (start + limit >= this.size) {
+      return new Chunk(window, 0, limit, true);
+    }
+    int end = limit - 1;
+    while (end >= 0) {
+      byte b = window.get(end);
+      if (b == '\n' || (b == '\r' && end < limit - 1)) {
+        break;
+      }
+      end--;
+    }
+    if (end < 0) {
+      throw new IOException("Row at byte " + start + " is too big to be mapped");
+    }
+    return new Chunk(window, 0, end + 1, false);
+  }
+
+  /**
+   * Chunk walks through the rows in a range of a mapped buffer that only holds complete rows. It is
+   * also what split hands out, since chunks of the same buffer can be read on different threads:
+   * every chunk has its own block and only reads the buffer with absolute gets.
+   */
+  static class Chunk implements RowSource {
+
+    private final ByteBuffer buffer;
+    private final int to;
+    private final boolean last;
+    private ByteBlock block;
+    private int pos;
+
+    /**
+     * The constructor for a chunk.
+     *
+     * @param buffer the mapped buffer
+     * @param from position of the first byte of the first row
+     * @param to position just past the line terminator of the last row
+     * @param last true if the chunk runs to the end of the file
+     */
+    Chunk(ByteBuffer buffer, int from, int to, boolean last) {
+      this.buffer = buffer;
+      this.pos = from;
+      this.to = to;
+      this.last = last;
+    }
+
+    @Override
+    public RowBlock nextBlock(int max) {
+      if (this.block == null) {
+        this.block = new ByteBlock(this.buffer, max);
+      }
+      this.block.clear();
+      boolean full = false;
+      while (!full && this.pos < this.to) {
+        int end = rowEnd(this.buffer, this.pos, this.to);
+        full = this.block.add(this.pos, end);
+        this.pos = nextRow(this.buffer, end, this.to);
+      }
+      return this.block;
+    }
+
+    /**
+     * Splits the rows that are left in this chunk into smaller chunks of about the same number of
+     * bytes, cutting only after line terminators. Chunks never get smaller than MIN_CHUNK_BYTES, so
+     * small files end up as a single chunk.
+     *
+     * @param parts how many chunks to aim for
+     * @return the smaller chunks, in file order
+     */
+    @Override
+    public List<RowSource> split(int parts) {
+      List<RowSource> chunks = new ArrayList<>();
+      int chunkBytes = Math.max(MIN_CHUNK_BYTES, (this.to - this.pos) / Math.max(1, parts) + 1);
+      int from = this.pos;
+      while (from < this.to) {
+        int end = this.to;
+        if (this.to - from > chunkBytes) {
+          end = nextRow(this.buffer, rowEnd(this.buffer, from + chunkBytes, this.to), this.to);
+        }
+        chunks.add(new Chunk(this.buffer, from, end, this.last && end == this.to));
+        from = end;
+      }
+      this.pos = this.to;
+      return chunks;
+    }
+
+    @Override
+    public void close() {}
+  }
+
+  /**
+   * Finds where the row that contains the given position ends.
+   *
+   * @param buffer the mapped buffer
+   * @param from a position inside of the row
+   * @param limit position where the range being read ends
+   * @return the position of the line terminator, or limit if there is none
+   */
+  static int rowEnd(ByteBuffer buffer, int from, int limit) {
+    int end = from;
+    while (end < limit) {
+      byte b = buffer.get(end);
+      if (b == '\n' || b == '\r') {
+        return end;
+      }
+      end++;
+    }
+    return limit;
+  }
+
+  /**
+   * Skips over the line terminator at the given position, treating \r\n as a single terminator.
+   *
+   * @param buffer the mapped buffer
+   * @param end the position of the line terminator, or limit if there is none
+   * @param limit position where the range being read ends
+   * @return the position where the next row starts
+   */
+  static int nextRow(ByteBuffer buffer, int end, int limit) {
+    if (end >= limit) {
+      return limit;
+    }
+    int next = end + 1;
+    if (buffer.get(end) == '\r' && next < limit && buffer.get(next) == '\n') {
+      next++;
+    }
+    return next;
+  }
+}
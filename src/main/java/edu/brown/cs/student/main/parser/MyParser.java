@@ -1,14 +1,18 @@
 package edu.brown.cs.student.main.parser;
 
 import edu.brown.cs.student.main.rowhandler.CreatorFromRow;
-import edu.brown.cs.student.main.rowhandler.FactoryFailureException;
-import java.io.BufferedReader;
+import edu.brown.cs.student.main.rowhandler.Rejections;
+import edu.brown.cs.student.main.rowhandler.RowBlock;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Iterator;
-import java.util.regex.Pattern;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * MyParser is a parser class that is responsible for going through the CSV file and creating a
@@ -16,13 +20,15 @@ import java.util.regex.Pattern;
  */
 public class MyParser<T> implements Iterable<T> {
 
-  static final Pattern regexSplitCSVRow =
-      Pattern.compile(",(?=([^\\\"]*\\\"[^\\\"]*\\\")*(?![^\\\"]*\\\"))");
+  static final int BLOCK_SIZE = 4096;
+
   private final ArrayList<T> dataset;
   private final CreatorFromRow<T> creator;
-  private final BufferedReader buffreader;
-  private String line;
-  private int index;
+  private final RowSource source;
+  private final boolean streaming;
+  private final Rejections rejections;
+  private final ParseReport report;
+  private boolean done;
 
   /**
    * constructor for MyParser class. It takes in a Reader object and creates a buffered reader out
@@ -35,53 +41,265 @@ public class MyParser<T> implements Iterable<T> {
    *     creating rows
    */
   public MyParser(Reader obj, CreatorFromRow<T> creator) {
-    this.buffreader = new BufferedReader(obj);
+    this(obj, creator, false);
+  }
+
+  /**
+   * constructor for MyParser class that lets the caller pick streaming mode. In streaming mode the
+   * parser never builds the dataset: iterator() reads lines from the reader on demand, creates one
+   * block of rows at a time and lets go of every row as soon as it has been handed out, so memory
+   * use stays the same no matter how big the file is. The rows can only be walked once, and toParse
+   * and getDataset are not available. Callers that need random access should use the default,
+   * materializing mode.
+   *
+   * @param obj a reader object
+   * @param creator an object that implements the creatorFromRow interface that is responsible for
+   *     creating rows
+   * @param streaming true to stream rows through iterator() instead of building the dataset
+   */
+  public MyParser(Reader obj, CreatorFromRow<T> creator, boolean streaming) {
+    this(new ReaderRowSource(obj), creator, streaming);
+  }
+
+  /**
+   * constructor for MyParser class that reads the file at the given path through a memory mapping
+   * instead of a Reader. Row and field boundaries are found on the bytes of the file, and only the
+   * fields are decoded, as UTF-8. Files over 2 GB are mapped one window at a time.
+   *
+   * @param path path to the CSV file
+   * @param creator an object that implements the creatorFromRow interface that is responsible for
+   *     creating rows
+   * @throws IOException if the file can't be opened or mapped
+   */
+  public MyParser(Path path, CreatorFromRow<T> creator) throws IOException {
+    this(path, creator, false);
+  }
+
+  /**
+   * constructor for MyParser class that reads the file at the given path through a memory mapping,
+   * and lets the caller pick streaming mode.
+   *
+   * @param path path to the CSV file
+   * @param creator an object that implements the creatorFromRow interface that is responsible for
+   *     creating rows
+   * @param streaming true to stream rows through iterator() instead of building the dataset
+   * @throws IOException if the file can't be opened or mapped
+   */
+  public MyParser(Path path, CreatorFromRow<T> creator, boolean streaming) throws IOException {
+    this(new MappedRowSource(path), creator, streaming);
+  }
+
+  /**
+   * constructor that every other constructor ends up in, once it knows where the rows come from.
+   *
+   * @param source the source of the rows
+   * @param creator the object that is responsible for creating rows
+   * @param streaming true to stream rows through iterator() instead of building the dataset
+   */
+  private MyParser(RowSource source, CreatorFromRow<T> creator, boolean streaming) {
+    this.source = source;
     this.creator = creator;
+    this.streaming = streaming;
     this.dataset = new ArrayList<>();
-    this.line = "";
-    this.index = 0;
+    this.rejections = new Rejections();
+    this.report = new ParseReport();
+    this.done = false;
   }
 
   /**
    * Method that uses the reader field to go through the file and parse each row using create, and
-   * creates a dataset of every row. If it encounters a FactureFailure exception, it will print a
-   * message that the row is not passed into the dataset, but will keep going through the file
+   * creates a dataset of every row. Rows that the creator rejects are left out of the dataset and
+   * counted in the report, which also logs the first few of them, and the parser keeps going
+   * through the file.
+   *
+   * <p>The rows are read and handed to the creator one block of BLOCK_SIZE rows at a time, through
+   * createBatch.
    */
   public void toParse() {
+    if (this.streaming) {
+      throw new IllegalStateException("toParse is not available in streaming mode");
+    }
     boolean keepGoing = true;
     while (keepGoing) {
-      try {
-        this.line = this.buffreader.readLine();
-        while (this.line != null) {
-          // this.dataset.add(this.creator.create(Arrays.asList(this.line.split(","))));
-          this.dataset.add(this.creator.create(Arrays.asList(regexSplitCSVRow.split(this.line))));
-          this.line = this.buffreader.readLine();
-          this.index++;
-        }
-        keepGoing = false;
-        this.buffreader.close();
-      } catch (IOException e) {
-        System.out.println("Error " + e);
-      } catch (FactoryFailureException e) {
-        System.out.println("Row with index " + this.index + " was not processed. Error: " + e);
-        this.index++;
-        if (this.line == null) {
-          keepGoing = false;
-        }
+      keepGoing = this.parseBlock(this.dataset);
+    }
+  }
+
+  /**
+   * Parallel version of toParse. The rest of the file is split into chunks at line terminators, and
+   * every chunk is tokenized and run through createBatch on the given pool. The chunks are then
+   * stitched back together in file order, so the dataset and the report (including the indices of
+   * the rows that were rejected) come out the same as with toParse. Since the creator gets called
+   * from several threads at once, the creator has to be safe to share between threads
+   * (SecondRowHandler, which numbers rows in the order it sees them, is not).
+   *
+   * @param pool the pool that the chunks are parsed on
+   * @throws UncheckedIOException if the file can not be split or read, so a failed read is never
+   *     mistaken for a short file
+   */
+  public void toParse(ForkJoinPool pool) {
+    if (this.streaming) {
+      throw new IllegalStateException("toParse is not available in streaming mode");
+    }
+    if (this.done) {
+      return;
+    }
+    this.done = true;
+    List<ForkJoinTask<ParsedChunk<T>>> tasks = new ArrayList<>();
+    try {
+      for (RowSource chunk : this.source.split(4 * pool.getParallelism())) {
+        tasks.add(pool.submit(() -> this.parseChunk(chunk)));
       }
+      this.source.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    for (ForkJoinTask<ParsedChunk<T>> task : tasks) {
+      ParsedChunk<T> parsed = task.join();
+      this.dataset.addAll(parsed.rows());
+      this.report.add(parsed.report());
     }
   }
 
+  /**
+   * Helper for the parallel toParse that runs every block of one chunk through createBatch. Every
+   * chunk gets its own report, with indices that start over at the start of the chunk, since the
+   * chunk doesn't know how many rows came before it.
+   *
+   * @param chunk the chunk to parse
+   * @return the rows that were created, and the report of the chunk
+   */
+  private ParsedChunk<T> parseChunk(RowSource chunk) {
+    List<T> rows = new ArrayList<>();
+    ParseReport chunkReport = new ParseReport(this.report.getLogSize());
+    Rejections rejections = new Rejections();
+    try {
+      RowBlock block = chunk.nextBlock(BLOCK_SIZE);
+      while (block.size() > 0) {
+        this.creator.createBatch(block, rows, rejections);
+        record(block, rejections, chunkReport);
+        block = chunk.nextBlock(BLOCK_SIZE);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new ParsedChunk<>(rows, chunkReport);
+  }
+
+  /**
+   * Helper that reads the next block of rows and runs it through createBatch, adding the created
+   * rows to the given list. Rows that were rejected are skipped and recorded in the report. The
+   * source is closed once the file runs out.
+   *
+   * @param out the list that the created rows are added to
+   * @return true if a block was parsed, false if the file has no more rows
+   */
+  private boolean parseBlock(List<T> out) {
+    if (this.done) {
+      return false;
+    }
+    try {
+      RowBlock block = this.source.nextBlock(BLOCK_SIZE);
+      if (block.size() == 0) {
+        this.done = true;
+        this.source.close();
+        return false;
+      }
+      this.creator.createBatch(block, out, this.rejections);
+      record(block, this.rejections, this.report);
+      return true;
+    } catch (IOException e) {
+      System.out.println("Error " + e);
+      this.done = true;
+      return false;
+    }
+  }
+
+  /**
+   * Records a block that went through createBatch in a report, and clears the rejections for the
+   * next block. Rejected rows are only copied out of the block while the report still logs them.
+   *
+   * @param block the block of rows
+   * @param rejections the rows of the block that were rejected
+   * @param report the report to record the block in
+   */
+  private static void record(RowBlock block, Rejections rejections, ParseReport report) {
+    int first = report.getRowsRead();
+    report.read(block.size());
+    for (int i = rejections.next(0); i >= 0; i = rejections.next(i + 1)) {
+      List<String> row = report.logging() ? block.row(i).toList() : null;
+      report.reject(first + i, rejections.reason(i), row);
+    }
+    rejections.clear();
+  }
+
+  /**
+   * Getter for the report of the parse, with the number of rows that were read, accepted and
+   * rejected, and the first rejected rows.
+   *
+   * @return the report of the parse so far
+   */
+  public ParseReport getReport() {
+    return this.report;
+  }
+
   /**
    * A getter method to pass the parsed information into the searcher.
    *
    * @return the dataset, which is an ArrayList of T objects after parsing the file
    */
   public ArrayList<T> getDataset() {
+    if (this.streaming) {
+      throw new IllegalStateException("getDataset is not available in streaming mode");
+    }
     return this.dataset;
   }
 
   public Iterator<T> iterator() {
+    if (this.streaming) {
+      return new StreamingIterator();
+    }
     return new ParseIterator<T>(this.dataset);
   }
+
+  /**
+   * ParsedChunk is what parsing one chunk in parallel produces.
+   *
+   * @param rows the rows that were created, in order
+   * @param report the report of the chunk, with indices inside the chunk
+   */
+  private record ParsedChunk<R>(List<R> rows, ParseReport report) {}
+
+  /**
+   * StreamingIterator hands out rows straight from the source. It only holds on to the rows of the
+   * one block it is working through, so nothing piles up while a big file is being walked.
+   */
+  private class StreamingIterator implements Iterator<T> {
+
+    private final ArrayList<T> rows = new ArrayList<>();
+    private int next;
+
+    @Override
+    public boolean hasNext() {
+      while (this.next == this.rows.size()) {
+        this.rows.clear();
+        this.next = 0;
+        if (!MyParser.this.parseBlock(this.rows)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public T next() {
+      if (!this.hasNext()) {
+        throw new NoSuchElementException();
+      }
+      T row = this.rows.get(this.next);
+      this.rows.set(this.next, null);
+      this.next++;
+      return row;
+    }
+  }
 }
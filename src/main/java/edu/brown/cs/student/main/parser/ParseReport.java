@@ -0,0 +1,146 @@
+package edu.brown.cs.student.main.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ParseReport keeps count of what happened to the rows of one parse: how many were read, how many
+ * made it into the dataset and how many were rejected. The first few rejected rows are also kept,
+ * with their index and the reason they were rejected, so the caller can show where a dirty file
+ * went wrong without the parser printing anything while it works.
+ *
+ * <p>Only the first rejects are logged, and once the log is full every later reject only bumps a
+ * counter, so a file with thousands of bad rows costs no more to report than one with a few.
+ */
+public class ParseReport {
+
+  static final int DEFAULT_LOG_SIZE = 50;
+
+  private final int logSize;
+  private final List<Reject> rejects;
+  private int rowsRead;
+  private int rowsRejected;
+
+  /** The constructor for a report that logs the first DEFAULT_LOG_SIZE rejects. */
+  public ParseReport() {
+    this(DEFAULT_LOG_SIZE);
+  }
+
+  /**
+   * The constructor for a report with a log of the given size.
+   *
+   * @param logSize how many rejects to keep
+   */
+  public ParseReport(int logSize) {
+    this.logSize = logSize;
+    this.rejects = new ArrayList<>(Math.min(logSize, DEFAULT_LOG_SIZE));
+    this.rowsRead = 0;
+    this.rowsRejected = 0;
+  }
+
+  /**
+   * Counts rows that were read.
+   *
+   * @param count the number of rows
+   */
+  void read(int count) {
+    this.rowsRead += count;
+  }
+
+  /**
+   * Checks if the next reject will be logged, so the caller only copies the rejected row when it
+   * will actually be kept.
+   *
+   * @return true if the log still has room
+   */
+  boolean logging() {
+    return this.rejects.size() < this.logSize;
+  }
+
+  /**
+   * Counts a rejected row, and logs it if the log still has room.
+   *
+   * @param index the index of the row in the file
+   * @param reason why the row was rejected
+   * @param row the fields of the row, which are only needed while the log has room
+   */
+  void reject(int index, String reason, List<String> row) {
+    this.rowsRejected++;
+    if (this.logging()) {
+      this.rejects.add(new Reject(index, reason, row));
+    }
+  }
+
+  /**
+   * Adds the report of a chunk that was parsed on its own to this one. The chunk's indices start
+   * over at the start of the chunk, so they are moved past the rows that this report has already
+   * read.
+   *
+   * @param chunk the report of the chunk that comes right after the rows read so far
+   */
+  void add(ParseReport chunk) {
+    for (Reject reject : chunk.rejects) {
+      if (!this.logging()) {
+        break;
+      }
+      this.rejects.add(new Reject(this.rowsRead + reject.index(), reject.reason(), reject.row()));
+    }
+    this.rowsRead += chunk.rowsRead;
+    this.rowsRejected += chunk.rowsRejected;
+  }
+
+  /**
+   * Getter for the number of rejects the log keeps.
+   *
+   * @return the size of the log
+   */
+  public int getLogSize() {
+    return this.logSize;
+  }
+
+  /**
+   * Getter for the number of rows that were read.
+   *
+   * @return the number of rows read
+   */
+  public int getRowsRead() {
+    return this.rowsRead;
+  }
+
+  /**
+   * Getter for the number of rows that made it into the dataset.
+   *
+   * @return the number of rows accepted
+   */
+  public int getRowsAccepted() {
+    return this.rowsRead - this.rowsRejected;
+  }
+
+  /**
+   * Getter for the number of rows that were rejected.
+   *
+   * @return the number of rows rejected
+   */
+  public int getRowsRejected() {
+    return this.rowsRejected;
+  }
+
+  /**
+   * Getter for the logged rejects, in file order.
+   *
+   * @return the first rejects of the parse
+   */
+  public List<Reject> getRejects() {
+    return Collections.unmodifiableList(this.rejects);
+  }
+
+  /**
+   * Reject is one rejected row in the log.
+   *
+   * @param index the index of the row in the file
+   * @param reason why the row was rejected
+   * @param row the fields of the row
+   */
+  public record Reject(int index, String reason, List<String> row) {}
+}
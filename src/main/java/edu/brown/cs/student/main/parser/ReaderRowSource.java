@@ -0,0 +1,113 @@
+package edu.brown.cs.student.main.parser;
+
+import edu.brown.cs.student.main.rowhandler.RowBlock;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ReaderRowSource reads rows line by line from a Reader, and splits each line with a CSVTokenizer.
+ * This is the way MyParser has always read its input.
+ */
+class ReaderRowSource implements RowSource {
+
+  static final int MIN_CHUNK_LINES = 1024;
+
+  private final BufferedReader buffreader;
+  private LineBlock block;
+
+  /**
+   * The constructor wraps the reader in a buffered reader.
+   *
+   * @param obj a reader object
+   */
+  ReaderRowSource(Reader obj) {
+    this.buffreader = new BufferedReader(obj);
+  }
+
+  @Override
+  public RowBlock nextBlock(int max) throws IOException {
+    if (this.block == null) {
+      this.block = new LineBlock(max);
+    }
+    this.block.clear();
+    String line = this.buffreader.readLine();
+    while (line != null && !this.block.add(line)) {
+      line = this.buffreader.readLine();
+    }
+    return this.block;
+  }
+
+  /**
+   * A reader can only be read from one thread, so the rest of the lines are read in here, and only
+   * the tokenizing and everything after it is left to the chunks.
+   *
+   * @param parts how many chunks to aim for
+   * @return the chunks, in file order
+   * @throws IOException if the reader fails
+   */
+  @Override
+  public List<RowSource> split(int parts) throws IOException {
+    List<String> lines = new ArrayList<>();
+    String line = this.buffreader.readLine();
+    while (line != null) {
+      lines.add(line);
+      line = this.buffreader.readLine();
+    }
+    List<RowSource> chunks = new ArrayList<>();
+    int chunkLines = Math.max(MIN_CHUNK_LINES, lines.size() / Math.max(1, parts) + 1);
+    for (int from = 0; from < lines.size(); from += chunkLines) {
+      chunks.add(new Lines(lines.subList(from, Math.min(lines.size(), from + chunkLines))));
+    }
+    return chunks;
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.buffreader.close();
+  }
+
+  /** Lines is a chunk of lines that were already read, which split hands out. */
+  static class Lines implements RowSource {
+
+    private final List<String> lines;
+    private LineBlock block;
+    private int next;
+
+    /**
+     * The constructor for a chunk of lines.
+     *
+     * @param lines the lines of the chunk
+     */
+    Lines(List<String> lines) {
+      this.lines = lines;
+      this.next = 0;
+    }
+
+    @Override
+    public RowBlock nextBlock(int max) {
+      if (this.block == null) {
+        this.block = new LineBlock(max);
+      }
+      this.block.clear();
+      boolean full = false;
+      while (!full && this.next < this.lines.size()) {
+        full = this.block.add(this.lines.get(this.next));
+        this.next++;
+      }
+      return this.block;
+    }
+
+    @Override
+    public List<RowSource> split(int parts) {
+      List<RowSource> rest = List.of(new Lines(this.lines.subList(this.next, this.lines.size())));
+      this.next = this.lines.size();
+      return rest;
+    }
+
+    @Override
+    public void close() {}
+  }
+}
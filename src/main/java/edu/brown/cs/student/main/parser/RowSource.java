@@ -0,0 +1,37 @@
+package edu.brown.cs.student.main.parser;
+
+import edu.brown.cs.student.main.rowhandler.RowBlock;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * RowSource is where MyParser gets its rows from. A source walks through its input one block of
+ * rows at a time, so the parser doesn't need to know whether the rows come from a Reader or
+ * straight from the bytes of a file. Blocks are reused, and their rows are views that are backed by
+ * the source's own buffer.
+ */
+interface RowSource extends Closeable {
+
+  /**
+   * Reads the next block of rows of the input. The same block is returned every time, and it is
+   * only valid until the next call to nextBlock.
+   *
+   * @param max the most rows to put in the block
+   * @return the next block, which only comes back empty once the input has run out
+   * @throws IOException if the input can't be read
+   */
+  RowBlock nextBlock(int max) throws IOException;
+
+  /**
+   * Splits the rest of the input into chunks of whole rows that can be read on different threads.
+   * Rows always end at line terminators, since quoted fields never go on past the end of a line, so
+   * a chunk can start reading at its first byte without knowing anything about the chunks before
+   * it. The source itself is used up afterwards.
+   *
+   * @param parts how many chunks to aim for
+   * @return the chunks, in file order
+   * @throws IOException if the input can't be read
+   */
+  List<RowSource> split(int parts) throws IOException;
+}
@@ -7,8 +7,48 @@ import java.util.List;
  * some arbitrary passed type.
  *
  * <p>Your parser class constructor should take a second parameter of this generic interface type.
+ *
+ * <p>The parser calls the RowView version of create, which hands over a reusable view of the row
+ * instead of a new list of strings for every row. By default it just copies the row into a list and
+ * calls the List version, so existing creators keep working; creators that want to skip that copy
+ * override it and only copy out the fields they keep.
+ *
+ * <p>The parser actually works through the file one block of rows at a time, and calls createBatch
+ * once per block. By default that just calls create for every row and turns a
+ * FactoryFailureException into a rejection, but a creator can override it to size its output once,
+ * convert the block in a tight loop, and reject rows without throwing.
  */
 public interface CreatorFromRow<T> {
 
   T create(List<String> row) throws FactoryFailureException;
+
+  /**
+   * Creates an object from a view of the row that the parser is on. The view is reused for the next
+   * row, so anything that is kept has to be copied out of it.
+   *
+   * @param row a view of the current row
+   * @return the object created from the row
+   * @throws FactoryFailureException if the object can't be created from the row
+   */
+  default T create(RowView row) throws FactoryFailureException {
+    return this.create(row.toList());
+  }
+
+  /**
+   * Creates objects from every row of a block. The objects of the rows that are not rejected are
+   * added to the output in row order, and every rejected row gets its bit set in rejections.
+   *
+   * @param rows the block of rows
+   * @param out the list that the created objects are added to
+   * @param rejections the bitmap of rejected rows, which starts out clear
+   */
+  default void createBatch(RowBlock rows, List<T> out, Rejections rejections) {
+    for (int i = 0; i < rows.size(); i++) {
+      try {
+        out.add(this.create(rows.row(i)));
+      } catch (FactoryFailureException e) {
+        rejections.reject(i, e.getMessage());
+      }
+    }
+  }
 }
@@ -0,0 +1,79 @@
+package edu.brown.cs.student.main.rowhandler;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Rejections is the per-row rejection bitmap that a creator fills in while it converts a RowBlock.
+ * Every rejected row gets its bit set, along with the reason it was rejected, so a creator can turn
+ * down a row without throwing a FactoryFailureException.
+ */
+public class Rejections {
+
+  private final BitSet rows;
+  private String[] reasons;
+
+  /** The constructor starts out with no rejected rows. */
+  public Rejections() {
+    this.rows = new BitSet();
+    this.reasons = new String[0];
+  }
+
+  /**
+   * Marks a row of the block as rejected.
+   *
+   * @param row index of the row inside of the block
+   * @param reason why the row was rejected
+   */
+  public void reject(int row, String reason) {
+    if (row >= this.reasons.length) {
+      this.reasons = Arrays.copyOf(this.reasons, Math.max(row + 1, 2 * this.reasons.length));
+    }
+    this.rows.set(row);
+    this.reasons[row] = reason;
+  }
+
+  /**
+   * Checks if a row of the block was rejected.
+   *
+   * @param row index of the row inside of the block
+   * @return true if the row was rejected
+   */
+  public boolean isRejected(int row) {
+    return this.rows.get(row);
+  }
+
+  /**
+   * Finds the next rejected row, so the rejections can be walked without checking every row.
+   *
+   * @param from index of the row to start looking at
+   * @return the index of the next rejected row, or -1 if there are no more
+   */
+  public int next(int from) {
+    return this.rows.nextSetBit(from);
+  }
+
+  /**
+   * Getter for the reason a row was rejected.
+   *
+   * @param row index of a rejected row inside of the block
+   * @return why the row was rejected
+   */
+  public String reason(int row) {
+    return this.reasons[row];
+  }
+
+  /**
+   * Getter for the number of rejected rows.
+   *
+   * @return the number of rows with their bit set
+   */
+  public int count() {
+    return this.rows.cardinality();
+  }
+
+  /** Clears every rejection, so the bitmap can be reused for the next block. */
+  public void clear() {
+    this.rows.clear();
+  }
+}
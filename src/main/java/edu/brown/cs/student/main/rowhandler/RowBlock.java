@@ -0,0 +1,25 @@
+package edu.brown.cs.student.main.rowhandler;
+
+/**
+ * RowBlock is a read-only block of consecutive rows that the parser hands to a creator all at once.
+ * Like RowView, the rows stay in the parser's own buffer, and the block is reused for the next
+ * block of the file, so anything that is kept has to be copied out of it.
+ */
+public interface RowBlock {
+
+  /**
+   * Getter for the number of rows in the block.
+   *
+   * @return the number of rows
+   */
+  int size();
+
+  /**
+   * Getter for a view of one row of the block. The same view is returned for every row, and it is
+   * only valid until the next call to row.
+   *
+   * @param index index of the row inside of the block
+   * @return a view of the row
+   */
+  RowView row(int index);
+}
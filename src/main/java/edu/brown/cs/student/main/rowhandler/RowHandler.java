@@ -10,6 +10,8 @@ import java.util.List;
  */
 public class RowHandler implements CreatorFromRow<ArrayList<String>> {
 
+  static final String EMPTY_ENTRY = "Your row contains an empty entry";
+
   /**
    * Create class take in a list of strings, strips every string of spaces, and returns an ArrayList
    * of the input List of Strings.
@@ -23,11 +25,68 @@ public class RowHandler implements CreatorFromRow<ArrayList<String>> {
     ArrayList<String> newRow = new ArrayList<>();
     for (String str : row) {
       if (str.isEmpty()) {
-        throw new FactoryFailureException("Your row contains an empty entry", row);
+        throw new FactoryFailureException(EMPTY_ENTRY, row);
       } else {
         newRow.add(str.strip());
       }
     }
     return newRow;
   }
+
+  /**
+   * Flyweight version of create that reads from the parser's view of the row. Empty entries are
+   * found without copying them, and every other entry is copied out only once, already stripped.
+   *
+   * @param row a view of the current row
+   * @return an ArrayList of stings from the input that is stripped of spaces.
+   * @throws FactoryFailureException an exception that is thrown if any exceptions happen during row
+   *     creation.
+   */
+  @Override
+  public ArrayList<String> create(RowView row) throws FactoryFailureException {
+    ArrayList<String> newRow = this.convert(row);
+    if (newRow == null) {
+      throw new FactoryFailureException(EMPTY_ENTRY, row.toList());
+    }
+    return newRow;
+  }
+
+  /**
+   * Batch version of create that rejects rows with empty entries through the rejection bitmap, so a
+   * dirty file doesn't throw (and fill in a stack trace for) an exception for every bad row.
+   *
+   * @param rows the block of rows
+   * @param out the list that the stripped rows are added to
+   * @param rejections the bitmap of rejected rows
+   */
+  @Override
+  public void createBatch(RowBlock rows, List<ArrayList<String>> out, Rejections rejections) {
+    for (int i = 0; i < rows.size(); i++) {
+      ArrayList<String> newRow = this.convert(rows.row(i));
+      if (newRow == null) {
+        rejections.reject(i, EMPTY_ENTRY);
+      } else {
+        out.add(newRow);
+      }
+    }
+  }
+
+  /**
+   * Helper that strips every entry of a row, as long as none of them is empty.
+   *
+   * @param row a view of the row
+   * @return the stripped row, or null if the row contains an empty entry
+   */
+  private ArrayList<String> convert(RowView row) {
+    for (int i = 0; i < row.size(); i++) {
+      if (row.isEmpty(i)) {
+        return null;
+      }
+    }
+    ArrayList<String> newRow = new ArrayList<>(row.size());
+    for (int i = 0; i < row.size(); i++) {
+      newRow.add(row.strip(i));
+    }
+    return newRow;
+  }
 }
@@ -0,0 +1,60 @@
+package edu.brown.cs.student.main.rowhandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RowView is a read-only view of the row that the parser is currently on. The parser hands the same
+ * view to the creator for every row, and the fields stay in the parser's own buffer until one of
+ * the getters copies them out, so a creator only pays for the fields it actually keeps.
+ *
+ * <p>Because the view is reused, it is only valid inside of the create call it was passed to. A
+ * creator that wants to hold on to a field has to copy it out with get, strip or toList.
+ */
+public interface RowView {
+
+  /**
+   * Getter for the number of fields in the row.
+   *
+   * @return the number of fields
+   */
+  int size();
+
+  /**
+   * Checks if a field is empty, without copying it.
+   *
+   * @param index index of the field
+   * @return true if the field has no characters at all
+   */
+  boolean isEmpty(int index);
+
+  /**
+   * Copies a field out of the row.
+   *
+   * @param index index of the field
+   * @return the field as a new string
+   */
+  String get(int index);
+
+  /**
+   * Copies a field out of the row without its leading and trailing white space, the same as
+   * get(index).strip() but without copying the white space first.
+   *
+   * @param index index of the field
+   * @return the stripped field as a new string
+   */
+  String strip(int index);
+
+  /**
+   * Copies every field out of the row.
+   *
+   * @return a new list with all of the fields of the row
+   */
+  default List<String> toList() {
+    List<String> fields = new ArrayList<>(this.size());
+    for (int i = 0; i < this.size(); i++) {
+      fields.add(this.get(i));
+    }
+    return fields;
+  }
+}
@@ -0,0 +1,253 @@
+package edu.brown.cs.student.main.searcher;
+
+import edu.brown.cs.student.main.columns.Column;
+import edu.brown.cs.student.main.columns.ColumnType;
+import edu.brown.cs.student.main.columns.ColumnarTable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Aggregation groups the rows of a loaded table by the cell in one column, and works out the count,
+ * sum, average, minimum and maximum of the numbers in another column for every group. It goes over
+ * the table once, reading the numbers straight from the numeric column without turning them into
+ * strings, and keeps the running totals of the groups in primitive arrays indexed by the number of
+ * the group, so a row only costs a hash lookup of its group and a few additions.
+ *
+ * <p>Tables with at least parallelThreshold rows are split into chunks that are aggregated on a
+ * ForkJoinPool, each into its own groups, and the groups of the chunks are merged in row order
+ * afterwards. Groups come back in the order they first show up in the table either way.
+ */
+public final class Aggregation {
+
+  /** The fewest rows a chunk of a parallel aggregation gets. */
+  private static final int MIN_CHUNK_ROWS = 1 << 13;
+
+  /**
+   * The totals of one group.
+   *
+   * @param key the cell the rows of the group share, or null when the rows are not grouped
+   * @param rows the number of rows in the group
+   * @param count the number of those rows with a number in the aggregated column
+   * @param sum the sum of those numbers
+   * @param min the smallest of those numbers, or NaN if there are none
+   * @param max the largest of those numbers, or NaN if there are none
+   */
+  public record Group(String key, long rows, long count, double sum, double min, double max) {
+
+    /**
+     * Works out the average of the numbers of the group.
+     *
+     * @return the average, or NaN if the group has no numbers
+     */
+    public double avg() {
+      return this.count == 0 ? Double.NaN : this.sum / this.count;
+    }
+  }
+
+  private final ColumnarTable table;
+  private final int groupColumn;
+  private final int valueColumn;
+  private final int from;
+
+  /**
+   * The constructor checks the columns of an aggregation, without running it.
+   *
+   * @param table the loaded table
+   * @param groupColumn the index of the column to group by, or -1 to put every row in one group
+   * @param valueColumn the index of the numeric column to aggregate, or -1 to only count rows
+   * @param header true to leave the first row out, since it holds the names of the columns
+   * @throws IllegalArgumentException if a column is not in the table, or the aggregated column does
+   *     not hold numbers
+   */
+  public Aggregation(ColumnarTable table, int groupColumn, int valueColumn, boolean header) {
+    if (groupColumn < -1 || groupColumn >= table.columnCount()) {
+      throw new IllegalArgumentException("The table has no column " + groupColumn + " to group by");
+    }
+    if (valueColumn < -1 || valueColumn >= table.columnCount()) {
+      throw new IllegalArgumentException("The table has no column " + valueColumn + " to total");
+    }
+    if (valueColumn != -1 && table.column(valueColumn).type() == ColumnType.STRING) {
+      throw new IllegalArgumentException("Column " + valueColumn + " does not hold numbers");
+    }
+    this.table = table;
+    this.groupColumn = groupColumn;
+    this.valueColumn = valueColumn;
+    this.from = header ? 1 : 0;
+  }
+
+  /**
+   * Runs the aggregation, in parallel chunks when the table is big enough.
+   *
+   * @param pool the pool that chunks of big tables run on
+   * @param parallelThreshold the fewest rows a table needs to be aggregated in parallel
+   * @return the totals of every group, in the order the groups first show up
+   */
+  public List<Group> run(ForkJoinPool pool, int parallelThreshold) {
+    int size = this.table.size();
+    Totals totals;
+    if (size - this.from < parallelThreshold) {
+      totals = this.chunk(this.from, size);
+    } else {
+      int parts =
+          Math.max(1, Math.min(4 * pool.getParallelism(), (size - this.from) / MIN_CHUNK_ROWS));
+      int chunkRows = (size - this.from + parts - 1) / parts;
+      List<ForkJoinTask<Totals>> tasks = new ArrayList<>();
+      for (int start = this.from; start < size; start += chunkRows) {
+        int chunkStart = start;
+        int chunkEnd = Math.min(size, start + chunkRows);
+        tasks.add(pool.submit(() -> this.chunk(chunkStart, chunkEnd)));
+      }
+      totals = new Totals();
+      for (ForkJoinTask<Totals> task : tasks) {
+        totals.merge(task.join());
+      }
+    }
+    return totals.groups();
+  }
+
+  /**
+   * Aggregates the rows of one chunk into groups of its own. The first row is read through its
+   * strings, since it is not in the columns, and every other row from the columns.
+   *
+   * @param start the first row of the chunk
+   * @param end the row just past the last row of the chunk
+   * @return the totals of the groups of the chunk
+   */
+  private Totals chunk(int start, int end) {
+    Totals totals = new Totals();
+    Column groups = this.groupColumn == -1 ? null : this.table.column(this.groupColumn);
+    Column values = this.valueColumn == -1 ? null : this.table.column(this.valueColumn);
+    for (int row = start; row < end; row++) {
+      int width = this.table.width(row);
+      if (this.groupColumn >= width) {
+        continue;
+      }
+      if (row == 0) {
+        List<String> cells = this.table.get(0);
+        String key = groups == null ? null : cells.get(this.groupColumn);
+        double value = values == null || this.valueColumn >= width ? Double.NaN : parse(cells);
+        totals.add(key, value);
+        continue;
+      }
+      String key = groups == null ? null : groups.get(row - 1);
+      double value =
+          values == null || this.valueColumn >= width ? Double.NaN : values.number(row - 1);
+      totals.add(key, value);
+    }
+    return totals;
+  }
+
+  /**
+   * Reads the aggregated cell of the first row as a number.
+   *
+   * @param cells the cells of the first row
+   * @return the number, or NaN if the cell is not one
+   */
+  private double parse(List<String> cells) {
+    try {
+      return Double.parseDouble(cells.get(this.valueColumn));
+    } catch (NumberFormatException e) {
+      return Double.NaN;
+    }
+  }
+
+  /**
+   * Totals keeps the running totals of the groups of a chunk, with a number for every group that is
+   * an index into primitive arrays of the totals.
+   */
+  private static final class Totals {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> keys = new ArrayList<>();
+    private long[] rows = new long[8];
+    private long[] count = new long[8];
+    private double[] sum = new double[8];
+    private double[] min = new double[8];
+    private double[] max = new double[8];
+
+    /**
+     * Adds a row to its group, starting the group if it is the first row of it.
+     *
+     * @param key the cell of the row in the grouped column, or null when there is one group
+     * @param value the number of the row in the aggregated column, or NaN if it has none
+     */
+    void add(String key, double value) {
+      int id = this.id(key);
+      this.rows[id]++;
+      if (!Double.isNaN(value)) {
+        this.count[id]++;
+        this.sum[id] += value;
+        this.min[id] = Math.min(this.min[id], value);
+        this.max[id] = Math.max(this.max[id], value);
+      }
+    }
+
+    /**
+     * Adds the groups of a later chunk to these, group by group.
+     *
+     * @param other the totals of the chunk
+     */
+    void merge(Totals other) {
+      for (int i = 0; i < other.keys.size(); i++) {
+        int id = this.id(other.keys.get(i));
+        this.rows[id] += other.rows[i];
+        this.count[id] += other.count[i];
+        this.sum[id] += other.sum[i];
+        this.min[id] = Math.min(this.min[id], other.min[i]);
+        this.max[id] = Math.max(this.max[id], other.max[i]);
+      }
+    }
+
+    /**
+     * Builds the totals of every group.
+     *
+     * @return the groups, in the order they were started
+     */
+    List<Group> groups() {
+      List<Group> groups = new ArrayList<>(this.keys.size());
+      for (int i = 0; i < this.keys.size(); i++) {
+        boolean empty = this.count[i] == 0;
+        groups.add(
+            new Group(
+                this.keys.get(i),
+                this.rows[i],
+                this.count[i],
+                this.sum[i],
+                empty ? Double.NaN : this.min[i],
+                empty ? Double.NaN : this.max[i]));
+      }
+      return groups;
+    }
+
+    /**
+     * Looks up the number of a group, starting the group with empty totals if it is new.
+     *
+     * @param key the key of the group
+     * @return the number of the group
+     */
+    private int id(String key) {
+      Integer id = this.ids.get(key);
+      if (id != null) {
+        return id;
+      }
+      int added = this.keys.size();
+      if (added == this.rows.length) {
+        this.rows = Arrays.copyOf(this.rows, 2 * added);
+        this.count = Arrays.copyOf(this.count, 2 * added);
+        this.sum = Arrays.copyOf(this.sum, 2 * added);
+        this.min = Arrays.copyOf(this.min, 2 * added);
+        this.max = Arrays.copyOf(this.max, 2 * added);
+      }
+      this.min[added] = Double.POSITIVE_INFINITY;
+      this.max[added] = Double.NEGATIVE_INFINITY;
+      this.ids.put(key, added);
+      this.keys.add(key);
+      return added;
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package edu.brown.cs.student.main.searcher;
+
+import edu.brown.cs.student.main.columns.Column;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * BkTree (a Burkhard-Keller tree) holds the distinct values of a column so that the values within
+ * an edit distance of a word can be found without working out the distance to every one of them.
+ * Every value hangs under its parent at the edit distance between the two, so when the word is at
+ * distance d from a value, the triangle inequality says only the children at distances d - k
+ * through d + k can hold values within k of the word, and the rest of the tree is skipped.
+ *
+ * <p>The tree is built the first time the column is searched with fuzzy, with a node for every
+ * distinct value of the column, in the order the values first show up. Nodes are kept in arrays,
+ * with the children of a node chained through their next sibling, and a node only keeps the index
+ * of the first cell with its value, which is read back through the column, so a big column does not
+ * get an object per value.
+ */
+class BkTree {
+
+  private final Column column;
+  private int size;
+  private int[] cells = new int[16];
+  private int[] distances = new int[16];
+  private int[] firstChild = new int[16];
+  private int[] nextSibling = new int[16];
+
+  /**
+   * The constructor puts every distinct value of a column in the tree.
+   *
+   * @param column the column whose values are indexed
+   */
+  BkTree(Column column) {
+    this.column = column;
+    Set<String> seen = new HashSet<>();
+    for (int cell = 0; cell < column.size(); cell++) {
+      String value = column.get(cell);
+      if (seen.add(value)) {
+        this.add(cell, value);
+      }
+    }
+  }
+
+  /**
+   * Finds every value of the column within a distance of a word.
+   *
+   * @param word the word to look for
+   * @param limit the largest edit distance that counts
+   * @return the values, in no particular order
+   */
+  List<String> within(String word, int limit) {
+    List<String> found = new ArrayList<>();
+    if (this.size == 0) {
+      return found;
+    }
+    int[] stack = new int[16];
+    int size = 0;
+    stack[size++] = 0;
+    while (size > 0) {
+      int node = stack[--size];
+      String value = this.value(node);
+      int distance = EditDistance.distance(word, value);
+      if (distance <= limit) {
+        found.add(value);
+      }
+      for (int child = this.firstChild[node]; child != 0; child = this.nextSibling[child]) {
+        if (Math.abs(this.distances[child] - distance) <= limit) {
+          if (size == stack.length) {
+            stack = Arrays.copyOf(stack, 2 * size);
+          }
+          stack[size++] = child;
+        }
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Getter for the number of values in the tree.
+   *
+   * @return the number of distinct values of the column
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * Reads the value of a node from the first cell of the column that holds it.
+   *
+   * @param node the index of the node
+   * @return the value
+   */
+  private String value(int node) {
+    return this.column.get(this.cells[node]);
+  }
+
+  /**
+   * Puts a value that is not in the tree yet under the first node along the way that has no child
+   * at its distance. Node 0 is the root, so a child index of 0 means there is no child.
+   *
+   * @param cell the index of the first cell of the column with the value
+   * @param value the value to add
+   */
+  private void add(int cell, String value) {
+    int added = this.size;
+    if (added == this.distances.length) {
+      this.cells = Arrays.copyOf(this.cells, 2 * added);
+      this.distances = Arrays.copyOf(this.distances, 2 * added);
+      this.firstChild = Arrays.copyOf(this.firstChild, 2 * added);
+      this.nextSibling = Arrays.copyOf(this.nextSibling, 2 * added);
+    }
+    this.cells[added] = cell;
+    this.size++;
+    if (added == 0) {
+      return;
+    }
+    int node = 0;
+    while (true) {
+      int distance = EditDistance.distance(value, this.value(node));
+      int child = this.firstChild[node];
+      while (child != 0 && this.distances[child] != distance) {
+        child = this.nextSibling[child];
+      }
+      if (child == 0) {
+        this.distances[added] = distance;
+        this.nextSibling[added] = this.firstChild[node];
+        this.firstChild[node] = added;
+        return;
+      }
+      node = child;
+    }
+  }
+}
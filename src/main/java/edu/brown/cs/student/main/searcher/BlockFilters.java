@@ -0,0 +1,237 @@
+package edu.brown.cs.student.main.searcher;
+
+import edu.brown.cs.student.main.columns.Column;
+import edu.brown.cs.student.main.columns.ColumnarTable;
+
+/**
+ * BlockFilters splits the rows of a table into blocks of a fixed number of rows, and keeps a Bloom
+ * filter of the cell values of every block. A search of the whole dataset for a value asks every
+ * filter first and only looks at the rows of blocks whose filter might hold the value, so it is a
+ * middle ground between the inverted index, which knows the exact rows of every value but takes
+ * room for every cell, and a scan of every row, which takes no room at all.
+ *
+ * <p>A Bloom filter never misses a value that is in its block, but says yes for a value that is not
+ * there at about the false positive rate it was sized for. Its size follows from that rate: a block
+ * of n cells gets -n ln(p) / ln(2)^2 bits, so a lower rate costs more room. Every block counts all
+ * of its cells, repeated values included, so the real rate is usually lower than the one asked for.
+ * The rows of a block that passes are always checked against the value, so false positives only
+ * cost time.
+ *
+ * <p>Each value is hashed once into 64 bits, and the two halves h1 and h2 of that hash give the
+ * bits h1 + i * h2 for i below the number of hashes, which is as good as that many independent
+ * hashes.
+ */
+public class BlockFilters {
+
+  /**
+   * The settings of the filters.
+   *
+   * @param blockRows the number of rows in a block
+   * @param falsePositiveRate how often a block should pass for a value it does not hold
+   */
+  public record Settings(int blockRows, double falsePositiveRate) {
+
+    /**
+     * The constructor checks that the settings can be used.
+     *
+     * @param blockRows the number of rows in a block
+     * @param falsePositiveRate how often a block should pass for a value it does not hold
+     * @throws IllegalArgumentException if the block is empty or the rate is not between 0 and 1
+     */
+    public Settings {
+      if (blockRows < 1) {
+        throw new IllegalArgumentException("A block needs at least one row");
+      }
+      if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+        throw new IllegalArgumentException("The false positive rate has to be between 0 and 1");
+      }
+    }
+  }
+
+  private static final int[] NO_ROWS = new int[0];
+
+  private final Settings settings;
+  private final int rows;
+  private final int hashes;
+  private final long[] bits;
+  private final int[] starts;
+
+  /**
+   * The constructor builds the filter of every block of the table, one block at a time. The first
+   * row is in the first block like any other, and skipping it when it is a header is up to the
+   * caller.
+   *
+   * @param table the table to build the filters of
+   * @param settings the size of a block and the false positive rate
+   */
+  public BlockFilters(ColumnarTable table, Settings settings) {
+    this.settings = settings;
+    this.rows = table.size();
+    double rate = settings.falsePositiveRate();
+    this.hashes = Math.max(1, (int) Math.round(-Math.log(rate) / Math.log(2)));
+    int blocks = (this.rows + settings.blockRows() - 1) / settings.blockRows();
+    this.starts = new int[blocks + 1];
+    for (int b = 0; b < blocks; b++) {
+      long cells = 0;
+      for (int row = this.first(b); row < this.end(b); row++) {
+        cells += table.width(row);
+      }
+      long bitCount = (long) Math.ceil(-cells * Math.log(rate) / (Math.log(2) * Math.log(2)));
+      this.starts[b + 1] = this.starts[b] + (int) Math.max(1, (bitCount + 63) / 64);
+    }
+    this.bits = new long[this.starts[blocks]];
+    for (int b = 0; b < blocks; b++) {
+      int end = this.end(b);
+      if (b == 0) {
+        for (String cell : table.get(0)) {
+          this.add(b, hash(cell));
+        }
+      }
+      for (int c = 0; c < table.columnCount(); c++) {
+        Column column = table.column(c);
+        for (int row = Math.max(1, this.first(b)); row < end; row++) {
+          if (c < table.width(row)) {
+            this.add(b, hash(column.get(row - 1)));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Finds the rows of every block whose filter might hold the value. Every row that has a cell
+   * exactly equal to the value is in there, along with the other rows of its block and the rows of
+   * blocks that pass by chance.
+   *
+   * @param value the value to look for
+   * @return the indices of the rows to check, sorted, and empty if no block passes
+   */
+  public int[] rows(String value) {
+    long hash = hash(value);
+    int blocks = this.starts.length - 1;
+    boolean[] passing = new boolean[blocks];
+    int count = 0;
+    for (int b = 0; b < blocks; b++) {
+      if (this.mightContain(b, hash)) {
+        passing[b] = true;
+        count += this.end(b) - this.first(b);
+      }
+    }
+    if (count == 0) {
+      return NO_ROWS;
+    }
+    int[] found = new int[count];
+    int next = 0;
+    for (int b = 0; b < blocks; b++) {
+      if (passing[b]) {
+        for (int row = this.first(b); row < this.end(b); row++) {
+          found[next++] = row;
+        }
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Getter for the settings the filters were built with.
+   *
+   * @return the size of a block and the false positive rate
+   */
+  public Settings settings() {
+    return this.settings;
+  }
+
+  /**
+   * Getter for the number of blocks.
+   *
+   * @return the number of blocks, and so of filters
+   */
+  public int blocks() {
+    return this.starts.length - 1;
+  }
+
+  /**
+   * Getter for the room the filters take.
+   *
+   * @return the number of bytes of all filters together
+   */
+  public long bytes() {
+    return 8L * this.bits.length + 4L * this.starts.length;
+  }
+
+  /**
+   * Sets the bits of a value in the filter of a block.
+   *
+   * @param block the index of the block
+   * @param hash the hash of the value
+   */
+  private void add(int block, long hash) {
+    int from = this.starts[block];
+    long size = 64L * (this.starts[block + 1] - from);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32) | 1;
+    for (int i = 0; i < this.hashes; i++) {
+      long bit = Integer.toUnsignedLong(h1 + i * h2) % size;
+      this.bits[from + (int) (bit >>> 6)] |= 1L << bit;
+    }
+  }
+
+  /**
+   * Checks whether the filter of a block has every bit of a value set.
+   *
+   * @param block the index of the block
+   * @param hash the hash of the value
+   * @return false if the value is surely not in the block, true if it might be
+   */
+  private boolean mightContain(int block, long hash) {
+    int from = this.starts[block];
+    long size = 64L * (this.starts[block + 1] - from);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32) | 1;
+    for (int i = 0; i < this.hashes; i++) {
+      long bit = Integer.toUnsignedLong(h1 + i * h2) % size;
+      if ((this.bits[from + (int) (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Getter for the first row of a block.
+   *
+   * @param block the index of the block
+   * @return the index of its first row
+   */
+  private int first(int block) {
+    return block * this.settings.blockRows();
+  }
+
+  /**
+   * Getter for the end of a block.
+   *
+   * @param block the index of the block
+   * @return the index just past its last row
+   */
+  private int end(int block) {
+    return (int) Math.min(this.rows, (long) (block + 1) * this.settings.blockRows());
+  }
+
+  /**
+   * Hashes a value with 64-bit FNV-1a over its characters, followed by a final mix so that both
+   * halves of the hash depend on every character.
+   *
+   * @param value the value to hash
+   * @return the hash
+   */
+  private static long hash(String value) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
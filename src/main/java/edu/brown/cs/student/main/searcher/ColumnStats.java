@@ -0,0 +1,54 @@
+package edu.brown.cs.student.main.searcher;
+
+import edu.brown.cs.student.main.columns.ColumnarTable;
+
+/**
+ * ColumnStats is what is known about a column of a table from when it was loaded, which is enough
+ * to guess how many rows a search of the column will match before running it.
+ *
+ * @param rows the number of rows of the table below the first row
+ * @param present the number of those rows that are wide enough to have the column
+ * @param distinct the number of distinct cells of the column
+ */
+public record ColumnStats(int rows, int present, int distinct) {
+
+  /**
+   * Gathers the stats of a column.
+   *
+   * @param table the loaded table
+   * @param column the index of the column
+   * @return the stats of the column
+   */
+  public static ColumnStats of(ColumnarTable table, int column) {
+    int rows = table.column(column).size();
+    int present = 0;
+    for (int row = 1; row <= rows; row++) {
+      if (column < table.width(row)) {
+        present++;
+      }
+    }
+    return new ColumnStats(rows, present, table.column(column).distinct());
+  }
+
+  /**
+   * Guesses the share of rows whose cell in the column is equal to a given value, taking every
+   * distinct value to be as common as the others.
+   *
+   * @return the guessed share of rows, from 0 to 1
+   */
+  public double equalShare() {
+    if (this.rows == 0 || this.distinct == 0) {
+      return 0;
+    }
+    return (double) this.present / this.rows / this.distinct;
+  }
+
+  /**
+   * Getter for the share of rows that have the column at all.
+   *
+   * @return the share of rows, from 0 to 1
+   */
+  public double presentShare() {
+    return this.rows == 0 ? 0 : (double) this.present / this.rows;
+  }
+}
@@ -0,0 +1,53 @@
+package edu.brown.cs.student.main.searcher;
+
+/**
+ * Condition is a compiled query, or one part of it, that is checked against the rows of a dataset.
+ * Besides the check itself, a condition can guess how many rows it matches, which is how the parts
+ * of a query are ordered, and it can hand out the rows an index says could match, so a query does
+ * not always have to look at every row.
+ */
+interface Condition {
+
+  /**
+   * Checks a row.
+   *
+   * @param row the index of the row in the dataset
+   * @return true if the row matches
+   */
+  boolean test(int row);
+
+  /**
+   * Guesses the share of rows that match.
+   *
+   * @return a share of rows, from 0 to 1
+   */
+  double selectivity();
+
+  /**
+   * Getter for the rows that could match, when an index can tell. Every row that matches is in the
+   * array except maybe the first row, which callers check on its own.
+   *
+   * @return the sorted indices of the rows that could match, or null to check every row
+   */
+  int[] candidates();
+
+  /**
+   * Tells whether the candidates are exactly the rows that match, so only the first row has to be
+   * checked and the rest can be listed or counted straight from the index.
+   *
+   * @return true if every candidate but the first row matches
+   */
+  default boolean exact() {
+    return false;
+  }
+
+  /**
+   * Counts the rows other than the first that match straight from an index, without listing them.
+   * Only conditions with exact candidates can.
+   *
+   * @return the number of rows, or -1 if the rows have to be checked to count them
+   */
+  default int count() {
+    return -1;
+  }
+}
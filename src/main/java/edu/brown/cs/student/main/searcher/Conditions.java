@@ -0,0 +1,680 @@
+package edu.brown.cs.student.main.searcher;
+
+import edu.brown.cs.student.main.columns.Column;
+import edu.brown.cs.student.main.columns.ColumnType;
+import edu.brown.cs.student.main.columns.ColumnarTable;
+import edu.brown.cs.student.main.columns.Folding;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * Conditions holds the kinds of conditions a query is built from: an exact, substring or number
+ * range match on one column, an exact match on any cell of a row, and AND, OR and NOT over other
+ * conditions. Fuzzy matches, of cells within an edit distance of a value, are built here too.
+ *
+ * <p>AND puts its parts in order from the fewest guessed matches to the most, and OR from the most
+ * to the fewest, so a row is ruled in or out by the part most likely to decide it, and the rest of
+ * the parts are skipped. Guesses come from the index lookups that were already done for a part
+ * where there are any, and from the stats of its column otherwise.
+ */
+final class Conditions {
+
+  /** The share of rows a substring search of a column is guessed to match without an index. */
+  static final double CONTAINS_GUESS = 0.25;
+
+  /** The share of rows an exact search is guessed to match when nothing is known about it. */
+  static final double EQUALS_GUESS = 0.05;
+
+  /** The share of rows a range search is guessed to match without an index. */
+  static final double RANGE_GUESS = 0.33;
+
+  /** The constructor is private, since Conditions only has static factories. */
+  private Conditions() {}
+
+  /**
+   * Builds a condition that all parts have to match.
+   *
+   * @param parts the conditions to join
+   * @return the joined condition
+   */
+  static Condition and(List<Condition> parts) {
+    return new And(parts);
+  }
+
+  /**
+   * Builds a condition that at least one part has to match.
+   *
+   * @param parts the conditions to join
+   * @return the joined condition
+   */
+  static Condition or(List<Condition> parts) {
+    return new Or(parts);
+  }
+
+  /**
+   * Builds a condition that matches the rows another condition does not.
+   *
+   * @param part the condition to turn around
+   * @return the opposite condition
+   */
+  static Condition not(Condition part) {
+    return new Not(part);
+  }
+
+  /**
+   * Builds a condition on one column of a dataset.
+   *
+   * @param dataset the dataset the condition is checked against
+   * @param indexes the indexes of the dataset, or null
+   * @param column the index of the column
+   * @param exact true to match cells equal to the value, false for cells that have it anywhere
+   * @param value the value to look for
+   * @param fold true to compare the folded forms of the cells and the value
+   * @return the condition
+   */
+  static Condition cell(
+      List<List<String>> dataset,
+      TableIndexes indexes,
+      int column,
+      boolean exact,
+      String value,
+      boolean fold) {
+    return new CellCondition(dataset, indexes, column, exact, value, fold);
+  }
+
+  /**
+   * Builds a condition that the cell of a row in one column is a number in a range.
+   *
+   * @param dataset the dataset the condition is checked against
+   * @param indexes the indexes of the dataset, or null
+   * @param column the index of the column
+   * @param range the range of numbers to look for
+   * @return the condition
+   */
+  static Condition range(
+      List<List<String>> dataset, TableIndexes indexes, int column, NumberRange range) {
+    return new RangeCondition(dataset, indexes, column, range);
+  }
+
+  /**
+   * Builds a condition that any cell of a row is equal to a value, which is what a search of the
+   * whole dataset does.
+   *
+   * @param dataset the dataset the condition is checked against
+   * @param indexes the indexes of the dataset, or null
+   * @param value the value to look for
+   * @param fold true to compare the folded forms of the cells and the value
+   * @return the condition
+   */
+  static Condition anyCell(
+      List<List<String>> dataset, TableIndexes indexes, String value, boolean fold) {
+    return new RowCondition(dataset, indexes, value, fold);
+  }
+
+  /**
+   * Builds a condition that a cell of a row is within an edit distance of a value, either in one
+   * column or in any column.
+   *
+   * @param dataset the dataset the condition is checked against
+   * @param indexes the indexes of the dataset, or null
+   * @param column the index of the column, or -1 for any column
+   * @param value the value to look for
+   * @param distance the largest edit distance that counts
+   * @return the condition
+   */
+  static Condition fuzzy(
+      List<List<String>> dataset, TableIndexes indexes, int column, String value, int distance) {
+    return new FuzzyCondition(dataset, indexes, column, value, distance);
+  }
+
+  /**
+   * Works out the share of a dataset that a list of rows is.
+   *
+   * @param rows the rows
+   * @param dataset the dataset
+   * @return the share, from 0 to 1
+   */
+  private static double share(int[] rows, List<List<String>> dataset) {
+    return dataset.isEmpty() ? 0 : Math.min(1, (double) rows.length / dataset.size());
+  }
+
+  /** And matches the rows that every one of its parts match. */
+  private static final class And implements Condition {
+
+    private final Condition[] parts;
+    private final double selectivity;
+    private final int[] candidates;
+
+    /**
+     * The constructor puts the parts in order and picks the shortest list of candidates.
+     *
+     * @param parts the conditions to join
+     */
+    And(List<Condition> parts) {
+      List<Condition> sorted = new ArrayList<>(parts);
+      sorted.sort(Comparator.comparingDouble(Condition::selectivity));
+      this.parts = sorted.toArray(new Condition[0]);
+      double selectivity = 1;
+      int[] candidates = null;
+      for (Condition part : this.parts) {
+        selectivity *= part.selectivity();
+        int[] rows = part.candidates();
+        if (rows != null && (candidates == null || rows.length < candidates.length)) {
+          candidates = rows;
+        }
+      }
+      this.selectivity = selectivity;
+      this.candidates = candidates;
+    }
+
+    @Override
+    public boolean test(int row) {
+      for (Condition part : this.parts) {
+        if (!part.test(row)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public double selectivity() {
+      return this.selectivity;
+    }
+
+    @Override
+    public int[] candidates() {
+      return this.candidates;
+    }
+  }
+
+  /** Or matches the rows that at least one of its parts match. */
+  private static final class Or implements Condition {
+
+    private final Condition[] parts;
+    private final double selectivity;
+    private final int[] candidates;
+
+    /**
+     * The constructor puts the parts in order and joins their candidates, when every part has some.
+     *
+     * @param parts the conditions to join
+     */
+    Or(List<Condition> parts) {
+      List<Condition> sorted = new ArrayList<>(parts);
+      sorted.sort(Comparator.comparingDouble(Condition::selectivity).reversed());
+      this.parts = sorted.toArray(new Condition[0]);
+      double missed = 1;
+      int[] candidates = new int[0];
+      for (Condition part : this.parts) {
+        missed *= 1 - part.selectivity();
+        int[] rows = part.candidates();
+        candidates = candidates == null || rows == null ? null : union(candidates, rows);
+      }
+      this.selectivity = 1 - missed;
+      this.candidates = candidates;
+    }
+
+    /**
+     * Merges two sorted lists of rows.
+     *
+     * @param a the first list
+     * @param b the second list
+     * @return the sorted rows that are in either list, without repeats
+     */
+    private static int[] union(int[] a, int[] b) {
+      int[] merged = new int[a.length + b.length];
+      int i = 0;
+      int j = 0;
+      int count = 0;
+      while (i < a.length || j < b.length) {
+        int next;
+        if (j == b.length || (i < a.length && a[i] <= b[j])) {
+          next = a[i++];
+        } else {
+          next = b[j++];
+        }
+        if (count == 0 || merged[count - 1] != next) {
+          merged[count++] = next;
+        }
+      }
+      return Arrays.copyOf(merged, count);
+    }
+
+    @Override
+    public boolean test(int row) {
+      for (Condition part : this.parts) {
+        if (part.test(row)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public double selectivity() {
+      return this.selectivity;
+    }
+
+    @Override
+    public int[] candidates() {
+      return this.candidates;
+    }
+  }
+
+  /** Not matches the rows its part does not, so it has no candidates of its own. */
+  private static final class Not implements Condition {
+
+    private final Condition part;
+
+    /**
+     * The constructor for a turned around condition.
+     *
+     * @param part the condition to turn around
+     */
+    Not(Condition part) {
+      this.part = part;
+    }
+
+    @Override
+    public boolean test(int row) {
+      return !this.part.test(row);
+    }
+
+    @Override
+    public double selectivity() {
+      return 1 - this.part.selectivity();
+    }
+
+    @Override
+    public int[] candidates() {
+      return null;
+    }
+  }
+
+  /**
+   * CellCondition matches rows by their cell in one column. On a ColumnarTable the value is turned
+   * into a check on what the column stores once, the same way searches of one column are. The first
+   * row and rows too short for the column are checked through the row.
+   *
+   * <p>A folded condition reads the folded form of the column from the indexes instead, and has no
+   * candidates, since the indexes hold the cells as they are. Without a folded column every cell is
+   * folded as it is checked.
+   */
+  private static final class CellCondition implements Condition {
+
+    private final List<List<String>> dataset;
+    private final ColumnarTable table;
+    private final int column;
+    private final boolean exact;
+    private final boolean fold;
+    private final String value;
+    private final IntPredicate cells;
+    private final int[] candidates;
+    private final double selectivity;
+
+    /**
+     * The constructor looks up everything the condition needs from the column and its indexes.
+     *
+     * @param dataset the dataset the condition is checked against
+     * @param indexes the indexes of the dataset, or null
+     * @param column the index of the column
+     * @param exact true to match cells equal to the value, false for cells that have it anywhere
+     * @param value the value to look for
+     * @param fold true to compare the folded forms of the cells and the value
+     */
+    CellCondition(
+        List<List<String>> dataset,
+        TableIndexes indexes,
+        int column,
+        boolean exact,
+        String value,
+        boolean fold) {
+      this.dataset = dataset;
+      this.column = column;
+      this.exact = exact;
+      this.fold = fold;
+      this.value = fold ? Folding.fold(value) : value;
+      Column stored = null;
+      if (dataset instanceof ColumnarTable table && column < table.columnCount()) {
+        stored = !fold ? table.column(column) : indexes == null ? null : indexes.folded(column);
+      }
+      this.table = stored == null ? null : (ColumnarTable) dataset;
+      this.cells =
+          stored == null
+              ? null
+              : exact ? stored.equalTo(this.value) : stored.containing(this.value);
+      this.candidates = fold ? null : candidatesOf(indexes, column, exact, value);
+      ColumnStats stats = indexes == null ? null : indexes.stats(column);
+      if (this.candidates != null) {
+        this.selectivity = share(this.candidates, dataset);
+      } else if (stored != null && this.cells == null) {
+        this.selectivity = 0;
+      } else if (stats != null) {
+        this.selectivity = exact ? stats.equalShare() : stats.presentShare() * CONTAINS_GUESS;
+      } else {
+        this.selectivity = exact ? EQUALS_GUESS : CONTAINS_GUESS;
+      }
+    }
+
+    /**
+     * Looks up the rows that could match in the indexes: the rows that have the value in any cell
+     * for an exact match, and the candidates of the trigram index of the column for a substring.
+     *
+     * @param indexes the indexes of the dataset, or null
+     * @param column the index of the column
+     * @param exact whether the match is exact
+     * @param value the value to look for
+     * @return the sorted indices of the rows that could match, or null
+     */
+    private static int[] candidatesOf(
+        TableIndexes indexes, int column, boolean exact, String value) {
+      if (indexes == null) {
+        return null;
+      }
+      if (exact) {
+        return indexes.rowsWith(value);
+      }
+      TrigramIndex trigrams = indexes.trigram(column);
+      int[] cells = trigrams == null || !trigrams.isComplete() ? null : trigrams.candidates(value);
+      if (cells == null) {
+        return null;
+      }
+      int[] rows = new int[cells.length];
+      for (int i = 0; i < cells.length; i++) {
+        rows[i] = cells[i] + 1;
+      }
+      return rows;
+    }
+
+    @Override
+    public boolean test(int row) {
+      if (this.table == null || row == 0 || this.column >= this.table.width(row)) {
+        List<String> cells = this.dataset.get(row);
+        if (this.column >= cells.size()) {
+          return false;
+        }
+        String cell = this.fold ? Folding.fold(cells.get(this.column)) : cells.get(this.column);
+        return this.exact ? cell.equals(this.value) : cell.contains(this.value);
+      }
+      return this.cells != null && this.cells.test(row - 1);
+    }
+
+    @Override
+    public double selectivity() {
+      return this.selectivity;
+    }
+
+    @Override
+    public int[] candidates() {
+      return this.candidates;
+    }
+  }
+
+  /**
+   * RangeCondition matches rows whose cell in one column is a number in a range. A numeric column
+   * of a ColumnarTable is read as numbers, and its range index says exactly which rows match. Other
+   * cells, like those of the first row, are read as numbers from their strings.
+   */
+  private static final class RangeCondition implements Condition {
+
+    private final List<List<String>> dataset;
+    private final Column numbers;
+    private final ColumnarTable table;
+    private final int column;
+    private final NumberRange range;
+    private final RangeIndex index;
+    private int[] candidates;
+
+    /**
+     * The constructor looks the range up in the range index of the column, when there is one.
+     *
+     * @param dataset the dataset the condition is checked against
+     * @param indexes the indexes of the dataset, or null
+     * @param column the index of the column
+     * @param range the range of numbers to look for
+     */
+    RangeCondition(
+        List<List<String>> dataset, TableIndexes indexes, int column, NumberRange range) {
+      this.dataset = dataset;
+      this.column = column;
+      this.range = range;
+      if (dataset instanceof ColumnarTable table
+          && column < table.columnCount()
+          && table.column(column).type() != ColumnType.STRING) {
+        this.table = table;
+        this.numbers = table.column(column);
+      } else {
+        this.table = null;
+        this.numbers = null;
+      }
+      this.index = indexes == null ? null : indexes.range(column);
+    }
+
+    @Override
+    public boolean test(int row) {
+      if (this.numbers == null || row == 0 || this.column >= this.table.width(row)) {
+        List<String> cells = this.dataset.get(row);
+        return this.column < cells.size() && this.range.containsCell(cells.get(this.column));
+      }
+      return this.range.contains(this.numbers.number(row - 1));
+    }
+
+    @Override
+    public double selectivity() {
+      if (this.index == null) {
+        return RANGE_GUESS;
+      }
+      return this.dataset.isEmpty()
+          ? 0
+          : Math.min(1, (double) this.index.count(this.range) / this.dataset.size());
+    }
+
+    @Override
+    public int[] candidates() {
+      // the rows are only listed when they are asked for, since a count does not need them
+      if (this.candidates == null && this.index != null) {
+        this.candidates = this.index.rows(this.range);
+      }
+      return this.candidates;
+    }
+
+    @Override
+    public boolean exact() {
+      // the range index holds every cell in the range and no other
+      return this.index != null;
+    }
+
+    @Override
+    public int count() {
+      return this.index == null ? -1 : this.index.count(this.range);
+    }
+  }
+
+  /**
+   * RowCondition matches rows that have a cell exactly equal to a value in any column. A folded
+   * condition compares the folded forms of the columns kept by the indexes, or folds every cell as
+   * it is checked when there are none.
+   */
+  private static final class RowCondition implements Condition {
+
+    private final List<List<String>> dataset;
+    private final boolean fold;
+    private final String value;
+    private final IntPredicate rows;
+    private final int[] candidates;
+
+    /**
+     * The constructor looks the value up in the inverted index, when there is one.
+     *
+     * @param dataset the dataset the condition is checked against
+     * @param indexes the indexes of the dataset, or null
+     * @param value the value to look for
+     * @param fold true to compare the folded forms of the cells and the value
+     */
+    RowCondition(List<List<String>> dataset, TableIndexes indexes, String value, boolean fold) {
+      this.dataset = dataset;
+      this.fold = fold;
+      this.value = fold ? Folding.fold(value) : value;
+      if (!(dataset instanceof ColumnarTable table) || (fold && indexes == null)) {
+        this.rows = null;
+      } else if (fold) {
+        this.rows = anyFoldedCellEquals(table, indexes, this.value);
+      } else {
+        this.rows = table.anyCellEquals(value);
+      }
+      this.candidates = fold || indexes == null ? null : indexes.rowsWith(value);
+    }
+
+    /**
+     * Builds a check for rows that have a cell whose folded form is equal to a folded value, in the
+     * same way as ColumnarTable.anyCellEquals.
+     *
+     * @param table the loaded table
+     * @param indexes the indexes of the table, which hold the folded columns
+     * @param value the folded value
+     * @return a check that takes the index of a row of the table
+     */
+    private static IntPredicate anyFoldedCellEquals(
+        ColumnarTable table, TableIndexes indexes, String value) {
+      List<IntPredicate> checks = new ArrayList<>();
+      List<Integer> columns = new ArrayList<>();
+      for (int c = 0; c < table.columnCount(); c++) {
+        IntPredicate check = indexes.folded(c).equalTo(value);
+        if (check != null) {
+          checks.add(check);
+          columns.add(c);
+        }
+      }
+      return row -> {
+        if (row == 0) {
+          return table.get(0).stream().anyMatch(cell -> Folding.fold(cell).equals(value));
+        }
+        int width = table.width(row);
+        for (int i = 0; i < checks.size(); i++) {
+          if (columns.get(i) < width && checks.get(i).test(row - 1)) {
+            return true;
+          }
+        }
+        return false;
+      };
+    }
+
+    @Override
+    public boolean test(int row) {
+      if (this.rows != null) {
+        return this.rows.test(row);
+      }
+      if (this.fold) {
+        return this.dataset.get(row).stream()
+            .anyMatch(cell -> Folding.fold(cell).equals(this.value));
+      }
+      return this.dataset.get(row).contains(this.value);
+    }
+
+    @Override
+    public double selectivity() {
+      return this.candidates != null ? share(this.candidates, this.dataset) : EQUALS_GUESS;
+    }
+
+    @Override
+    public int[] candidates() {
+      return this.candidates;
+    }
+  }
+
+  /**
+   * FuzzyCondition matches rows with a cell within an edit distance of a value. On a loaded table,
+   * the BK-tree of every column it looks at finds the distinct values that are close enough once,
+   * so a row only has to have one of those values, and the rows with them are the candidates.
+   * Otherwise, like for the first row, the distance to every cell is worked out as it is checked.
+   */
+  private static final class FuzzyCondition implements Condition {
+
+    private final List<List<String>> dataset;
+    private final ColumnarTable table;
+    private final int column;
+    private final String value;
+    private final int distance;
+    private final List<Set<String>> near;
+    private final int[] candidates;
+
+    /**
+     * The constructor looks up the values that are close enough in the BK-tree of every column it
+     * looks at, when there are any.
+     *
+     * @param dataset the dataset the condition is checked against
+     * @param indexes the indexes of the dataset, or null
+     * @param column the index of the column, or -1 for any column
+     * @param value the value to look for
+     * @param distance the largest edit distance that counts
+     */
+    FuzzyCondition(
+        List<List<String>> dataset, TableIndexes indexes, int column, String value, int distance) {
+      this.dataset = dataset;
+      this.column = column;
+      this.value = value;
+      this.distance = distance;
+      if (indexes == null || !(dataset instanceof ColumnarTable table)) {
+        this.table = null;
+        this.near = null;
+        this.candidates = null;
+        return;
+      }
+      this.table = table;
+      this.near = new ArrayList<>(table.columnCount());
+      RowList rows = new RowList();
+      for (int c = 0; c < table.columnCount(); c++) {
+        if (column != -1 && c != column) {
+          this.near.add(Set.of());
+          continue;
+        }
+        Set<String> values = new HashSet<>(indexes.fuzzy(c).within(value, distance));
+        this.near.add(values);
+        for (String near : values) {
+          for (int row : indexes.rowsWith(near)) {
+            rows.add(row);
+          }
+        }
+      }
+      this.candidates = rows.toSortedArray();
+    }
+
+    @Override
+    public boolean test(int row) {
+      if (this.table == null || row == 0) {
+        List<String> cells = this.dataset.get(row);
+        for (int c = 0; c < cells.size(); c++) {
+          if ((this.column == -1 || c == this.column)
+              && EditDistance.within(cells.get(c), this.value, this.distance)) {
+            return true;
+          }
+        }
+        return false;
+      }
+      int width = Math.min(this.table.width(row), this.near.size());
+      for (int c = 0; c < width; c++) {
+        Set<String> values = this.near.get(c);
+        if (!values.isEmpty() && values.contains(this.table.column(c).get(row - 1))) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public double selectivity() {
+      return this.candidates != null ? share(this.candidates, this.dataset) : EQUALS_GUESS;
+    }
+
+    @Override
+    public int[] candidates() {
+      return this.candidates;
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package edu.brown.cs.student.main.searcher;
+
+/**
+ * EditDistance works out the Levenshtein distance between two strings: the fewest characters that
+ * have to be inserted, deleted or replaced to turn one into the other. Both methods keep only two
+ * rows of the usual table, so they take room for the length of one string and not for both.
+ */
+final class EditDistance {
+
+  /** The constructor is private, since EditDistance only has static methods. */
+  private EditDistance() {}
+
+  /**
+   * Works out the distance between two strings.
+   *
+   * @param a the first string
+   * @param b the second string
+   * @return the distance
+   */
+  static int distance(String a, String b) {
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      current[0] = i;
+      char c = a.charAt(i - 1);
+      for (int j = 1; j <= b.length(); j++) {
+        int replace = previous[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+        current[j] = Math.min(replace, Math.min(previous[j], current[j - 1]) + 1);
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[b.length()];
+  }
+
+  /**
+   * Checks whether two strings are at most a distance apart. Strings whose lengths are further
+   * apart than that are ruled out at once, and the table stops as soon as a whole row of it is over
+   * the distance, since the rows below can only be further.
+   *
+   * @param a the first string
+   * @param b the second string
+   * @param limit the largest distance that counts
+   * @return true if the distance between the strings is at most limit
+   */
+  static boolean within(String a, String b, int limit) {
+    if (Math.abs(a.length() - b.length()) > limit) {
+      return false;
+    }
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      current[0] = i;
+      int best = i;
+      char c = a.charAt(i - 1);
+      for (int j = 1; j <= b.length(); j++) {
+        int replace = previous[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+        current[j] = Math.min(replace, Math.min(previous[j], current[j - 1]) + 1);
+        best = Math.min(best, current[j]);
+      }
+      if (best > limit) {
+        return false;
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[b.length()] <= limit;
+  }
+}
@@ -0,0 +1,45 @@
+package edu.brown.cs.student.main.searcher;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * IndexSort sorts arrays of row or cell indices by something the caller looks up for every index,
+ * like the number of a cell. It is a bottom-up merge sort, which keeps indices that compare the
+ * same in the order they were in and never boxes an index, so the indexes that need a stable order
+ * of a column share it.
+ */
+final class IndexSort {
+
+  private IndexSort() {}
+
+  /**
+   * Sorts indices with a bottom-up merge sort.
+   *
+   * @param indices the indices to sort, which may be reused for the result
+   * @param compare compares two indices, like a Comparator
+   * @return the sorted indices
+   */
+  static int[] sort(int[] indices, IntBinaryOperator compare) {
+    int[] from = indices;
+    int[] to = new int[indices.length];
+    for (int width = 1; width < indices.length; width *= 2) {
+      for (int start = 0; start < indices.length; start += 2 * width) {
+        int middle = Math.min(start + width, indices.length);
+        int end = Math.min(start + 2 * width, indices.length);
+        int i = start;
+        int j = middle;
+        for (int k = start; k < end; k++) {
+          if (j >= end || (i < middle && compare.applyAsInt(from[i], from[j]) <= 0)) {
+            to[k] = from[i++];
+          } else {
+            to[k] = from[j++];
+          }
+        }
+      }
+      int[] swap = from;
+      from = to;
+      to = swap;
+    }
+    return from;
+  }
+}
@@ -0,0 +1,58 @@
+package edu.brown.cs.student.main.searcher;
+
+import edu.brown.cs.student.main.columns.Column;
+import edu.brown.cs.student.main.columns.ColumnarTable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * InvertedIndex maps every distinct cell value of a table to the rows that have a cell with that
+ * value. It is built once when a dataset is loaded, so a search of the whole dataset for a word is
+ * a single lookup instead of a look at every cell of every row.
+ *
+ * <p>The rows of a value are kept as a sorted array of row indices without repeats, so the rows
+ * come out in the order they are in the file, and a row with the value in two cells is found once.
+ * The first row is indexed like any other, and skipping it when it is a header is up to the caller.
+ */
+public class InvertedIndex {
+
+  private static final int[] NO_ROWS = new int[0];
+
+  private final Map<String, int[]> rows;
+
+  /**
+   * The constructor indexes every cell of the table, one column at a time.
+   *
+   * @param table the table to index
+   */
+  public InvertedIndex(ColumnarTable table) {
+    Map<String, RowList> building = new HashMap<>();
+    if (!table.isEmpty()) {
+      for (String cell : table.get(0)) {
+        building.computeIfAbsent(cell, value -> new RowList()).add(0);
+      }
+    }
+    for (int c = 0; c < table.columnCount(); c++) {
+      Column column = table.column(c);
+      for (int r = 0; r < column.size(); r++) {
+        if (c < table.width(r + 1)) {
+          building.computeIfAbsent(column.get(r), value -> new RowList()).add(r + 1);
+        }
+      }
+    }
+    this.rows = new HashMap<>(building.size() * 4 / 3 + 1);
+    for (Map.Entry<String, RowList> entry : building.entrySet()) {
+      this.rows.put(entry.getKey(), entry.getValue().toSortedArray());
+    }
+  }
+
+  /**
+   * Looks up the rows that have a cell exactly equal to the value.
+   *
+   * @param value the value to look for
+   * @return the indices of the rows, sorted and without repeats, and empty if there are none
+   */
+  public int[] rows(String value) {
+    return this.rows.getOrDefault(value, NO_ROWS);
+  }
+}
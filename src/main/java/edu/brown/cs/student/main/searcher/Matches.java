@@ -0,0 +1,340 @@
+package edu.brown.cs.student.main.searcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Matches is a search that was worked out but not run yet: the row it starts at, the rows an index
+ * said could match, and the check every row has to pass. It can be run for every matching row, for
+ * a page of them that stops the search as soon as the page is full, for the first few of them, or
+ * only to count them without building any rows.
+ *
+ * <p>When there are no rows from an index, every row from the start is checked. Below the parallel
+ * threshold this is a plain loop. Above it, whole-result runs and counts split the rows into chunks
+ * that are scanned on the pool, and the chunks are joined in order so the rows stay in file order.
+ * Pages are always scanned on the calling thread, since they stop early.
+ *
+ * <p>When an index knows exactly which rows match, like the range index, the rows are only listed
+ * when they are asked for, and a count is answered by the index without listing them.
+ */
+public final class Matches {
+
+  /** The fewest rows a chunk of a parallel scan has, so that every task is worth its overhead. */
+  private static final int MIN_CHUNK_ROWS = 1 << 13;
+
+  private final List<List<String>> dataset;
+  private final ForkJoinPool pool;
+  private final int parallelThreshold;
+  private final int from;
+  private final IntPredicate test;
+  private final Supplier<int[]> lookup;
+  private final IntSupplier counter;
+  private int[] rows;
+
+  /**
+   * The constructor for a search that is ready to run.
+   *
+   * @param dataset the dataset that is searched
+   * @param pool the pool that scans of big datasets run on
+   * @param parallelThreshold the fewest rows a dataset needs to be scanned in parallel
+   * @param from the index of the first row to look at, 1 to skip a header
+   * @param rows the sorted indices of every row that could match, or null to look at every row
+   * @param test the check a row has to pass, or null if every row in rows matches
+   */
+  Matches(
+      List<List<String>> dataset,
+      ForkJoinPool pool,
+      int parallelThreshold,
+      int from,
+      int[] rows,
+      IntPredicate test) {
+    this.dataset = dataset;
+    this.pool = pool;
+    this.parallelThreshold = parallelThreshold;
+    this.from = from;
+    this.rows = rows;
+    this.test = test;
+    this.lookup = null;
+    this.counter = null;
+  }
+
+  /**
+   * The constructor for a search whose rows an index knows exactly, which only lists the rows when
+   * they are asked for and counts them straight from the index.
+   *
+   * @param dataset the dataset that is searched
+   * @param pool the pool that scans of big datasets run on
+   * @param parallelThreshold the fewest rows a dataset needs to be scanned in parallel
+   * @param from the index of the first row to look at, 1 to skip a header
+   * @param lookup lists the sorted indices of every row that matches
+   * @param counter counts the rows that match, without listing them
+   */
+  Matches(
+      List<List<String>> dataset,
+      ForkJoinPool pool,
+      int parallelThreshold,
+      int from,
+      Supplier<int[]> lookup,
+      IntSupplier counter) {
+    this.dataset = dataset;
+    this.pool = pool;
+    this.parallelThreshold = parallelThreshold;
+    this.from = from;
+    this.test = null;
+    this.lookup = lookup;
+    this.counter = counter;
+  }
+
+  /**
+   * Finds every matching row.
+   *
+   * @return the rows that matched, in order
+   */
+  public List<List<String>> all() {
+    this.lookUp();
+    if (this.rows == null) {
+      return this.scan();
+    }
+    List<List<String>> found = new ArrayList<>();
+    for (int i = this.firstCandidate(this.from); i < this.rows.length; i++) {
+      if (this.test == null || this.test.test(this.rows[i])) {
+        found.add(this.dataset.get(this.rows[i]));
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Finds the indices of every matching row without building any of the rows, for callers that put
+   * the rows in another order before they read them.
+   *
+   * @return the indices of the rows that matched, in order
+   */
+  public int[] indices() {
+    this.lookUp();
+    if (this.rows != null) {
+      int first = this.firstCandidate(this.from);
+      int[] found = new int[this.rows.length - first];
+      int count = 0;
+      for (int i = first; i < this.rows.length; i++) {
+        if (this.test == null || this.test.test(this.rows[i])) {
+          found[count++] = this.rows[i];
+        }
+      }
+      return Arrays.copyOf(found, count);
+    }
+    List<int[]> chunks = this.inChunks(this::indexChunk);
+    int[] found = new int[chunks.stream().mapToInt(chunk -> chunk.length).sum()];
+    int count = 0;
+    for (int[] chunk : chunks) {
+      System.arraycopy(chunk, 0, found, count, chunk.length);
+      count += chunk.length;
+    }
+    return found;
+  }
+
+  /**
+   * Finds one page of matching rows, stopping the search as soon as the page is full.
+   *
+   * @param resume the index of the row to go on from, 0 for the first page
+   * @param skip the number of matching rows to leave out before the page starts
+   * @param limit the most rows the page has
+   * @return the page, with where to go on from for the next one
+   */
+  public Page page(int resume, int skip, int limit) {
+    List<List<String>> found = new ArrayList<>();
+    int start = Math.max(this.from, resume);
+    int skipped = 0;
+    this.lookUp();
+    if (this.rows == null) {
+      for (int row = start; row < this.dataset.size() && found.size() < limit; row++) {
+        if (this.test.test(row) && skipped++ >= skip) {
+          found.add(this.dataset.get(row));
+          if (found.size() == limit) {
+            return new Page(found, row + 1 < this.dataset.size() ? row + 1 : -1);
+          }
+        }
+      }
+      return new Page(found, -1);
+    }
+    for (int i = this.firstCandidate(start); i < this.rows.length; i++) {
+      int row = this.rows[i];
+      if ((this.test == null || this.test.test(row)) && skipped++ >= skip) {
+        found.add(this.dataset.get(row));
+        if (found.size() == limit) {
+          return new Page(found, i + 1 < this.rows.length ? row + 1 : -1);
+        }
+      }
+    }
+    return new Page(found, -1);
+  }
+
+  /**
+   * Finds where the rows from the index reach a given row.
+   *
+   * @param row the index of the row
+   * @return the position of the first row from the index that is at or after it
+   */
+  private int firstCandidate(int row) {
+    int start = Arrays.binarySearch(this.rows, row);
+    return start < 0 ? -start - 1 : start;
+  }
+
+  /**
+   * Lists the rows of a search whose rows an index knows exactly, the first time they are needed.
+   */
+  private void lookUp() {
+    if (this.rows == null && this.lookup != null) {
+      this.rows = this.lookup.get();
+    }
+  }
+
+  /**
+   * Counts the matching rows without building any of them. Rows from an index that need no check
+   * are counted straight from the index.
+   *
+   * @return the number of rows that matched
+   */
+  public int count() {
+    if (this.counter != null) {
+      return this.counter.getAsInt();
+    }
+    if (this.rows != null) {
+      int first = this.firstCandidate(this.from);
+      if (this.test == null) {
+        return this.rows.length - first;
+      }
+      int count = 0;
+      for (int i = first; i < this.rows.length; i++) {
+        if (this.test.test(this.rows[i])) {
+          count++;
+        }
+      }
+      return count;
+    }
+    int count = 0;
+    for (int chunk : this.inChunks(this::countChunk)) {
+      count += chunk;
+    }
+    return count;
+  }
+
+  /**
+   * Finds the first matching rows, stopping the search as soon as there are enough.
+   *
+   * @param k the most rows to find
+   * @return the first k rows that matched, or fewer if fewer matched, in order
+   */
+  public List<List<String>> first(int k) {
+    return this.page(0, 0, k).rows();
+  }
+
+  /**
+   * Goes through every row from the start and keeps the ones that pass the check, in parallel when
+   * the dataset is big enough.
+   *
+   * @return the rows that matched, in order
+   */
+  private List<List<String>> scan() {
+    List<List<String>> found = new ArrayList<>();
+    for (List<List<String>> chunk : this.inChunks(this::scanChunk)) {
+      found.addAll(chunk);
+    }
+    return found;
+  }
+
+  /**
+   * Runs a task over the rows from the start in chunks. Below the parallel threshold there is one
+   * chunk that runs on the calling thread, and above it the chunks run on the pool.
+   *
+   * @param task the task, which takes the first row of a chunk and the row just past its last
+   * @param <T> what the task finds in a chunk
+   * @return what the task found in every chunk, in row order
+   */
+  private <T> List<T> inChunks(BiFunction<Integer, Integer, T> task) {
+    int size = this.dataset.size();
+    if (size - this.from < this.parallelThreshold) {
+      return List.of(task.apply(this.from, size));
+    }
+    int parts =
+        Math.max(1, Math.min(4 * this.pool.getParallelism(), (size - this.from) / MIN_CHUNK_ROWS));
+    int chunkRows = (size - this.from + parts - 1) / parts;
+    List<ForkJoinTask<T>> tasks = new ArrayList<>();
+    for (int start = this.from; start < size; start += chunkRows) {
+      int chunkStart = start;
+      int chunkEnd = Math.min(size, start + chunkRows);
+      tasks.add(this.pool.submit(() -> task.apply(chunkStart, chunkEnd)));
+    }
+    List<T> results = new ArrayList<>(tasks.size());
+    for (ForkJoinTask<T> chunk : tasks) {
+      results.add(chunk.join());
+    }
+    return results;
+  }
+
+  /**
+   * Goes through one range of rows and keeps the ones that pass the check.
+   *
+   * @param from the index of the first row of the range
+   * @param to the index just past the last row of the range
+   * @return the rows that matched, in order
+   */
+  private List<List<String>> scanChunk(int from, int to) {
+    List<List<String>> found = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      if (this.test.test(i)) {
+        found.add(this.dataset.get(i));
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Goes through one range of rows and keeps the indices of the ones that pass the check.
+   *
+   * @param from the index of the first row of the range
+   * @param to the index just past the last row of the range
+   * @return the indices of the rows that matched, in order
+   */
+  private int[] indexChunk(int from, int to) {
+    RowList found = new RowList();
+    for (int i = from; i < to; i++) {
+      if (this.test.test(i)) {
+        found.add(i);
+      }
+    }
+    return found.toSortedArray();
+  }
+
+  /**
+   * Goes through one range of rows and counts the ones that pass the check.
+   *
+   * @param from the index of the first row of the range
+   * @param to the index just past the last row of the range
+   * @return the number of rows that matched
+   */
+  private int countChunk(int from, int to) {
+    int count = 0;
+    for (int i = from; i < to; i++) {
+      if (this.test.test(i)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Page is one page of the rows of a search.
+   *
+   * @param rows the rows of the page, in order
+   * @param next the index of the row the next page goes on from, or -1 if there are no more rows
+   */
+  public record Page(List<List<String>> rows, int next) {}
+}
@@ -1,7 +1,14 @@
 package edu.brown.cs.student.main.searcher;
 
+import edu.brown.cs.student.main.columns.Column;
+import edu.brown.cs.student.main.columns.ColumnarTable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
 
 /**
  * MySearcher is a class that is responsible for searching through a given dataset of parsed data.
@@ -9,16 +16,44 @@ import java.util.List;
  * the search of the word would be O(M * N), where M is the number of rows and N is the size of one
  * row. MySearcher creates a List of every row that has a match with the search word and stores it
  * as a field
+ *
+ * <p>A searcher can also be built once for a loaded table and shared by every request: search takes
+ * the header flag and narrow key with the word, keeps nothing between calls, and can run from any
+ * number of threads at once. Scans of datasets with at least parallelThreshold rows are split into
+ * chunks that run on a ForkJoinPool, and the matches are put back together in row order. A search
+ * can also be worked out as Matches without running it, to get one page of its rows at a time.
+ *
+ * <p>Narrow specifiers are turned into a QueryPlan once. Column names are looked up in a map of the
+ * first row that is built with the searcher, and a shared searcher keeps the plans it made, so a
+ * repeated search goes straight to its scan or index lookup.
+ *
+ * <p>A shared searcher also runs queries that join searches of several columns with AND, OR and NOT
+ * (see QueryCompiler), so a client does not have to run every search on its own and join the rows.
  */
 public class MySearcher {
 
+  /** Datasets with fewer rows than this are always scanned on the calling thread. */
+  public static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  /** The most plans a shared searcher keeps before it starts over with none. */
+  private static final int MAX_PLANS = 1024;
+
+  /**
+   * The most compiled queries a shared searcher keeps. A compiled query can hold lists of rows from
+   * the indexes, so fewer of them are kept than plans.
+   */
+  private static final int MAX_QUERIES = 64;
+
   private ArrayList<List<String>> found = new ArrayList<>();
 
   private final List<List<String>> dataset;
-  private int narrowIndex;
-  private final String narrow;
-  private final boolean isHeader;
-  private int startIndex;
+  private final TableIndexes indexes;
+  private final ForkJoinPool pool;
+  private final int parallelThreshold;
+  private final Map<String, Integer> columnNames;
+  private final Map<PlanKey, QueryPlan> plans = new ConcurrentHashMap<>();
+  private final Map<QueryKey, Condition> queries = new ConcurrentHashMap<>();
+  private final QueryPlan plan;
 
   /**
    * Constructor for the MySearcher class.
@@ -29,30 +64,95 @@ public class MySearcher {
    */
   public MySearcher(List<List<String>> dataset, boolean header, String key) {
     this.dataset = dataset;
-    this.narrow = key;
-    this.isHeader = header;
-    this.setUp();
+    this.indexes = null;
+    this.pool = ForkJoinPool.commonPool();
+    this.parallelThreshold = PARALLEL_THRESHOLD;
+    this.columnNames = columnNames(dataset);
+    this.plan = this.setUp(header, key);
+  }
+
+  /**
+   * Constructor for a searcher over a loaded table, which looks up searches of the whole dataset in
+   * the inverted index of the table instead of going through its rows, and narrows searches of a
+   * column down with its trigram index when one was built.
+   *
+   * @param table the loaded table
+   * @param indexes the indexes that were built for the table
+   * @param header boolean value to indicate whether the dataset has a header
+   * @param key a string that narrows down the search, if provided by user. Defaults to NULL in main
+   */
+  public MySearcher(ColumnarTable table, TableIndexes indexes, boolean header, String key) {
+    this.dataset = table;
+    this.indexes = indexes;
+    this.pool = ForkJoinPool.commonPool();
+    this.parallelThreshold = PARALLEL_THRESHOLD;
+    this.columnNames = columnNames(table);
+    this.plan = this.setUp(header, key);
+  }
+
+  /**
+   * Constructor for a searcher that is shared by every search of a loaded table. It is used through
+   * search, which takes the header flag and narrow key of each request.
+   *
+   * @param table the loaded table
+   * @param indexes the indexes that were built for the table
+   * @param pool the pool that scans of big datasets run on
+   * @param parallelThreshold the fewest rows a dataset needs to be scanned in parallel
+   */
+  public MySearcher(
+      ColumnarTable table, TableIndexes indexes, ForkJoinPool pool, int parallelThreshold) {
+    this.dataset = table;
+    this.indexes = indexes;
+    this.pool = pool;
+    this.parallelThreshold = parallelThreshold;
+    this.columnNames = columnNames(table);
+    this.plan = null;
+  }
+
+  /**
+   * Maps every name in the first row of a dataset to its column. When a name shows up more than
+   * once, the first column keeps it, the same as indexOf on the row.
+   *
+   * @param dataset the dataset whose first row is mapped
+   * @return the column of every name in the first row
+   */
+  private static Map<String, Integer> columnNames(List<List<String>> dataset) {
+    Map<String, Integer> names = new HashMap<>();
+    if (!dataset.isEmpty()) {
+      List<String> first = dataset.get(0);
+      for (int i = 0; i < first.size(); i++) {
+        names.putIfAbsent(first.get(i), i);
+      }
+    }
+    return names;
   }
 
   /**
    * This method is in a way a helper method for the constructor. Based on the parameters that we
-   * take in, we change the startIndex and narrowIndex fields. If we have a header, we want to start
-   * looking for our matches starting with our second row in the dataset, hence the startIndex. The
-   * switch case of this method is responsible for determining whether a user indicated that the
-   * search is done through a name of the column, an index, or if it's a search of the whole dataset
-   */
-  private void setUp() {
-    if (this.isHeader) {
-      this.startIndex = 1;
+   * take in, we find the startIndex and narrowIndex of the search. If we have a header, we want to
+   * start looking for our matches starting with our second row in the dataset, hence the
+   * startIndex. The switch case of this method is responsible for determining whether a user
+   * indicated that the search is done through a name of the column, an index, or if it's a search
+   * of the whole dataset
+   *
+   * @param isHeader boolean value to indicate whether the dataset has a header
+   * @param narrow a string that narrows down the search, or NULL
+   * @return the plan of the search, with a narrowIndex of -1 for every column
+   */
+  private QueryPlan setUp(boolean isHeader, String narrow) {
+    int startIndex;
+    int narrowIndex;
+    if (isHeader) {
+      startIndex = 1;
     } else {
-      this.startIndex = 0;
+      startIndex = 0;
     }
-    String match = this.narrow.substring(0, 4).toLowerCase();
+    String match = narrow.substring(0, 4).toLowerCase();
     switch (match) {
       case "ind:" -> {
         try {
-          this.narrowIndex = Integer.parseInt(this.narrow.substring(4).strip());
-          if (this.narrowIndex >= this.dataset.get(0).size()) {
+          narrowIndex = Integer.parseInt(narrow.substring(4).strip());
+          if (narrowIndex >= this.dataset.get(0).size()) {
             System.err.println("Please make sure that you provide a valid Index");
             throw new IllegalArgumentException("Please provide a valid index");
           }
@@ -62,44 +162,316 @@ public class MySearcher {
         }
       }
       case "nam:" -> {
-        if (this.isHeader) {
-          this.narrowIndex = this.dataset.get(0).indexOf(this.narrow.substring(4).strip());
+        if (isHeader) {
+          narrowIndex = this.columnNames.getOrDefault(narrow.substring(4).strip(), -1);
         } else {
           System.err.println("Please only search by column name when the header row is present");
           throw new IllegalArgumentException("Searching by column name without header row");
         }
       }
-      default -> this.narrowIndex = -1;
+      default -> narrowIndex = -1;
+    }
+    Column column = null;
+    TrigramIndex trigrams = null;
+    if (narrowIndex != -1
+        && this.dataset instanceof ColumnarTable table
+        && narrowIndex < table.columnCount()) {
+      column = table.column(narrowIndex);
+      trigrams = this.indexes == null ? null : this.indexes.trigram(narrowIndex);
+      if (trigrams != null && !trigrams.isComplete()) {
+        trigrams = null;
+      }
     }
+    return new QueryPlan(startIndex, narrowIndex, column, trigrams);
+  }
+
+  /**
+   * Gets the plan of a search, making it the first time the header flag and narrow key come in and
+   * reusing it after that. Plans that fail to be made are not kept, so a bad key fails every time.
+   *
+   * @param header boolean value to indicate whether the dataset has a header
+   * @param key a string that narrows down the search
+   * @return the plan of the search
+   */
+  public QueryPlan plan(boolean header, String key) {
+    PlanKey planKey = new PlanKey(header, key);
+    QueryPlan cached = this.plans.get(planKey);
+    if (cached != null) {
+      return cached;
+    }
+    QueryPlan made = this.setUp(header, key);
+    if (this.plans.size() >= MAX_PLANS) {
+      this.plans.clear();
+    }
+    this.plans.put(planKey, made);
+    return made;
   }
 
   /**
    * indexSearch is only called when there is correct column index we are interested in (which is
    * either a match with the colum name or index itself). IT ONLY LOOKS FOR ROW ENTRIES OF THAT
-   * INDEX
+   * INDEX. The cells are checked by the column itself, which for packed strings means looking for
+   * the bytes of the search word without decoding the cells. When the column has a trigram index,
+   * only the cells that have every three-character run of the search word are checked, along with
+   * the first row when it is not a header, since the first row is not indexed.
    *
+   * @param plan where the search starts and which column it looks at
    * @param toFind the search word
+   * @return the search, ready to run
    */
-  private void indexSearch(String toFind) {
-    for (int i = this.startIndex; i < this.dataset.size(); i++) {
-      List<String> row = this.dataset.get(i);
-      if (row.get(this.narrowIndex).contains(toFind)) {
-        this.found.add(row);
-      }
+  private Matches indexSearch(QueryPlan plan, String toFind) {
+    int narrowIndex = plan.narrowIndex();
+    IntPredicate test;
+    if (plan.column() != null && this.dataset instanceof ColumnarTable table) {
+      IntPredicate cells = plan.column().containing(toFind);
+      // the first row and rows that are too short go through the row, the same as a list
+      test =
+          i ->
+              i == 0 || narrowIndex >= table.width(i)
+                  ? table.get(i).get(narrowIndex).contains(toFind)
+                  : cells != null && cells.test(i - 1);
+    } else {
+      test = i -> this.dataset.get(i).get(narrowIndex).contains(toFind);
+    }
+    int[] candidates = plan.trigrams() == null ? null : plan.trigrams().candidates(toFind);
+    if (candidates == null) {
+      return this.matches(plan.startIndex(), null, test);
     }
+    int first = plan.startIndex() == 0 ? 1 : 0;
+    int[] rows = new int[candidates.length + first];
+    for (int i = 0; i < candidates.length; i++) {
+      rows[i + first] = candidates[i] + 1;
+    }
+    return this.matches(plan.startIndex(), rows, test);
   }
 
   /**
-   * allSearch loops through the whole dataset and looks for any matches with the search word.
+   * allSearch loops through the whole dataset and looks for any matches with the search word. When
+   * the searcher has an inverted index, this is a single lookup of the rows that have the word,
+   * skipping the header row if there is one. Otherwise, when the dataset is a ColumnarTable, the
+   * search word is turned into what every column stores (a number or a dictionary code) once, and
+   * the rows are compared on those instead of on strings. When the searcher has block filters
+   * instead of an inverted index, only the rows of blocks whose filter might hold the word are
+   * compared.
    *
+   * @param plan where the search starts
    * @param toFind the search word
+   * @return the search, ready to run
+   */
+  private Matches allSearch(QueryPlan plan, String toFind) {
+    if (this.indexes != null && this.indexes.inverted() != null) {
+      return this.matches(plan.startIndex(), this.indexes.inverted().rows(toFind), null);
+    }
+    if (this.dataset instanceof ColumnarTable table) {
+      int[] rows = this.indexes == null ? null : this.indexes.blocks().rows(toFind);
+      return this.matches(plan.startIndex(), rows, table.anyCellEquals(toFind));
+    }
+    return this.matches(plan.startIndex(), null, i -> this.dataset.get(i).contains(toFind));
+  }
+
+  /**
+   * Builds a search that is ready to run on the dataset of this searcher.
+   *
+   * @param from the index of the first row to look at
+   * @param rows the sorted indices of every row that could match, or null to look at every row
+   * @param test the check a row has to pass, or null if every row in rows matches
+   * @return the search, ready to run
+   */
+  private Matches matches(int from, int[] rows, IntPredicate test) {
+    return new Matches(this.dataset, this.pool, this.parallelThreshold, from, rows, test);
+  }
+
+  /**
+   * Searches the dataset for a word. Unlike findRows, this keeps nothing in the searcher, so one
+   * searcher can serve every request for a loaded table at the same time.
+   *
+   * @param toFind the word we are looking for in the dataset
+   * @param header boolean value to indicate whether the dataset has a header
+   * @param key a string that narrows down the search, or NULL
+   * @return the rows that matched, in the order they are in the dataset
+   */
+  public List<List<String>> search(String toFind, boolean header, String key) {
+    return this.matches(toFind, header, key).all();
+  }
+
+  /**
+   * Works out a search for a word without running it, so the caller can ask for every row, a page
+   * of rows, or how many rows match.
+   *
+   * @param toFind the word we are looking for in the dataset
+   * @param header boolean value to indicate whether the dataset has a header
+   * @param key a string that narrows down the search, or NULL
+   * @return the search, ready to run
+   */
+  public Matches matches(String toFind, boolean header, String key) {
+    return this.run(this.plan(header, key), toFind);
+  }
+
+  /**
+   * Works out a search for the rows whose cell in a column is a number in a range, without running
+   * it. Numeric columns of a loaded table are looked up in their range index, and cells of other
+   * columns are read as numbers from their strings, where cells that are not numbers never match.
+   *
+   * @param range the range of numbers to look for
+   * @param header boolean value to indicate whether the dataset has a header
+   * @param key the ind: or nam: key of the column to look at
+   * @return the search, ready to run
+   * @throws IllegalArgumentException if the key does not name a column
+   */
+  public Matches rangeMatches(NumberRange range, boolean header, String key) {
+    QueryPlan plan = this.plan(header, key);
+    if (plan.narrowIndex() == -1) {
+      throw new IllegalArgumentException("A range search needs a column to look at");
+    }
+    Condition condition = Conditions.range(this.dataset, this.indexes, plan.narrowIndex(), range);
+    return this.matches(plan.startIndex(), condition);
+  }
+
+  /**
+   * Works out a search that ignores case and accents, without running it. The search word is folded
+   * once, and compared to the folded forms of the columns, which are built on the first such
+   * search, so a search for "providence" finds "Providence". Like search, a narrow column is
+   * searched for cells that have the word anywhere, and the whole dataset for cells that are
+   * exactly the word.
+   *
+   * @param toFind the word we are looking for in the dataset
+   * @param header boolean value to indicate whether the dataset has a header
+   * @param key a string that narrows down the search, or NULL
+   * @return the search, ready to run
+   */
+  public Matches foldedMatches(String toFind, boolean header, String key) {
+    QueryPlan plan = this.plan(header, key);
+    Condition condition =
+        plan.narrowIndex() == -1
+            ? Conditions.anyCell(this.dataset, this.indexes, toFind, true)
+            : Conditions.cell(this.dataset, this.indexes, plan.narrowIndex(), false, toFind, true);
+    return this.matches(plan.startIndex(), condition);
+  }
+
+  /**
+   * Works out a search for cells within an edit distance of a word, without running it, so a
+   * misspelled word still finds the cells it was meant to. The distinct values of a column of a
+   * loaded table are put in a BK-tree the first time the column is searched this way, so only the
+   * values that are close enough are worked out once per search, and the rows are matched on those.
+   * A narrow column is searched on its own, and otherwise every cell of a row is.
+   *
+   * @param toFind the word we are looking for in the dataset
+   * @param distance the largest edit distance that counts
+   * @param header boolean value to indicate whether the dataset has a header
+   * @param key a string that narrows down the search, or NULL
+   * @return the search, ready to run
    */
-  private void allSearch(String toFind) {
-    for (int i = this.startIndex; i < this.dataset.size(); i++) {
-      List<String> row = this.dataset.get(i);
-      if (row.contains(toFind)) {
-        this.found.add(row);
+  public Matches fuzzyMatches(String toFind, int distance, boolean header, String key) {
+    QueryPlan plan = this.plan(header, key);
+    Condition condition =
+        Conditions.fuzzy(this.dataset, this.indexes, plan.narrowIndex(), toFind, distance);
+    return this.matches(plan.startIndex(), condition);
+  }
+
+  /**
+   * Runs a query of search terms joined with AND, OR and NOT.
+   *
+   * @param query the text of the query
+   * @param header boolean value to indicate whether the dataset has a header
+   * @return the rows that matched, in the order they are in the dataset
+   */
+  public List<List<String>> query(String query, boolean header) {
+    return this.queryMatches(query, header).all();
+  }
+
+  /**
+   * Works out a query of search terms joined with AND, OR and NOT without running it. The query is
+   * compiled the first time it comes in and kept after that. When the indexes can narrow the query
+   * down to a list of rows, only those rows are checked, and otherwise every row is.
+   *
+   * @param query the text of the query
+   * @param header boolean value to indicate whether the dataset has a header
+   * @return the query, ready to run
+   */
+  public Matches queryMatches(String query, boolean header) {
+    return this.queryMatches(query, header, false);
+  }
+
+  /**
+   * Works out a query of search terms joined with AND, OR and NOT without running it, where the =
+   * and ~ terms can ignore case and accents.
+   *
+   * @param query the text of the query
+   * @param header boolean value to indicate whether the dataset has a header
+   * @param fold true to compare the folded forms of cells and values
+   * @return the query, ready to run
+   */
+  public Matches queryMatches(String query, boolean header, boolean fold) {
+    QueryKey key = new QueryKey(header, fold, query);
+    Condition condition = this.queries.get(key);
+    if (condition == null) {
+      condition =
+          new QueryCompiler(this.dataset, this.indexes, this.columnNames, header, fold)
+              .compile(query);
+      if (this.queries.size() >= MAX_QUERIES) {
+        this.queries.clear();
       }
+      this.queries.put(key, condition);
+    }
+    return this.matches(header ? 1 : 0, condition);
+  }
+
+  /**
+   * Builds a search for the rows that pass a condition, which only looks at the candidates of the
+   * condition when it has any, and at the first row when it is not a header. When the candidates
+   * are exact, the first row is checked here and the search checks no rows at all: its rows are
+   * only listed when they are asked for, and a count comes straight from the index.
+   *
+   * @param startIndex the index of the first row to look at
+   * @param condition the condition
+   * @return the search, ready to run
+   */
+  private Matches matches(int startIndex, Condition condition) {
+    if (condition.exact()) {
+      boolean first = startIndex == 0 && condition.test(0);
+      return new Matches(
+          this.dataset,
+          this.pool,
+          this.parallelThreshold,
+          startIndex,
+          () -> first ? withFirst(condition.candidates()) : condition.candidates(),
+          () -> (first ? 1 : 0) + condition.count());
+    }
+    int[] candidates = condition.candidates();
+    if (candidates == null) {
+      return this.matches(startIndex, null, condition::test);
+    }
+    if (startIndex == 0 && (candidates.length == 0 || candidates[0] != 0)) {
+      candidates = withFirst(candidates);
+    }
+    return this.matches(startIndex, candidates, condition::test);
+  }
+
+  /**
+   * Puts the first row in front of a list of candidates that does not have it.
+   *
+   * @param candidates the sorted indices of rows, without the first row
+   * @return the indices with the first row
+   */
+  private static int[] withFirst(int[] candidates) {
+    int[] withFirst = new int[candidates.length + 1];
+    System.arraycopy(candidates, 0, withFirst, 1, candidates.length);
+    return withFirst;
+  }
+
+  /**
+   * Works out a search with the plan it was set up with, picking the search method based on the
+   * narrowIndex of the plan.
+   *
+   * @param plan where the search starts and which column it looks at
+   * @param toFind the search word
+   * @return the search, ready to run
+   */
+  private Matches run(QueryPlan plan, String toFind) {
+    if (plan.narrowIndex() == -1) {
+      return this.allSearch(plan, toFind);
+    } else {
+      return this.indexSearch(plan, toFind);
     }
   }
 
@@ -110,12 +482,10 @@ public class MySearcher {
    * @param toFind the word we are looking for in the dataset
    */
   public void findRows(String toFind) {
-    this.found = new ArrayList<>();
-    if (this.narrowIndex == -1) {
-      this.allSearch(toFind);
-    } else {
-      this.indexSearch(toFind);
+    if (this.plan == null) {
+      throw new IllegalStateException("A shared searcher is used through search");
     }
+    this.found = new ArrayList<>(this.run(this.plan, toFind).all());
   }
 
   /**
@@ -126,4 +496,21 @@ public class MySearcher {
   public ArrayList<List<String>> getFound() {
     return new ArrayList<>(this.found);
   }
+
+  /**
+   * PlanKey is what a plan is made from, which is what the plans of a shared searcher are kept by.
+   *
+   * @param header whether the dataset has a header
+   * @param narrow the narrow key of the search
+   */
+  private record PlanKey(boolean header, String narrow) {}
+
+  /**
+   * QueryKey is what a compiled query is made from, which is what a shared searcher keeps them by.
+   *
+   * @param header whether the dataset has a header
+   * @param fold whether the query ignores case and accents
+   * @param query the text of the query
+   */
+  private record QueryKey(boolean header, boolean fold, String query) {}
 }
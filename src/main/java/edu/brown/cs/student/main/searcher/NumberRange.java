@@ -0,0 +1,91 @@
+package edu.brown.cs.student.main.searcher;
+
+/**
+ * NumberRange is the range of numbers a range search looks for. Either end can be left open with an
+ * infinite bound, and every end says whether the bound itself is in the range.
+ *
+ * @param lower the lowest number of the range
+ * @param lowerInclusive whether lower is in the range
+ * @param upper the highest number of the range
+ * @param upperInclusive whether upper is in the range
+ */
+public record NumberRange(
+    double lower, boolean lowerInclusive, double upper, boolean upperInclusive) {
+
+  /**
+   * Builds the range of numbers above a bound.
+   *
+   * @param bound the bound, which is not in the range
+   * @return the range
+   */
+  public static NumberRange greaterThan(double bound) {
+    return new NumberRange(bound, false, Double.POSITIVE_INFINITY, true);
+  }
+
+  /**
+   * Builds the range of numbers below a bound.
+   *
+   * @param bound the bound, which is not in the range
+   * @return the range
+   */
+  public static NumberRange lessThan(double bound) {
+    return new NumberRange(Double.NEGATIVE_INFINITY, true, bound, false);
+  }
+
+  /**
+   * Builds the range of numbers between two bounds.
+   *
+   * @param lower the lowest number, which is in the range
+   * @param upper the highest number, which is in the range
+   * @return the range
+   */
+  public static NumberRange between(double lower, double upper) {
+    return new NumberRange(lower, true, upper, true);
+  }
+
+  /**
+   * Builds the range of numbers that are in both this range and another.
+   *
+   * @param other the other range
+   * @return the overlap of the two ranges, which can be empty
+   */
+  public NumberRange and(NumberRange other) {
+    double low = Math.max(this.lower, other.lower);
+    boolean lowIn =
+        (this.lower != low || this.lowerInclusive) && (other.lower != low || other.lowerInclusive);
+    double high = Math.min(this.upper, other.upper);
+    boolean highIn =
+        (this.upper != high || this.upperInclusive)
+            && (other.upper != high || other.upperInclusive);
+    return new NumberRange(low, lowIn, high, highIn);
+  }
+
+  /**
+   * Checks whether a number is in the range. NaN, which stands for an empty cell, never is.
+   *
+   * @param value the number
+   * @return true if the number is in the range
+   */
+  public boolean contains(double value) {
+    boolean aboveLower = this.lowerInclusive ? value >= this.lower : value > this.lower;
+    boolean belowUpper = this.upperInclusive ? value <= this.upper : value < this.upper;
+    return aboveLower && belowUpper;
+  }
+
+  /**
+   * Checks whether a cell, read as a string, is a number in the range.
+   *
+   * @param cell the cell
+   * @return true if the cell is a number in the range
+   */
+  public boolean containsCell(String cell) {
+    if (cell.isEmpty() || !(Character.isDigit(cell.charAt(0)) || cell.charAt(0) == '-')) {
+      return false;
+    }
+    try {
+      return this.contains(Double.parseDouble(cell));
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,360 @@
+package edu.brown.cs.student.main.searcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * QueryCompiler turns the text of a query into a Condition. A query is made of search terms joined
+ * with AND, OR and NOT, with parentheses for grouping, where AND binds tighter than OR:
+ *
+ * <pre>
+ *   nam:County=Providence AND ind:3~Asian
+ *   NOT (nam:Race=Total OR nam:Race=White) AND ind:1~20
+ * </pre>
+ *
+ * <p>A term that starts with ind: or nam: looks at one column, given by its index or its name in
+ * the header. After the column comes = for a cell that is exactly the value, ~ for a cell that has
+ * the value anywhere in it, or one of &lt;, &lt;=, &gt; and &gt;= for a cell that is a number below
+ * or above the value, like nam:Household Income by Race&gt;75000. A term without a column matches
+ * rows that have a cell exactly equal to it, the same as a search of the whole dataset. The
+ * keywords have to be in upper case, and a value with a keyword, a parenthesis or spaces at its
+ * ends can be put in double quotes, with "" for a quote inside of it.
+ *
+ * <p>Mistakes in a query, like a column that is not there or a missing parenthesis, throw an
+ * IllegalArgumentException that says what is wrong.
+ */
+class QueryCompiler {
+
+  private final List<List<String>> dataset;
+  private final TableIndexes indexes;
+  private final Map<String, Integer> columnNames;
+  private final boolean header;
+  private final boolean fold;
+  private List<Token> tokens;
+  private int position;
+
+  /**
+   * The constructor for a compiler of queries over one dataset.
+   *
+   * @param dataset the dataset the queries run on
+   * @param indexes the indexes of the dataset, or null
+   * @param columnNames the column of every name in the first row
+   * @param header whether the first row is a header
+   * @param fold whether = and ~ terms ignore case and accents
+   */
+  QueryCompiler(
+      List<List<String>> dataset,
+      TableIndexes indexes,
+      Map<String, Integer> columnNames,
+      boolean header,
+      boolean fold) {
+    this.dataset = dataset;
+    this.indexes = indexes;
+    this.columnNames = columnNames;
+    this.header = header;
+    this.fold = fold;
+  }
+
+  /**
+   * Compiles a query.
+   *
+   * @param query the text of the query
+   * @return the condition the query stands for
+   */
+  Condition compile(String query) {
+    this.tokens = tokenize(query);
+    this.position = 0;
+    if (this.tokens.isEmpty()) {
+      throw new IllegalArgumentException("The query is empty");
+    }
+    Condition condition = this.or();
+    if (this.position < this.tokens.size()) {
+      throw new IllegalArgumentException(
+          "Unexpected " + this.tokens.get(this.position).text() + " in the query");
+    }
+    return condition;
+  }
+
+  /**
+   * Reads terms joined with OR.
+   *
+   * @return the condition of the terms
+   */
+  private Condition or() {
+    List<Condition> parts = new ArrayList<>();
+    parts.add(this.and());
+    while (this.next(Kind.OR)) {
+      parts.add(this.and());
+    }
+    return parts.size() == 1 ? parts.get(0) : Conditions.or(parts);
+  }
+
+  /**
+   * Reads terms joined with AND.
+   *
+   * @return the condition of the terms
+   */
+  private Condition and() {
+    List<Condition> parts = new ArrayList<>();
+    parts.add(this.not());
+    while (this.next(Kind.AND)) {
+      parts.add(this.not());
+    }
+    return parts.size() == 1 ? parts.get(0) : Conditions.and(parts);
+  }
+
+  /**
+   * Reads a term that may be turned around with NOT.
+   *
+   * @return the condition of the term
+   */
+  private Condition not() {
+    if (this.next(Kind.NOT)) {
+      return Conditions.not(this.not());
+    }
+    return this.primary();
+  }
+
+  /**
+   * Reads a single term or a query in parentheses.
+   *
+   * @return the condition of the term
+   */
+  private Condition primary() {
+    if (this.position == this.tokens.size()) {
+      throw new IllegalArgumentException("The query ends where a search term was expected");
+    }
+    Token token = this.tokens.get(this.position++);
+    if (token.kind() == Kind.OPEN) {
+      Condition inner = this.or();
+      if (!this.next(Kind.CLOSE)) {
+        throw new IllegalArgumentException("A parenthesis in the query is never closed");
+      }
+      return inner;
+    }
+    if (token.kind() != Kind.TERM) {
+      throw new IllegalArgumentException(
+          "Expected a search term in the query but found " + token.text());
+    }
+    return this.term(token.text());
+  }
+
+  /**
+   * Moves past the next token if it is of a kind.
+   *
+   * @param kind the kind of token to move past
+   * @return true if the token was there
+   */
+  private boolean next(Kind kind) {
+    if (this.position < this.tokens.size() && this.tokens.get(this.position).kind() == kind) {
+      this.position++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Compiles one search term.
+   *
+   * @param text the text of the term
+   * @return the condition of the term
+   */
+  private Condition term(String text) {
+    String prefix = text.length() < 4 ? "" : text.substring(0, 4).toLowerCase();
+    if (!prefix.equals("ind:") && !prefix.equals("nam:")) {
+      return Conditions.anyCell(this.dataset, this.indexes, unquote(text), this.fold);
+    }
+    String rest = text.substring(4);
+    int operator = 0;
+    while (operator < rest.length() && "=~<>".indexOf(rest.charAt(operator)) == -1) {
+      operator++;
+    }
+    if (operator == rest.length()) {
+      throw new IllegalArgumentException("Use =, ~, <, <=, > or >= after the column in " + text);
+    }
+    char kind = rest.charAt(operator);
+    boolean orEqual =
+        (kind == '<' || kind == '>')
+            && operator + 1 < rest.length()
+            && rest.charAt(operator + 1) == '=';
+    String spec = rest.substring(0, operator).strip();
+    String value = unquote(rest.substring(operator + (orEqual ? 2 : 1)).strip());
+    int column = prefix.equals("ind:") ? this.index(spec) : this.named(spec);
+    if (kind == '=' || kind == '~') {
+      return Conditions.cell(this.dataset, this.indexes, column, kind == '=', value, this.fold);
+    }
+    double bound;
+    try {
+      bound = Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Use a number after " + kind + " in " + text);
+    }
+    NumberRange range =
+        kind == '<'
+            ? new NumberRange(Double.NEGATIVE_INFINITY, true, bound, orEqual)
+            : new NumberRange(bound, orEqual, Double.POSITIVE_INFINITY, true);
+    return Conditions.range(this.dataset, this.indexes, column, range);
+  }
+
+  /**
+   * Resolves the column of an ind: term.
+   *
+   * @param spec the index as it was written
+   * @return the index of the column
+   */
+  private int index(String spec) {
+    int column;
+    try {
+      column = Integer.parseInt(spec);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Please make sure to use an integer after Ind: " + spec);
+    }
+    int width = this.dataset.isEmpty() ? 0 : this.dataset.get(0).size();
+    if (column < 0 || column >= width) {
+      throw new IllegalArgumentException("Please provide a valid index: " + spec);
+    }
+    return column;
+  }
+
+  /**
+   * Resolves the column of a nam: term.
+   *
+   * @param spec the name of the column
+   * @return the index of the column
+   */
+  private int named(String spec) {
+    if (!this.header) {
+      throw new IllegalArgumentException("Searching by column name without header row");
+    }
+    Integer column = this.columnNames.get(spec);
+    if (column == null) {
+      throw new IllegalArgumentException("There is no column named " + spec);
+    }
+    return column;
+  }
+
+  /**
+   * Takes the double quotes off of a value that is wrapped in them.
+   *
+   * @param value the value as it was written
+   * @return the value without its quotes
+   */
+  private static String unquote(String value) {
+    if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+      return value.substring(1, value.length() - 1).replace("\"\"", "\"");
+    }
+    return value;
+  }
+
+  /**
+   * Splits a query into keywords, parentheses and search terms. A term is everything between two of
+   * the others, with its ends stripped, so column names and values can have spaces inside.
+   *
+   * @param query the text of the query
+   * @return the tokens, in order
+   */
+  private static List<Token> tokenize(String query) {
+    List<Token> tokens = new ArrayList<>();
+    StringBuilder term = new StringBuilder();
+    boolean quoted = false;
+    int i = 0;
+    while (i < query.length()) {
+      char c = query.charAt(i);
+      if (c == '"') {
+        quoted = !quoted;
+      } else if (!quoted && (c == '(' || c == ')')) {
+        addTerm(tokens, term);
+        tokens.add(new Token(c == '(' ? Kind.OPEN : Kind.CLOSE, String.valueOf(c)));
+        i++;
+        continue;
+      } else if (!quoted && startsWord(query, i)) {
+        Kind keyword = keywordAt(query, i);
+        if (keyword != null) {
+          addTerm(tokens, term);
+          tokens.add(new Token(keyword, keyword.name()));
+          i += keyword.name().length();
+          continue;
+        }
+      }
+      term.append(c);
+      i++;
+    }
+    if (quoted) {
+      throw new IllegalArgumentException("A quote in the query is never closed");
+    }
+    addTerm(tokens, term);
+    return tokens;
+  }
+
+  /**
+   * Checks whether a word can start at a position, which is after a space or a parenthesis.
+   *
+   * @param query the text of the query
+   * @param i the position
+   * @return true if a word can start there
+   */
+  private static boolean startsWord(String query, int i) {
+    return i == 0 || boundary(query.charAt(i - 1));
+  }
+
+  /**
+   * Finds the keyword that is written at a position, when it is a word of its own.
+   *
+   * @param query the text of the query
+   * @param i the position
+   * @return the keyword, or null if there is none
+   */
+  private static Kind keywordAt(String query, int i) {
+    for (Kind kind : new Kind[] {Kind.AND, Kind.OR, Kind.NOT}) {
+      String word = kind.name();
+      int end = i + word.length();
+      if (query.startsWith(word, i) && (end == query.length() || boundary(query.charAt(end)))) {
+        return kind;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Checks whether a character ends a word.
+   *
+   * @param c the character
+   * @return true for spaces and parentheses
+   */
+  private static boolean boundary(char c) {
+    return Character.isWhitespace(c) || c == '(' || c == ')';
+  }
+
+  /**
+   * Adds the term that was read so far, if it is not blank, and starts a new one.
+   *
+   * @param tokens the tokens so far
+   * @param term the text of the term
+   */
+  private static void addTerm(List<Token> tokens, StringBuilder term) {
+    String text = term.toString().strip();
+    if (!text.isEmpty()) {
+      tokens.add(new Token(Kind.TERM, text));
+    }
+    term.setLength(0);
+  }
+
+  /** The kinds of tokens in a query. */
+  private enum Kind {
+    AND,
+    OR,
+    NOT,
+    OPEN,
+    CLOSE,
+    TERM
+  }
+
+  /**
+   * Token is one piece of a query.
+   *
+   * @param kind the kind of token
+   * @param text the text of the token
+   */
+  private record Token(Kind kind, String text) {}
+}
@@ -0,0 +1,16 @@
+package edu.brown.cs.student.main.searcher;
+
+import edu.brown.cs.student.main.columns.Column;
+
+/**
+ * QueryPlan is a narrow specifier that was already worked out against one loaded dataset: where a
+ * search starts, which column it looks at, and the column and trigram index it reads. A plan only
+ * holds parts of the dataset it was made for, so it is thrown away together with its searcher when
+ * a new file is loaded.
+ *
+ * @param startIndex the index of the first row to search, 1 to skip a header
+ * @param narrowIndex the index of the column to search, or -1 for every column
+ * @param column the column that is searched, or null when the search is not on a stored column
+ * @param trigrams the trigram index of the column when it covers every row, or null
+ */
+public record QueryPlan(int startIndex, int narrowIndex, Column column, TrigramIndex trigrams) {}
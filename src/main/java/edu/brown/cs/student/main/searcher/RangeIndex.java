@@ -0,0 +1,97 @@
+package edu.brown.cs.student.main.searcher;
+
+import edu.brown.cs.student.main.columns.Column;
+import java.util.Arrays;
+
+/**
+ * RangeIndex is the cells of a numeric column in the order of their numbers, with the numbers next
+ * to them. It is built once when a dataset is loaded, and a range search finds where its bounds
+ * fall with two binary searches, so it only ever looks at the cells that are in the range. Empty
+ * cells are left out, since they are in no range.
+ */
+public class RangeIndex {
+
+  private final int[] cells;
+  private final double[] values;
+
+  /**
+   * The constructor sorts the cells of a numeric column by their numbers.
+   *
+   * @param column the column to index, which has to be numeric
+   */
+  public RangeIndex(Column column) {
+    int size = column.size();
+    int[] order = new int[size];
+    double[] numbers = new double[size];
+    int count = 0;
+    for (int cell = 0; cell < size; cell++) {
+      double number = column.number(cell);
+      if (!Double.isNaN(number)) {
+        order[count] = cell;
+        numbers[cell] = number;
+        count++;
+      }
+    }
+    this.cells =
+        IndexSort.sort(
+            Arrays.copyOf(order, count), (a, b) -> Double.compare(numbers[a], numbers[b]));
+    this.values = new double[count];
+    for (int i = 0; i < count; i++) {
+      this.values[i] = numbers[this.cells[i]];
+    }
+  }
+
+  /**
+   * Looks up the rows whose cell is in a range.
+   *
+   * @param range the range to look for
+   * @return the sorted indices of the rows of the table, where row i + 1 holds cell i
+   */
+  public int[] rows(NumberRange range) {
+    int from = this.countBelow(range.lower(), !range.lowerInclusive());
+    int to = this.countBelow(range.upper(), range.upperInclusive());
+    if (to <= from) {
+      return new int[0];
+    }
+    int[] rows = new int[to - from];
+    for (int i = from; i < to; i++) {
+      rows[i - from] = this.cells[i] + 1;
+    }
+    Arrays.sort(rows);
+    return rows;
+  }
+
+  /**
+   * Counts the rows whose cell is in a range with two binary searches, without listing them.
+   *
+   * @param range the range to look for
+   * @return the number of rows
+   */
+  public int count(NumberRange range) {
+    int from = this.countBelow(range.lower(), !range.lowerInclusive());
+    int to = this.countBelow(range.upper(), range.upperInclusive());
+    return Math.max(0, to - from);
+  }
+
+  /**
+   * Counts the cells whose number is below a bound, or at most the bound.
+   *
+   * @param bound the bound
+   * @param orEqual whether cells equal to the bound are counted
+   * @return the number of cells, which is also where the first cell past them is in the order
+   */
+  private int countBelow(double bound, boolean orEqual) {
+    int low = 0;
+    int high = this.values.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      double value = this.values[middle];
+      if (value < bound || (orEqual && value == bound)) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,53 @@
+package edu.brown.cs.student.main.searcher;
+
+import java.util.Arrays;
+
+/**
+ * RowList collects the rows of one key while an index is built. Rows are mostly added in order, so
+ * the list only has to be sorted when they were not, like when more than one column of a row had
+ * the same value.
+ */
+class RowList {
+
+  private int[] rows = new int[2];
+  private int size = 0;
+  private boolean sorted = true;
+
+  /**
+   * Adds a row to the list. Adding the row that was added last does nothing.
+   *
+   * @param row the index of the row
+   */
+  void add(int row) {
+    if (this.size > 0 && this.rows[this.size - 1] >= row) {
+      if (this.rows[this.size - 1] == row) {
+        return;
+      }
+      this.sorted = false;
+    }
+    if (this.size == this.rows.length) {
+      this.rows = Arrays.copyOf(this.rows, 2 * this.size);
+    }
+    this.rows[this.size++] = row;
+  }
+
+  /**
+   * Builds the final array of rows, sorted and without repeats.
+   *
+   * @return the rows
+   */
+  int[] toSortedArray() {
+    int[] result = Arrays.copyOf(this.rows, this.size);
+    if (this.sorted) {
+      return result;
+    }
+    Arrays.sort(result);
+    int unique = 0;
+    for (int i = 0; i < result.length; i++) {
+      if (unique == 0 || result[unique - 1] != result[i]) {
+        result[unique++] = result[i];
+      }
+    }
+    return Arrays.copyOf(result, unique);
+  }
+}
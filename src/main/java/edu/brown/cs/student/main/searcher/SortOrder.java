@@ -0,0 +1,225 @@
+package edu.brown.cs.student.main.searcher;
+
+import edu.brown.cs.student.main.columns.Column;
+import edu.brown.cs.student.main.columns.ColumnType;
+import edu.brown.cs.student.main.columns.ColumnarTable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntBinaryOperator;
+import java.util.regex.Pattern;
+
+/**
+ * SortOrder is every row of a table in the order of its cell in one column, kept as an array of row
+ * indices, so a sorted view or a sorted page of search results is read through the array instead of
+ * copying and sorting the rows for every request. It is made the first time a column is sorted by
+ * and kept with the indexes of the table until the next load.
+ *
+ * <p>Cells are compared as numbers when they are numbers, so "9" comes before "10". The cells of a
+ * numeric column are read as numbers straight from the column, and cells of other columns count as
+ * numbers when they are one after quotes, a dollar sign, thousands separators and a percent sign
+ * are taken off, like "$1,058.47". Numbers come first, then the other cells in string order, then
+ * empty cells and rows too short to have the column. Rows that compare the same stay in file order
+ * both ways: a descending order turns around the groups of equal cells, but not the rows inside a
+ * group, and the empty cells stay last.
+ */
+public class SortOrder {
+
+  private static final Pattern NUMBER = Pattern.compile("-?\\d+(\\.\\d+)?([eE][-+]?\\d+)?");
+
+  // the kinds of cells, in the order they are sorted in
+  private static final byte NUMBER_CELL = 0;
+  private static final byte STRING_CELL = 1;
+  private static final byte EMPTY_CELL = 2;
+
+  private final int[] rows;
+  private final int[] ranks;
+  private final int[] tieStarts;
+  private final int present;
+
+  /**
+   * The constructor sorts every row of a table by its cell in a column.
+   *
+   * @param table the loaded table
+   * @param column the index of the column to sort by
+   */
+  public SortOrder(ColumnarTable table, int column) {
+    int size = table.size();
+    byte[] kinds = new byte[size];
+    double[] numbers = new double[size];
+    String[] strings = new String[size];
+    Column cells = table.column(column);
+    boolean numeric = cells.type() != ColumnType.STRING;
+    int present = 0;
+    for (int row = 0; row < size; row++) {
+      String cell = null;
+      double number = Double.NaN;
+      if (column < table.width(row)) {
+        if (row > 0 && numeric) {
+          number = cells.number(row - 1);
+          cell = Double.isNaN(number) ? "" : null;
+        } else {
+          cell = row == 0 ? table.get(0).get(column) : cells.get(row - 1);
+          number = numberOf(cell);
+        }
+      }
+      if (!Double.isNaN(number)) {
+        kinds[row] = NUMBER_CELL;
+        numbers[row] = number;
+      } else if (cell != null && !cell.isBlank()) {
+        kinds[row] = STRING_CELL;
+        strings[row] = cell;
+      } else {
+        kinds[row] = EMPTY_CELL;
+      }
+      if (kinds[row] != EMPTY_CELL) {
+        present++;
+      }
+    }
+    int[] order = new int[size];
+    for (int row = 0; row < size; row++) {
+      order[row] = row;
+    }
+    IntBinaryOperator compare =
+        (a, b) -> {
+          if (kinds[a] != kinds[b]) {
+            return kinds[a] - kinds[b];
+          }
+          if (kinds[a] == NUMBER_CELL) {
+            return Double.compare(numbers[a], numbers[b]);
+          }
+          return kinds[a] == STRING_CELL ? strings[a].compareTo(strings[b]) : 0;
+        };
+    this.rows = IndexSort.sort(order, compare);
+    this.ranks = new int[size];
+    this.tieStarts = new int[size];
+    for (int i = 0; i < size; i++) {
+      this.ranks[this.rows[i]] = i;
+      boolean tied = i > 0 && compare.applyAsInt(this.rows[i - 1], this.rows[i]) == 0;
+      this.tieStarts[i] = tied ? this.tieStarts[i - 1] : i;
+    }
+    this.present = present;
+  }
+
+  /**
+   * Lists the rows of the table in order.
+   *
+   * @param from the first row of the table to include, to leave out a header
+   * @param descending true to list the rows with cells from the largest to the smallest
+   * @return the indices of the rows, in order
+   */
+  public int[] rows(int from, boolean descending) {
+    int[] all = new int[Math.max(0, this.rows.length - from)];
+    int next = 0;
+    int ascending = 0;
+    if (descending) {
+      // the groups of equal cells backwards, each of them in file order
+      for (int last = this.present - 1; last >= 0; last = this.tieStarts[last] - 1) {
+        for (int i = this.tieStarts[last]; i <= last; i++) {
+          if (this.rows[i] >= from) {
+            all[next++] = this.rows[i];
+          }
+        }
+      }
+      ascending = this.present;
+    }
+    for (int i = ascending; i < this.rows.length; i++) {
+      if (this.rows[i] >= from) {
+        all[next++] = this.rows[i];
+      }
+    }
+    return all;
+  }
+
+  /**
+   * Puts some rows of the table in order, like the rows that matched a search, by their place in
+   * the order of the whole table. This sorts plain ints, however the column is compared.
+   *
+   * @param some the indices of the rows
+   * @param descending true to put the rows with the largest cells first
+   * @return the indices of the rows, in order
+   */
+  public int[] sort(int[] some, boolean descending) {
+    int[] places = new int[some.length];
+    for (int i = 0; i < some.length; i++) {
+      places[i] = this.ranks[some[i]];
+    }
+    Arrays.sort(places);
+    int[] sorted = new int[some.length];
+    int next = 0;
+    if (descending) {
+      // the groups of equal cells backwards, each of them in file order, then the empty cells
+      int empty = 0;
+      while (empty < places.length && places[empty] < this.present) {
+        empty++;
+      }
+      int last = empty - 1;
+      while (last >= 0) {
+        int first = last;
+        while (first > 0 && this.tieStarts[places[first - 1]] == this.tieStarts[places[last]]) {
+          first--;
+        }
+        for (int i = first; i <= last; i++) {
+          sorted[next++] = this.rows[places[i]];
+        }
+        last = first - 1;
+      }
+      for (int i = empty; i < places.length; i++) {
+        sorted[next++] = this.rows[places[i]];
+      }
+      return sorted;
+    }
+    for (int place : places) {
+      sorted[next++] = this.rows[place];
+    }
+    return sorted;
+  }
+
+  /**
+   * Builds a view of the rows of a table in order, which reads every row through the order and
+   * copies nothing.
+   *
+   * @param table the table this order was made for
+   * @param from the first row of the table to include, to leave out a header
+   * @param descending true to list the rows with cells from the largest to the smallest
+   * @return the rows, in order
+   */
+  public List<List<String>> view(ColumnarTable table, int from, boolean descending) {
+    int[] order = this.rows(from, descending);
+    return new AbstractList<>() {
+      @Override
+      public List<String> get(int index) {
+        return table.get(order[index]);
+      }
+
+      @Override
+      public int size() {
+        return order.length;
+      }
+    };
+  }
+
+  /**
+   * Reads a cell as a number, after taking off what often goes around numbers in a file.
+   *
+   * @param cell the cell
+   * @return the number, or NaN if the cell is not one
+   */
+  static double numberOf(String cell) {
+    String stripped = cell.strip();
+    if (stripped.length() >= 2 && stripped.startsWith("\"") && stripped.endsWith("\"")) {
+      stripped = stripped.substring(1, stripped.length() - 1).strip();
+    }
+    if (stripped.startsWith("$")) {
+      stripped = stripped.substring(1);
+    }
+    if (stripped.endsWith("%")) {
+      stripped = stripped.substring(0, stripped.length() - 1);
+    }
+    stripped = stripped.replace(",", "");
+    if (!NUMBER.matcher(stripped).matches()) {
+      return Double.NaN;
+    }
+    return Double.parseDouble(stripped);
+  }
+}
@@ -0,0 +1,181 @@
+package edu.brown.cs.student.main.searcher;
+
+import edu.brown.cs.student.main.columns.Column;
+import edu.brown.cs.student.main.columns.ColumnType;
+import edu.brown.cs.student.main.columns.ColumnarTable;
+import edu.brown.cs.student.main.columns.Folding;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TableIndexes holds the indexes that were built for a table when it was loaded. Searches of the
+ * whole dataset for a value go through the inverted index, or through Bloom filters of blocks of
+ * rows (see BlockFilters) when the loader asked for those instead to save room. Trigram indexes for
+ * substring searches in one column are only built for the columns the loader asked for, since they
+ * take a lot more room. The stats of every column are gathered along with them, and every numeric
+ * column gets a range index for searches of numbers above, below or between bounds. The folded form
+ * of a string column (see Folding), for searches that ignore case and accents, the BK-tree of the
+ * distinct values of a column, for searches of values within an edit distance, and the order of the
+ * rows by a column (see SortOrder) are kept here as well, once a request has needed them.
+ */
+public class TableIndexes {
+
+  private final InvertedIndex inverted;
+  private final BlockFilters blocks;
+  private final Map<Integer, TrigramIndex> trigrams;
+  private final List<ColumnStats> stats;
+  private final Map<Integer, RangeIndex> ranges;
+  private final Map<Integer, Column> folded = new ConcurrentHashMap<>();
+  private final ColumnarTable table;
+  private final Map<Integer, BkTree> fuzzy = new ConcurrentHashMap<>();
+  private final Map<Integer, SortOrder> orders = new ConcurrentHashMap<>();
+
+  /**
+   * The constructor builds the indexes of a table, with an inverted index for searches of the whole
+   * dataset.
+   *
+   * @param table the table to index
+   * @param trigramColumns the columns to build a trigram index for
+   */
+  public TableIndexes(ColumnarTable table, Collection<Integer> trigramColumns) {
+    this(table, trigramColumns, null);
+  }
+
+  /**
+   * The constructor builds the indexes of a table, with either an inverted index or block filters
+   * for searches of the whole dataset.
+   *
+   * @param table the table to index
+   * @param trigramColumns the columns to build a trigram index for
+   * @param blockSettings the settings of the block filters to build instead of an inverted index,
+   *     or null to build the inverted index
+   */
+  public TableIndexes(
+      ColumnarTable table,
+      Collection<Integer> trigramColumns,
+      BlockFilters.Settings blockSettings) {
+    this.table = table;
+    this.inverted = blockSettings == null ? new InvertedIndex(table) : null;
+    this.blocks = blockSettings == null ? null : new BlockFilters(table, blockSettings);
+    this.trigrams = new HashMap<>();
+    for (int column : trigramColumns) {
+      this.trigrams.put(column, new TrigramIndex(table, column));
+    }
+    this.stats = new ArrayList<>(table.columnCount());
+    this.ranges = new HashMap<>();
+    for (int c = 0; c < table.columnCount(); c++) {
+      this.stats.add(ColumnStats.of(table, c));
+      if (table.column(c).type() != ColumnType.STRING) {
+        this.ranges.put(c, new RangeIndex(table.column(c)));
+      }
+    }
+  }
+
+  /**
+   * Getter for the inverted index of the table.
+   *
+   * @return the inverted index, or null if block filters were built instead
+   */
+  public InvertedIndex inverted() {
+    return this.inverted;
+  }
+
+  /**
+   * Getter for the block filters of the table.
+   *
+   * @return the block filters, or null if an inverted index was built instead
+   */
+  public BlockFilters blocks() {
+    return this.blocks;
+  }
+
+  /**
+   * Looks up the rows that might have a cell exactly equal to the value. With an inverted index
+   * these are exactly the rows that do, and with block filters they are the rows of every block
+   * that might, so they always have to be checked.
+   *
+   * @param value the value to look for
+   * @return the indices of the rows, sorted and without repeats
+   */
+  public int[] rowsWith(String value) {
+    return this.inverted != null ? this.inverted.rows(value) : this.blocks.rows(value);
+  }
+
+  /**
+   * Getter for the trigram index of a column.
+   *
+   * @param column the index of the column
+   * @return the trigram index, or null if none was built for the column
+   */
+  public TrigramIndex trigram(int column) {
+    return this.trigrams.get(column);
+  }
+
+  /**
+   * Getter for the range index of a column.
+   *
+   * @param column the index of the column
+   * @return the range index, or null if the column is not numeric
+   */
+  public RangeIndex range(int column) {
+    return this.ranges.get(column);
+  }
+
+  /**
+   * Getter for the folded form of a column, which case- and accent-insensitive searches read. Since
+   * fold is asked for by few requests, it is only built the first time the column is searched with
+   * it, and then kept until the next load.
+   *
+   * @param column the index of the column
+   * @return the folded column, or null if the table has no such column
+   */
+  public Column folded(int column) {
+    if (column < 0 || column >= this.table.columnCount()) {
+      return null;
+    }
+    return this.folded.computeIfAbsent(column, c -> Folding.column(this.table.column(c)));
+  }
+
+  /**
+   * Getter for the BK-tree of the distinct values of a column, which fuzzy searches read. Like the
+   * order of a column, it is only built the first time the column is searched with fuzzy, and then
+   * kept until the next load.
+   *
+   * @param column the index of the column
+   * @return the tree, or null if the table has no such column
+   */
+  BkTree fuzzy(int column) {
+    if (column < 0 || column >= this.table.columnCount()) {
+      return null;
+    }
+    return this.fuzzy.computeIfAbsent(column, c -> new BkTree(this.table.column(c)));
+  }
+
+  /**
+   * Getter for the order of the rows of the table by a column. Unlike the other indexes, it is only
+   * made the first time the column is sorted by, and then kept until the next load.
+   *
+   * @param column the index of the column
+   * @return the order of the rows
+   * @throws IndexOutOfBoundsException if the table has no such column
+   */
+  public SortOrder order(int column) {
+    Objects.checkIndex(column, this.table.columnCount());
+    return this.orders.computeIfAbsent(column, c -> new SortOrder(this.table, c));
+  }
+
+  /**
+   * Getter for the stats of a column, which are used to order the parts of a query.
+   *
+   * @param column the index of the column
+   * @return the stats of the column, or null if the table has no such column
+   */
+  public ColumnStats stats(int column) {
+    return column >= 0 && column < this.stats.size() ? this.stats.get(column) : null;
+  }
+}
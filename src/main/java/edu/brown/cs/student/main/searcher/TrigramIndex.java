@@ -0,0 +1,113 @@
+package edu.brown.cs.student.main.searcher;
+
+import edu.brown.cs.student.main.columns.Column;
+import edu.brown.cs.student.main.columns.ColumnarTable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TrigramIndex maps every run of three characters in the cells of one column to the cells that have
+ * it. A cell can only contain a word if it has every three-character run of the word, so the index
+ * narrows a substring search down to a few candidate cells, and the real contains check only runs
+ * on those.
+ *
+ * <p>The index is built for the cells below the first row. Words shorter than three characters
+ * can't be narrowed down, and are left to a scan of the column.
+ */
+public class TrigramIndex {
+
+  private final Map<Long, int[]> cells;
+  private final boolean complete;
+
+  /**
+   * The constructor indexes every cell of one column of the table.
+   *
+   * @param table the table to index
+   * @param column the index of the column
+   */
+  public TrigramIndex(ColumnarTable table, int column) {
+    Map<Long, RowList> building = new HashMap<>();
+    Column cells = table.column(column);
+    boolean complete = true;
+    for (int r = 0; r < cells.size(); r++) {
+      if (column >= table.width(r + 1)) {
+        complete = false;
+        continue;
+      }
+      String cell = cells.get(r);
+      for (int i = 0; i + 3 <= cell.length(); i++) {
+        building.computeIfAbsent(trigram(cell, i), key -> new RowList()).add(r);
+      }
+    }
+    this.complete = complete;
+    this.cells = new HashMap<>(building.size() * 4 / 3 + 1);
+    for (Map.Entry<Long, RowList> entry : building.entrySet()) {
+      this.cells.put(entry.getKey(), entry.getValue().toSortedArray());
+    }
+  }
+
+  /**
+   * Getter for whether every row below the first has a cell in the column. The searcher falls back
+   * to a scan when some rows are too short, so that those rows fail the same way they always did.
+   *
+   * @return true if no row is missing the column
+   */
+  public boolean isComplete() {
+    return this.complete;
+  }
+
+  /**
+   * Finds the cells that could contain the word: the ones that have every three-character run of
+   * it. The runs are intersected starting from the rarest, so the work is bounded by the shortest
+   * list of cells.
+   *
+   * @param word the word to look for
+   * @return the sorted indices of the candidate cells in the column, or null if the word is too
+   *     short to narrow the search down
+   */
+  public int[] candidates(String word) {
+    if (word.length() < 3) {
+      return null;
+    }
+    List<int[]> lists = new ArrayList<>();
+    for (int i = 0; i + 3 <= word.length(); i++) {
+      int[] list = this.cells.get(trigram(word, i));
+      if (list == null) {
+        return new int[0];
+      }
+      lists.add(list);
+    }
+    lists.sort(Comparator.comparingInt(list -> list.length));
+    int[] result = lists.get(0);
+    for (int l = 1; l < lists.size() && result.length > 0; l++) {
+      int[] other = lists.get(l);
+      if (other == result) {
+        continue;
+      }
+      int kept = 0;
+      int[] narrowed = new int[result.length];
+      for (int cell : result) {
+        if (Arrays.binarySearch(other, cell) >= 0) {
+          narrowed[kept++] = cell;
+        }
+      }
+      result = Arrays.copyOf(narrowed, kept);
+    }
+    return result;
+  }
+
+  /**
+   * Packs the three characters of a string that start at an index into one key.
+   *
+   * @param s the string
+   * @param i the index of the first character
+   * @return the key of the three characters
+   */
+  private static long trigram(String s, int i) {
+    return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+  }
+}
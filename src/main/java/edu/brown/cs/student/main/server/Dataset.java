@@ -1,32 +1,96 @@
 package edu.brown.cs.student.main.server;
 
-import java.util.ArrayList;
+import edu.brown.cs.student.main.columns.ColumnarTable;
+import edu.brown.cs.student.main.searcher.BlockFilters;
+import edu.brown.cs.student.main.searcher.TableIndexes;
+import java.util.Collection;
 import java.util.List;
 
 /**
  * Dataset is a class that serves as a central data structure to store the CSV data that is loaded
- * into the server, using a nested list structure, List<List<String>>, to represent the data.
- * LoadHandler, ViewHandler, and SearchHandler take in Dataset to access the loaded CSV for
- * processing and responding to their respective requests.
+ * into the server. The data is kept in a ColumnarTable, which infers a type for every column and
+ * stores it as a primitive or packed array, but still reads as a List<List<String>> of rows, next
+ * to the indexes that are built for it on load. LoadHandler, ViewHandler, and SearchHandler take in
+ * Dataset to access the loaded CSV for processing and responding to their respective requests.
+ * Dataset also keeps the cache of search responses, which every load empties.
  */
 public class Dataset {
-  private List<List<String>> dataset = new ArrayList<>();
+  private volatile LoadedTable loaded = new LoadedTable(new ColumnarTable(List.of()));
+  private final ResultCache results =
+      new ResultCache(ResultCache.DEFAULT_MAX_BYTES, this.loaded.generation());
 
   /**
-   * Sets the dataset to the provided list of lists of strings.
+   * Sets the dataset to the provided list of lists of strings, storing it column by column.
    *
    * @param data The new dataset (list of list of strings) to set.
    */
   public void setDataset(List<List<String>> data) {
-    this.dataset = data;
+    this.setTable(new ColumnarTable(data));
   }
 
   /**
-   * Retrieves the current dataset stored in this container.
+   * Sets the dataset to a table that was already built, like one read back from a snapshot, and
+   * builds its indexes.
    *
-   * @return The list of lists of strings representing the dataset.
+   * @param table The new dataset as a table.
+   */
+  public void setTable(ColumnarTable table) {
+    this.loaded = new LoadedTable(table);
+    this.results.clear(this.loaded.generation());
+  }
+
+  /**
+   * Sets the dataset to a table that was already built, and builds its indexes along with trigram
+   * indexes for the given columns, using block filters instead of an inverted index for searches of
+   * the whole dataset when settings for them are given.
+   *
+   * @param table The new dataset as a table.
+   * @param trigramColumns The columns to build trigram indexes for.
+   * @param blockSettings The settings of the block filters, or null for an inverted index.
+   */
+  public void setTable(
+      ColumnarTable table,
+      Collection<Integer> trigramColumns,
+      BlockFilters.Settings blockSettings) {
+    this.loaded = new LoadedTable(table, new TableIndexes(table, trigramColumns, blockSettings));
+    this.results.clear(this.loaded.generation());
+  }
+
+  /**
+   * Retrieves the current dataset stored in this container. The table can not be changed, so it is
+   * handed out as it is instead of being copied for every request.
+   *
+   * @return The read-only list of rows representing the dataset.
    */
   public List<List<String>> getDataset() {
-    return new ArrayList<>(this.dataset);
+    return this.loaded.table();
+  }
+
+  /**
+   * Retrieves the current dataset as a table, for callers that want to read its columns.
+   *
+   * @return The table that holds the dataset.
+   */
+  public ColumnarTable getTable() {
+    return this.loaded.table();
+  }
+
+  /**
+   * Retrieves the cache of search responses. Responses are kept by the generation of the table they
+   * were made from, so a response that is stored while a new table is loaded is never handed out.
+   *
+   * @return The cache of search responses.
+   */
+  public ResultCache getResults() {
+    return this.results;
+  }
+
+  /**
+   * Retrieves the current dataset together with its indexes, which always belong to each other.
+   *
+   * @return The loaded table and its indexes.
+   */
+  public LoadedTable getLoaded() {
+    return this.loaded;
   }
 }
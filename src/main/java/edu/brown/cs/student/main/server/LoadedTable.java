@@ -0,0 +1,51 @@
+package edu.brown.cs.student.main.server;
+
+import edu.brown.cs.student.main.columns.ColumnarTable;
+import edu.brown.cs.student.main.searcher.MySearcher;
+import edu.brown.cs.student.main.searcher.TableIndexes;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LoadedTable is one loaded CSV together with the indexes that were built for it when it was
+ * loaded, and the searcher that every search request of the table shares. Dataset swaps the whole
+ * record at once, so a request that reads the table and its indexes from the same record never sees
+ * the index of another file.
+ *
+ * <p>Every load gets a new generation, which is how anything that was handed out for one load, like
+ * a cursor into the results of a search, can tell that the table has changed since.
+ *
+ * @param table the rows of the CSV, stored by column
+ * @param indexes the indexes of the table, for searches of the whole dataset and of single columns
+ * @param searcher the searcher of the table, which is safe to use from many requests at once
+ * @param generation the number of the load, which is different for every table that is loaded
+ */
+public record LoadedTable(
+    ColumnarTable table, TableIndexes indexes, MySearcher searcher, long generation) {
+
+  private static final AtomicLong GENERATIONS = new AtomicLong();
+
+  /**
+   * The constructor that builds the searcher of a table and its indexes.
+   *
+   * @param table the rows of the CSV, stored by column
+   * @param indexes the indexes of the table
+   */
+  public LoadedTable(ColumnarTable table, TableIndexes indexes) {
+    this(
+        table,
+        indexes,
+        new MySearcher(table, indexes, ForkJoinPool.commonPool(), MySearcher.PARALLEL_THRESHOLD),
+        GENERATIONS.incrementAndGet());
+  }
+
+  /**
+   * The constructor that builds the indexes of a table, without any trigram indexes.
+   *
+   * @param table the rows of the CSV, stored by column
+   */
+  public LoadedTable(ColumnarTable table) {
+    this(table, new TableIndexes(table, List.of()));
+  }
+}
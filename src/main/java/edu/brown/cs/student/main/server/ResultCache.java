@@ -0,0 +1,153 @@
+package edu.brown.cs.student.main.server;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ResultCache keeps the JSON responses of recent searches, so a search that is sent again is
+ * answered without running it or serializing its rows again. Responses are kept by the generation
+ * of the loaded table they were made from and the parameters of the request, so a response is never
+ * handed out for a table other than the one it was made from. Dataset also empties the cache on
+ * every load, since nothing from an older table can be used again, and tells it the generation of
+ * the new table, so a search that started before the load can not put its response back in.
+ *
+ * <p>The cache is bounded by the approximate number of bytes its responses and keys take, and it
+ * evicts the least recently used response until a new one fits. A response that is bigger than the
+ * whole cache is not kept. The number of hits, misses and evictions is counted, so the size can be
+ * tuned against them.
+ *
+ * <p>Every method holds the lock of the cache, which is fine since each of them only does a map
+ * lookup or two, and the expensive work of making a response happens outside of it.
+ */
+public class ResultCache {
+
+  /** The number of bytes the cache of the server may take: 32 MiB. */
+  public static final long DEFAULT_MAX_BYTES = 32L << 20;
+
+  /** About how many bytes a map entry and its key and value objects take, past their strings. */
+  private static final long ENTRY_OVERHEAD = 128;
+
+  /**
+   * The key of a response.
+   *
+   * @param generation the generation of the loaded table the response was made from
+   * @param request the parameters of the request that decide the response, in a fixed order
+   */
+  public record Key(long generation, List<String> request) {}
+
+  /**
+   * The counters of the cache, as they were when they were read.
+   *
+   * @param hits how many lookups found a response
+   * @param misses how many lookups did not
+   * @param evictions how many responses were dropped to make room for others
+   * @param entries how many responses are kept
+   * @param bytes about how many bytes the kept responses take
+   * @param maxBytes how many bytes the responses may take
+   */
+  public record Stats(
+      long hits, long misses, long evictions, int entries, long bytes, long maxBytes) {}
+
+  private final long maxBytes;
+  private final LinkedHashMap<Key, String> responses;
+  private long generation;
+  private long bytes;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * The constructor for an empty cache.
+   *
+   * @param maxBytes about how many bytes the responses may take
+   * @param generation the generation of the loaded table, the only one responses are kept for
+   */
+  public ResultCache(long maxBytes, long generation) {
+    this.maxBytes = maxBytes;
+    this.generation = generation;
+    // access order, so the first entry is always the least recently used
+    this.responses = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Looks up the response of a request, counting a hit or a miss.
+   *
+   * @param key the generation and the parameters of the request
+   * @return the response, or null if it is not kept
+   */
+  public synchronized String get(Key key) {
+    String response = this.responses.get(key);
+    if (response == null) {
+      this.misses++;
+    } else {
+      this.hits++;
+    }
+    return response;
+  }
+
+  /**
+   * Keeps the response of a request, evicting the least recently used responses until it fits. A
+   * response made from a table that is no longer loaded could never be handed out, so it is not
+   * kept.
+   *
+   * @param key the generation and the parameters of the request
+   * @param response the response, as JSON
+   */
+  public synchronized void put(Key key, String response) {
+    long size = sizeOf(key, response);
+    if (size > this.maxBytes || key.generation() != this.generation) {
+      return;
+    }
+    String old = this.responses.remove(key);
+    if (old != null) {
+      this.bytes -= sizeOf(key, old);
+    }
+    Iterator<Map.Entry<Key, String>> eldest = this.responses.entrySet().iterator();
+    while (this.bytes + size > this.maxBytes && eldest.hasNext()) {
+      Map.Entry<Key, String> entry = eldest.next();
+      this.bytes -= sizeOf(entry.getKey(), entry.getValue());
+      eldest.remove();
+      this.evictions++;
+    }
+    this.responses.put(key, response);
+    this.bytes += size;
+  }
+
+  /**
+   * Drops every response, without counting them as evictions, for a new table that was loaded.
+   *
+   * @param generation the generation of the new table, the only one responses are kept for now
+   */
+  public synchronized void clear(long generation) {
+    this.responses.clear();
+    this.bytes = 0;
+    this.generation = generation;
+  }
+
+  /**
+   * Reads the counters of the cache.
+   *
+   * @return the counters and the size of the cache
+   */
+  public synchronized Stats stats() {
+    return new Stats(
+        this.hits, this.misses, this.evictions, this.responses.size(), this.bytes, this.maxBytes);
+  }
+
+  /**
+   * Guesses how many bytes a response and its key take, counting two bytes for every character.
+   *
+   * @param key the key of the response
+   * @param response the response
+   * @return about how many bytes they take
+   */
+  private static long sizeOf(Key key, String response) {
+    long size = ENTRY_OVERHEAD + 2L * response.length();
+    for (String param : key.request()) {
+      size += param == null ? 0 : 2L * param.length();
+    }
+    return size;
+  }
+}
@@ -6,7 +6,9 @@ import java.util.ArrayList;
 import java.util.List;
 import spark.Spark;
 
+import edu.brown.cs.student.main.handlers.AggregateHandler;
 import edu.brown.cs.student.main.handlers.BroadbandHandler;
+import edu.brown.cs.student.main.handlers.CacheStatsHandler;
 import edu.brown.cs.student.main.handlers.LoadHandler;
 import edu.brown.cs.student.main.handlers.SearchHandler;
 import edu.brown.cs.student.main.handlers.ViewHandler;
@@ -15,8 +17,8 @@ import spark.Spark;
 /**
  * The Server class acts as the central component that listens for incoming HTTP requests, routes
  * them to the appropriate handler, and sends back the corresponding responses using the SparkJava
- * framework. Endpoints associated with each handler—`loadcsv`, `viewcsv`, `searchcsv`, and
- * `broadband`— are set up here.
+ * framework. Endpoints associated with each handler—`loadcsv`, `viewcsv`, `searchcsv`,
+ * `aggregatecsv`, `broadband`, and `cachestats`— are set up here.
  */
 public class Server {
 
@@ -44,6 +46,8 @@ public class Server {
     Spark.get("viewcsv", new ViewHandler(current));
     Spark.get("searchcsv", new SearchHandler(current));
     Spark.get("broadband", new BroadbandHandler());
+    Spark.get("cachestats", new CacheStatsHandler(current));
+    Spark.get("aggregatecsv", new AggregateHandler(current));
     Spark.init();
     Spark.awaitInitialization();
 
@@ -0,0 +1,146 @@
+package edu.brown.cs.student.main.server;
+
+import edu.brown.cs.student.main.columns.ColumnarTable;
+import edu.brown.cs.student.main.columns.TableSnapshot;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SnapshotCache keeps binary snapshots of the tables that were loaded, in a cache directory, so
+ * loading the same CSV again maps the snapshot instead of parsing the file. A snapshot is keyed by
+ * the absolute path of the CSV, its size and the time it was last modified, so a CSV that changed
+ * since it was cached is always parsed again.
+ *
+ * <p>The cache only ever speeds up loading. A snapshot that can't be written is skipped, and one
+ * that can't be read is treated as missing, so the caller falls back to parsing the CSV.
+ */
+public class SnapshotCache {
+
+  /** The directory snapshots go to when the server does not pick one. */
+  public static final Path DEFAULT_DIRECTORY =
+      Path.of(System.getProperty("java.io.tmpdir"), "csv-snapshots");
+
+  private final Path directory;
+
+  /**
+   * The constructor for a cache that keeps its snapshots in the given directory, which is created
+   * when the first snapshot is written.
+   *
+   * @param directory the directory for the snapshots
+   */
+  public SnapshotCache(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Finds the key of a CSV as it is on disk right now.
+   *
+   * @param csv the CSV file
+   * @return the key of the file
+   * @throws IOException if the file can't be read
+   */
+  public Key keyOf(Path csv) throws IOException {
+    Path absolute = csv.toAbsolutePath().normalize();
+    BasicFileAttributes attributes = Files.readAttributes(absolute, BasicFileAttributes.class);
+    return new Key(absolute, attributes.size(), attributes.lastModifiedTime().toMillis());
+  }
+
+  /**
+   * Reads the snapshot of a CSV, if one was written for the same version of the file.
+   *
+   * @param key the key of the CSV
+   * @return the table of the CSV, or null if there is no usable snapshot
+   */
+  public ColumnarTable find(Key key) {
+    Path file = this.fileOf(key);
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+    try {
+      return TableSnapshot.read(file, key.toString());
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Writes the snapshot of a CSV, and removes the snapshots of older versions of the same file. The
+   * snapshot is written to a temporary file first and then moved in place, so a load that runs at
+   * the same time never reads half a snapshot.
+   *
+   * @param key the key of the CSV
+   * @param table the table the CSV was parsed into
+   */
+  public void store(Key key, ColumnarTable table) {
+    try {
+      Files.createDirectories(this.directory);
+      try (DirectoryStream<Path> old =
+          Files.newDirectoryStream(this.directory, key.prefix() + "-*.snapshot")) {
+        for (Path file : old) {
+          Files.deleteIfExists(file);
+        }
+      }
+      Path temporary = Files.createTempFile(this.directory, key.prefix(), ".tmp");
+      try {
+        TableSnapshot.write(table, key.toString(), temporary);
+        Files.move(
+            temporary,
+            this.fileOf(key),
+            StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+    } catch (IOException e) {
+      // the cache is only a shortcut, so the load goes on without a snapshot
+    }
+  }
+
+  /**
+   * Getter for the snapshot file of a key.
+   *
+   * @param key the key of the CSV
+   * @return where the snapshot of that version of the CSV goes
+   */
+  private Path fileOf(Key key) {
+    return this.directory.resolve(
+        key.prefix() + "-" + key.size() + "-" + key.modified() + ".snapshot");
+  }
+
+  /**
+   * Key is what a snapshot is cached under: which CSV it is, and which version of it.
+   *
+   * @param path the absolute path of the CSV
+   * @param size the size of the CSV in bytes
+   * @param modified when the CSV was last modified, in milliseconds
+   */
+  public record Key(Path path, long size, long modified) {
+
+    /**
+     * Getter for the part of the snapshot name that is the same for every version of a CSV. It is
+     * the first 64 bits of the SHA-256 digest of the path, so two CSVs do not end up removing each
+     * other's snapshots the way they could with a 32-bit hash.
+     *
+     * @return a digest of the path, in hex
+     */
+    String prefix() {
+      try {
+        byte[] digest =
+            MessageDigest.getInstance("SHA-256")
+                .digest(this.path.toString().getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest, 0, 8);
+      } catch (NoSuchAlgorithmException e) {
+        // every Java platform has to support SHA-256
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
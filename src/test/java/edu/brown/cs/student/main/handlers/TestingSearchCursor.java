@@ -0,0 +1,46 @@
+package edu.brown.cs.student.main.handlers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests how SearchCursor digests the parameters of a search and reads itself back. It sits in the
+ * handlers package since SearchCursor isn't public.
+ */
+public class TestingSearchCursor {
+
+  /**
+   * Test that searches whose parameters have the same 32-bit hash, or that only differ in where one
+   * parameter ends and the next begins, get different digests.
+   */
+  @Test
+  public void digestTellsSearchesApart() {
+    assertEquals("Aa".hashCode(), "BB".hashCode());
+    assertNotEquals(
+        SearchCursor.digest(List.of("true", "Aa")), SearchCursor.digest(List.of("true", "BB")));
+    assertNotEquals(
+        SearchCursor.digest(List.of("ab", "c")), SearchCursor.digest(List.of("a", "bc")));
+    assertNotEquals(
+        SearchCursor.digest(Arrays.asList("a", null)), SearchCursor.digest(List.of("a", "null")));
+    assertEquals(
+        SearchCursor.digest(Arrays.asList("i", null)),
+        SearchCursor.digest(Arrays.asList("i", null)));
+  }
+
+  /** Test that a cursor reads back the same after it is encoded, and that other strings don't. */
+  @Test
+  public void cursorRoundTrips() {
+    SearchCursor cursor = new SearchCursor(3, SearchCursor.digest(List.of("i")), 17);
+    assertEquals(cursor, SearchCursor.decode(cursor.encode()));
+    assertEquals(
+        new SearchCursor(1, Long.MIN_VALUE, 0),
+        SearchCursor.decode(new SearchCursor(1, Long.MIN_VALUE, 0).encode()));
+    assertNull(SearchCursor.decode("not a cursor"));
+    assertNull(SearchCursor.decode(new SearchCursor(1, 2, -1).encode()));
+  }
+}
@@ -0,0 +1,114 @@
+package edu.brown.cs.student.main.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.brown.cs.student.main.rowhandler.RowBlock;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests MappedRowSource with windows of only a few bytes, so that rows, quoted fields and \r\n are
+ * cut at window edges the way they would be at the 2 GB edges of a big file. It sits in the parser
+ * package since the windowed constructor isn't public.
+ */
+public class TestingMappedRowSource {
+
+  static final String CSV =
+      "name,city,note\r\n"
+          + "Ann,\"Providence, RI\",\"says \"\"hi\"\"\"\r\n"
+          + "Bo,Boston,\n"
+          + "\"Cy, Jr.\",\"\",plain\r"
+          + "Di,\"New York, NY\",last\r\n"
+          + "\r\n"
+          + "Ed,\"a,b,c\",end";
+
+  @TempDir Path dir;
+
+  /**
+   * Reads every row of a source, a few rows per block, into lists of fields.
+   *
+   * @param source the source to read
+   * @return the fields of every row, in order
+   * @throws IOException if the source fails
+   */
+  static List<List<String>> read(RowSource source) throws IOException {
+    List<List<String>> rows = new ArrayList<>();
+    RowBlock block = source.nextBlock(2);
+    while (block.size() > 0) {
+      for (int i = 0; i < block.size(); i++) {
+        rows.add(block.row(i).toList());
+      }
+      block = source.nextBlock(2);
+    }
+    return rows;
+  }
+
+  /**
+   * Reads every row of a source after splitting it into chunks.
+   *
+   * @param source the source to split
+   * @return the fields of every row, in order
+   * @throws IOException if the source fails
+   */
+  static List<List<String>> readSplit(RowSource source) throws IOException {
+    List<List<String>> rows = new ArrayList<>();
+    for (RowSource chunk : source.split(4)) {
+      rows.addAll(read(chunk));
+    }
+    return rows;
+  }
+
+  /**
+   * Writes the test CSV to a file in the temporary directory.
+   *
+   * @return the path of the file
+   * @throws IOException if the file can't be written
+   */
+  Path write() throws IOException {
+    Path file = this.dir.resolve("windows.csv");
+    Files.writeString(file, CSV, StandardCharsets.UTF_8);
+    return file;
+  }
+
+  /**
+   * Test that every window size from the longest row up to the whole file reads the same rows as a
+   * ReaderRowSource, so that no row, quoted field or \r\n is broken where a window is cut.
+   */
+  @Test
+  public void smallWindowsMatchReader() throws IOException {
+    Path file = this.write();
+    List<List<String>> expected;
+    try (RowSource reader = new ReaderRowSource(new StringReader(CSV))) {
+      expected = read(reader);
+    }
+    assertEquals(7, expected.size());
+    assertEquals(List.of("Ann", "\"Providence, RI\"", "\"says \"\"hi\"\"\""), expected.get(1));
+    int longest = 0;
+    for (String line : CSV.split("\r\n|\r|\n")) {
+      longest = Math.max(longest, line.length());
+    }
+    for (int window = longest + 2; window <= CSV.length(); window++) {
+      try (RowSource mapped = new MappedRowSource(file, window)) {
+        assertEquals(expected, read(mapped), "window of " + window + " bytes");
+      }
+      try (RowSource mapped = new MappedRowSource(file, window)) {
+        assertEquals(expected, readSplit(mapped), "split window of " + window + " bytes");
+      }
+    }
+  }
+
+  /** Test that a row that doesn't fit in a single window is an error rather than a split row. */
+  @Test
+  public void rowBiggerThanWindowFails() throws IOException {
+    Path file = this.write();
+    assertThrows(IOException.class, () -> read(new MappedRowSource(file, 8)));
+  }
+}
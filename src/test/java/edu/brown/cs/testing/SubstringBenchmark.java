@@ -0,0 +1,94 @@
+package edu.brown.cs.testing;
+
+import edu.brown.cs.student.main.columns.ByteSearch;
+import edu.brown.cs.student.main.parser.CSVTokenizer;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SubstringBenchmark times the ways a substring search can check the cells of a column, on the
+ * census data repeated until it is big enough to time: decoding every cell and calling
+ * String.contains, comparing the packed bytes one at a time, and comparing them eight at a time. It
+ * is not a test and does not run with them; after mvn test-compile, run it from the project root
+ * with java -cp target/classes:target/test-classes edu.brown.cs.testing.SubstringBenchmark
+ */
+public class SubstringBenchmark {
+
+  private static final int CELLS = 4_000_000;
+  private static final int ROUNDS = 5;
+  private static final List<String> WORDS =
+      List.of("County", "Providence", "bristol-county-ri", "Total", "05000US", "zzz");
+
+  /**
+   * Runs the benchmark and prints the time each way took for every word.
+   *
+   * @param args not used
+   * @throws IOException if the census files can't be read
+   */
+  public static void main(String[] args) throws IOException {
+    List<String> cells = new ArrayList<>();
+    CSVTokenizer tokenizer = new CSVTokenizer();
+    try (var paths = Files.list(Path.of("data/census"))) {
+      for (Path file : paths.toList()) {
+        for (String line : Files.readAllLines(file)) {
+          cells.addAll(tokenizer.split(line));
+        }
+      }
+    }
+    List<byte[]> encoded = new ArrayList<>();
+    for (String cell : cells) {
+      encoded.add(cell.getBytes(StandardCharsets.UTF_8));
+    }
+    int[] offsets = new int[CELLS + 1];
+    for (int row = 0; row < CELLS; row++) {
+      offsets[row + 1] = offsets[row] + encoded.get(row % encoded.size()).length;
+    }
+    byte[] packed = new byte[offsets[CELLS]];
+    for (int row = 0; row < CELLS; row++) {
+      byte[] cell = encoded.get(row % encoded.size());
+      System.arraycopy(cell, 0, packed, offsets[row], cell.length);
+    }
+    System.out.printf("%,d cells, %,d bytes%n", CELLS, packed.length);
+    for (int round = 0; round < ROUNDS; round++) {
+      for (String word : WORDS) {
+        byte[] needle = word.getBytes(StandardCharsets.UTF_8);
+        long start = System.nanoTime();
+        int strings = 0;
+        for (int row = 0; row < CELLS; row++) {
+          int from = offsets[row];
+          String cell = new String(packed, from, offsets[row + 1] - from, StandardCharsets.UTF_8);
+          if (cell.contains(word)) {
+            strings++;
+          }
+        }
+        long decoded = System.nanoTime() - start;
+        start = System.nanoTime();
+        int scalar = 0;
+        for (int row = 0; row < CELLS; row++) {
+          if (ByteSearch.indexOfScalar(packed, offsets[row], offsets[row + 1], needle) >= 0) {
+            scalar++;
+          }
+        }
+        long bytes = System.nanoTime() - start;
+        start = System.nanoTime();
+        int swar = 0;
+        for (int row = 0; row < CELLS; row++) {
+          if (ByteSearch.indexOf(packed, offsets[row], offsets[row + 1], needle) >= 0) {
+            swar++;
+          }
+        }
+        long longs = System.nanoTime() - start;
+        if (strings != scalar || scalar != swar) {
+          throw new IllegalStateException("The kernels disagree on " + word);
+        }
+        System.out.printf(
+            "round %d %-18s %,9d hits  String.contains %4d ms  scalar %4d ms  swar %4d ms%n",
+            round, word, swar, decoded / 1_000_000, bytes / 1_000_000, longs / 1_000_000);
+      }
+    }
+  }
+}
@@ -6,18 +6,51 @@ import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.assertThrows;
 import static org.testng.AssertJUnit.assertEquals;
 
+import edu.brown.cs.student.main.columns.ByteSearch;
+import edu.brown.cs.student.main.columns.ColumnMemory;
+import edu.brown.cs.student.main.columns.ColumnType;
+import edu.brown.cs.student.main.columns.ColumnarTable;
+import edu.brown.cs.student.main.columns.Folding;
+import edu.brown.cs.student.main.parser.CSVTokenizer;
 import edu.brown.cs.student.main.parser.MyParser;
+import edu.brown.cs.student.main.parser.ParseReport;
 import edu.brown.cs.student.main.parser.ParsedRow;
+import edu.brown.cs.student.main.rowhandler.CreatorFromRow;
 import edu.brown.cs.student.main.rowhandler.FactoryFailureException;
+import edu.brown.cs.student.main.rowhandler.Rejections;
+import edu.brown.cs.student.main.rowhandler.RowBlock;
 import edu.brown.cs.student.main.rowhandler.RowHandler;
 import edu.brown.cs.student.main.rowhandler.SecondRowHandler;
+import edu.brown.cs.student.main.searcher.Aggregation;
+import edu.brown.cs.student.main.searcher.BlockFilters;
+import edu.brown.cs.student.main.searcher.Matches;
+import edu.brown.cs.student.main.searcher.Matches.Page;
 import edu.brown.cs.student.main.searcher.MySearcher;
+import edu.brown.cs.student.main.searcher.NumberRange;
+import edu.brown.cs.student.main.searcher.QueryPlan;
+import edu.brown.cs.student.main.searcher.RangeIndex;
+import edu.brown.cs.student.main.searcher.SortOrder;
+import edu.brown.cs.student.main.searcher.TableIndexes;
+import edu.brown.cs.student.main.server.ResultCache;
+import edu.brown.cs.student.main.server.SnapshotCache;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -92,6 +125,31 @@ public class TestingParseSearch {
     assertFalse(this.testSet.contains(row2));
   }
 
+  /**
+   * Test that the report counts the rows that were read, accepted and rejected, and logs the rows
+   * with empty entries that RowHandler turned down, with their index in the file.
+   *
+   * @throws FileNotFoundException
+   */
+  @Test
+  public void parseReportCountsRejects() throws FileNotFoundException {
+    String filepath = "data/stars/ten-star.csv";
+    this.parser = new MyParser(new FileReader(filepath), this.creator);
+    this.parser.toParse();
+    ParseReport report = this.parser.getReport();
+    assertEquals(11, report.getRowsRead());
+    assertEquals(7, report.getRowsAccepted());
+    assertEquals(4, report.getRowsRejected());
+    List<Integer> indices = new ArrayList<>();
+    for (ParseReport.Reject reject : report.getRejects()) {
+      indices.add(reject.index());
+      assertEquals("Your row contains an empty entry", reject.reason());
+    }
+    assertEquals(List.of(2, 3, 4, 10), indices);
+    assertEquals(
+        List.of("1", "", "282.43485", "0.00449", "5.36884"), report.getRejects().get(0).row());
+  }
+
   /**
    * A test that checks if the parser can handle the files of bigger size.
    *
@@ -122,6 +180,1037 @@ public class TestingParseSearch {
     assertEquals("1, Joe, MetCalf, 330", testSet1.get(1).toString());
   }
 
+  /**
+   * Test that streaming mode hands out the same rows as the materializing mode, skipping the rows
+   * that fail to be created, without ever building the dataset.
+   *
+   * @throws FileNotFoundException
+   */
+  @Test
+  public void parseStreamingMatchesMaterializing() throws FileNotFoundException {
+    String filepath = "data/stars/ten-star.csv";
+    MyParser<ArrayList<String>> full = new MyParser<>(new FileReader(filepath), this.creator);
+    full.toParse();
+    MyParser<ArrayList<String>> streamed =
+        new MyParser<>(new FileReader(filepath), this.creator, true);
+    List<ArrayList<String>> rows = new ArrayList<>();
+    for (ArrayList<String> row : streamed) {
+      rows.add(row);
+    }
+    assertEquals(7, rows.size());
+    assertEquals(full.getDataset(), rows);
+    assertFalse(streamed.iterator().hasNext());
+    assertThrows(IllegalStateException.class, streamed::getDataset);
+    assertThrows(IllegalStateException.class, streamed::toParse);
+  }
+
+  /**
+   * Test that reading a file through the memory mapping gives the same dataset as reading it
+   * through a FileReader, for every file we have.
+   *
+   * @throws IOException if one of the files can't be read
+   */
+  @Test
+  public void parseMappedMatchesReader() throws IOException {
+    List<Path> files;
+    try (var paths = Files.walk(Path.of("data"))) {
+      files = paths.filter(path -> path.toString().endsWith(".csv")).toList();
+    }
+    for (Path file : files) {
+      MyParser<ArrayList<String>> read =
+          new MyParser<>(new FileReader(file.toFile()), this.creator);
+      read.toParse();
+      MyParser<ArrayList<String>> mapped = new MyParser<>(file, this.creator);
+      mapped.toParse();
+      Assertions.assertEquals(read.getDataset(), mapped.getDataset(), file.toString());
+    }
+  }
+
+  /**
+   * Test that every file we have reads back the same through a ColumnarTable as it was parsed, and
+   * that the numeric columns of a census file are stored as numbers.
+   *
+   * @throws IOException if one of the files can't be read
+   */
+  @Test
+  public void columnarTableMatchesRows() throws IOException {
+    CreatorFromRow<List<String>> rows = row -> row;
+    List<Path> files;
+    try (var paths = Files.walk(Path.of("data"))) {
+      files = paths.filter(path -> path.toString().endsWith(".csv")).toList();
+    }
+    for (Path file : files) {
+      MyParser<List<String>> parsed = new MyParser<>(file, rows);
+      parsed.toParse();
+      ColumnarTable table = new ColumnarTable(parsed.getDataset());
+      Assertions.assertEquals(parsed.getDataset(), table, file.toString());
+    }
+    MyParser<List<String>> parsed =
+        new MyParser<>(Path.of("data/census/postsecondary_education.csv"), rows);
+    parsed.toParse();
+    ColumnarTable table = new ColumnarTable(parsed.getDataset());
+    assertEquals(
+        List.of(
+            ColumnType.STRING,
+            ColumnType.INT,
+            ColumnType.INT,
+            ColumnType.INT,
+            ColumnType.STRING,
+            ColumnType.INT,
+            ColumnType.STRING,
+            ColumnType.DOUBLE,
+            ColumnType.STRING,
+            ColumnType.INT),
+        table.schema());
+    this.searcher = new MySearcher(table, true, "nam: Completions");
+    this.searcher.findRows("214");
+    assertEquals(1, this.searcher.getFound().size());
+  }
+
+  /**
+   * Test that searching the whole of a ColumnarTable, which compares numbers and dictionary codes,
+   * finds the same rows as searching the parsed rows, for every file we have and every cell of its
+   * first rows.
+   *
+   * @throws IOException if one of the files can't be read
+   */
+  @Test
+  public void searchColumnarMatchesRows() throws IOException {
+    CreatorFromRow<List<String>> rows = row -> row;
+    List<Path> files;
+    try (var paths = Files.walk(Path.of("data"))) {
+      files = paths.filter(path -> path.toString().endsWith(".csv")).toList();
+    }
+    for (Path file : files) {
+      MyParser<List<String>> parsed = new MyParser<>(file, rows);
+      parsed.toParse();
+      List<List<String>> dataset = new ArrayList<>(parsed.getDataset());
+      ColumnarTable table = new ColumnarTable(dataset);
+      List<String> words = new ArrayList<>(List.of("", "not there", "0", "-1"));
+      for (List<String> row : dataset.subList(0, Math.min(20, dataset.size()))) {
+        words.addAll(row);
+      }
+      for (String word : words) {
+        MySearcher expected = new MySearcher(dataset, true, "NULL");
+        expected.findRows(word);
+        MySearcher columnar = new MySearcher(table, true, "NULL");
+        columnar.findRows(word);
+        Assertions.assertEquals(expected.getFound(), columnar.getFound(), file + " " + word);
+      }
+    }
+  }
+
+  /**
+   * Test that looking a word up in the inverted index finds the same rows, in the same order, as
+   * going through the parsed rows, with and without a header, for every file we have.
+   *
+   * @throws IOException if one of the files can't be read
+   */
+  @Test
+  public void searchIndexMatchesScan() throws IOException {
+    List<Path> files;
+    try (var paths = Files.walk(Path.of("data"))) {
+      files = paths.filter(path -> path.toString().endsWith(".csv")).toList();
+    }
+    for (Path file : files) {
+      MyParser<List<String>> parsed = new MyParser<>(file, row -> row);
+      parsed.toParse();
+      List<List<String>> dataset = new ArrayList<>(parsed.getDataset());
+      ColumnarTable table = new ColumnarTable(dataset);
+      TableIndexes indexes = new TableIndexes(table, List.of());
+      List<String> words = new ArrayList<>(List.of("", "not there"));
+      for (List<String> row : dataset.subList(0, Math.min(20, dataset.size()))) {
+        words.addAll(row);
+      }
+      for (String word : words) {
+        for (boolean header : List.of(true, false)) {
+          MySearcher expected = new MySearcher(dataset, header, "NULL");
+          expected.findRows(word);
+          MySearcher indexed = new MySearcher(table, indexes, header, "NULL");
+          indexed.findRows(word);
+          Assertions.assertEquals(expected.getFound(), indexed.getFound(), file + " " + word);
+        }
+      }
+    }
+  }
+
+  /**
+   * Test that searching the whole dataset through block filters finds the same rows, in the same
+   * order, as going through the parsed rows, for blocks of a few sizes and for every file we have,
+   * and that a block filter never says no for a value that is in its block.
+   *
+   * @throws IOException if one of the files can't be read
+   */
+  @Test
+  public void searchBlockFiltersMatchScan() throws IOException {
+    List<Path> files;
+    try (var paths = Files.walk(Path.of("data"))) {
+      files = paths.filter(path -> path.toString().endsWith(".csv")).toList();
+    }
+    for (Path file : files) {
+      MyParser<List<String>> parsed = new MyParser<>(file, row -> row);
+      parsed.toParse();
+      List<List<String>> dataset = new ArrayList<>(parsed.getDataset());
+      ColumnarTable table = new ColumnarTable(dataset);
+      List<String> words = new ArrayList<>(List.of("", "not there"));
+      for (List<String> row : dataset.subList(0, Math.min(20, dataset.size()))) {
+        words.addAll(row);
+      }
+      for (int blockRows : List.of(1, 7, 64)) {
+        TableIndexes indexes =
+            new TableIndexes(table, List.of(), new BlockFilters.Settings(blockRows, 0.05));
+        assertEquals(null, indexes.inverted());
+        for (String word : words) {
+          for (boolean header : List.of(true, false)) {
+            MySearcher expected = new MySearcher(dataset, header, "NULL");
+            expected.findRows(word);
+            MySearcher filtered = new MySearcher(table, indexes, header, "NULL");
+            filtered.findRows(word);
+            Assertions.assertEquals(expected.getFound(), filtered.getFound(), file + " " + word);
+          }
+          int[] rows = indexes.blocks().rows(word);
+          for (int row = 0; row < dataset.size(); row++) {
+            if (dataset.get(row).contains(word)) {
+              assertTrue(Arrays.binarySearch(rows, row) >= 0);
+            }
+          }
+        }
+      }
+    }
+    assertThrows(IllegalArgumentException.class, () -> new BlockFilters.Settings(0, 0.01));
+    assertThrows(IllegalArgumentException.class, () -> new BlockFilters.Settings(16, 1));
+  }
+
+  /**
+   * Test that searching a column through its trigram index finds the same rows as going through the
+   * parsed rows, for pieces of the cells of every column of every file we have.
+   *
+   * @throws IOException if one of the files can't be read
+   */
+  @Test
+  public void searchTrigramMatchesScan() throws IOException {
+    List<Path> files;
+    try (var paths = Files.walk(Path.of("data"))) {
+      files = paths.filter(path -> path.toString().endsWith(".csv")).toList();
+    }
+    for (Path file : files) {
+      MyParser<List<String>> parsed = new MyParser<>(file, row -> row);
+      parsed.toParse();
+      List<List<String>> dataset = new ArrayList<>(parsed.getDataset());
+      ColumnarTable table = new ColumnarTable(dataset);
+      List<Integer> columns = new ArrayList<>();
+      for (int c = 0; c < table.columnCount(); c++) {
+        columns.add(c);
+      }
+      TableIndexes indexes = new TableIndexes(table, columns);
+      for (int c = 0; c < Math.min(table.columnCount(), dataset.get(0).size()); c++) {
+        List<String> words = new ArrayList<>(List.of("", "not there", "zzz"));
+        for (List<String> row : dataset.subList(1, Math.min(10, dataset.size()))) {
+          String cell = row.size() > c ? row.get(c) : "";
+          words.add(cell);
+          words.add(cell.substring(0, Math.min(2, cell.length())));
+          words.add(
+              cell.substring(cell.length() / 3, Math.min(cell.length(), cell.length() / 3 + 4)));
+        }
+        for (String word : words) {
+          for (boolean header : List.of(true, false)) {
+            MySearcher expected = new MySearcher(dataset, header, "ind: " + c);
+            expected.findRows(word);
+            MySearcher indexed = new MySearcher(table, indexes, header, "ind: " + c);
+            indexed.findRows(word);
+            Assertions.assertEquals(
+                expected.getFound(), indexed.getFound(), file + " " + c + " " + word);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Test that the eight-bytes-at-a-time substring search finds the same place as the byte by byte
+   * one, and as String.indexOf, for pieces of every cell of every file we have and for cells of
+   * every length around a long.
+   *
+   * @throws IOException if one of the files can't be read
+   */
+  @Test
+  public void searchByteKernelMatchesScalar() throws IOException {
+    List<Path> files;
+    try (var paths = Files.walk(Path.of("data"))) {
+      files = paths.filter(path -> path.toString().endsWith(".csv")).toList();
+    }
+    List<String> cells =
+        new ArrayList<>(List.of("", "a", "aaaaaaaaab", "abcdefghabcdefgh", "ñandú"));
+    for (Path file : files) {
+      for (String line : Files.readAllLines(file)) {
+        cells.addAll(new CSVTokenizer().split(line));
+      }
+    }
+    for (String cell : cells) {
+      byte[] bytes = ("xx" + cell + "yy").getBytes(StandardCharsets.UTF_8);
+      int from = 2;
+      int to = bytes.length - 2;
+      List<String> words = new ArrayList<>(List.of("", "a", "b", "ab", "zz", "xx", "ñ", cell));
+      for (int i = 0; i < cell.length(); i += 3) {
+        words.add(cell.substring(i, Math.min(cell.length(), i + 1 + i % 9)));
+      }
+      for (String word : words) {
+        byte[] needle = word.getBytes(StandardCharsets.UTF_8);
+        int index = cell.indexOf(word);
+        int expected =
+            index < 0
+                ? -1
+                : from + cell.substring(0, index).getBytes(StandardCharsets.UTF_8).length;
+        assertEquals(
+            cell + " " + word, expected, ByteSearch.indexOfScalar(bytes, from, to, needle));
+        assertEquals(cell + " " + word, expected, ByteSearch.indexOf(bytes, from, to, needle));
+      }
+    }
+  }
+
+  /**
+   * Test that a scan that is split into chunks on a pool finds the same rows, in the same order, as
+   * the sequential scan, for searches of the whole dataset and of one column.
+   *
+   * @throws IOException if one of the files can't be read
+   */
+  @Test
+  public void searchParallelMatchesSequential() throws IOException {
+    StringBuilder csv = new StringBuilder("id,name,group\n");
+    for (int i = 0; i < 40000; i++) {
+      csv.append(i).append(",name").append(i % 1000).append(",g").append(i % 7).append('\n');
+    }
+    Path file = Files.createTempFile("search", ".csv");
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Files.writeString(file, csv);
+      MyParser<List<String>> parsed = new MyParser<>(file, row -> row);
+      parsed.toParse();
+      List<List<String>> dataset = new ArrayList<>(parsed.getDataset());
+      ColumnarTable table = new ColumnarTable(dataset);
+      MySearcher parallel = new MySearcher(table, null, pool, 1);
+      for (String narrow : List.of("NULL", "ind: 1", "nam: group")) {
+        for (String word : List.of("g3", "name99", "name999", "123", "nothing")) {
+          MySearcher expected = new MySearcher(dataset, true, narrow);
+          expected.findRows(word);
+          Assertions.assertEquals(
+              expected.getFound(), parallel.search(word, true, narrow), narrow + " " + word);
+          Assertions.assertEquals(
+              expected.getFound().size(), parallel.matches(word, true, narrow).count());
+        }
+      }
+    } finally {
+      pool.shutdown();
+      Files.delete(file);
+    }
+  }
+
+  /**
+   * Test that a shared searcher makes the plan of a narrow key once and reuses it, that column
+   * names resolve to the same columns as in the header row, and that bad keys are not kept.
+   *
+   * @throws IOException if the file can't be read
+   */
+  @Test
+  public void searchPlansAreCached() throws IOException {
+    MyParser<List<String>> parsed =
+        new MyParser<>(Path.of("data/census/income_by_race_edited.csv"), row -> row);
+    parsed.toParse();
+    ColumnarTable table = new ColumnarTable(parsed.getDataset());
+    MySearcher shared =
+        new MySearcher(
+            table, new TableIndexes(table, List.of(1)), ForkJoinPool.commonPool(), 1 << 16);
+    QueryPlan plan = shared.plan(true, "nam: Race");
+    assertTrue(plan == shared.plan(true, "nam: Race"));
+    assertEquals(table.get(0).indexOf("Race"), plan.narrowIndex());
+    assertEquals(1, plan.startIndex());
+    assertTrue(plan.trigrams() != null);
+    assertEquals(-1, shared.plan(true, "nam: Nothing").narrowIndex());
+    assertEquals(0, shared.plan(false, "NULL").startIndex());
+    assertThrows(IllegalArgumentException.class, () -> shared.plan(false, "nam: Race"));
+    assertThrows(IllegalArgumentException.class, () -> shared.plan(false, "nam: Race"));
+  }
+
+  /**
+   * Test that queries joining searches with AND, OR and NOT find the same rows as the single
+   * searches joined by hand, with and without indexes, and that broken queries are turned down.
+   *
+   * @throws IOException if the file can't be read
+   */
+  @Test
+  public void searchQueryMatchesSearches() throws IOException {
+    MyParser<List<String>> parsed =
+        new MyParser<>(Path.of("data/census/income_by_race_edited.csv"), row -> row);
+    parsed.toParse();
+    List<List<String>> dataset = new ArrayList<>(parsed.getDataset());
+    ColumnarTable table = new ColumnarTable(dataset);
+    MySearcher indexed =
+        new MySearcher(
+            table, new TableIndexes(table, List.of(6)), ForkJoinPool.commonPool(), 1 << 16);
+    MySearcher plain = new MySearcher(table, null, ForkJoinPool.commonPool(), 1 << 16);
+    List<List<String>> asian = indexed.search("Asian", true, "nam: Race");
+    List<List<String>> kent = indexed.search("Kent", true, "ind: 6");
+    List<List<String>> both = new ArrayList<>(asian);
+    both.retainAll(kent);
+    assertFalse(both.isEmpty());
+    for (MySearcher searcher : List.of(indexed, plain)) {
+      assertEquals(both, searcher.query("nam:Race=Asian AND ind:6~Kent", true));
+      assertEquals(both, searcher.query("ind:6~Kent AND (nam:Race=Asian)", true));
+      List<List<String>> notKent = new ArrayList<>(asian);
+      notKent.removeAll(kent);
+      assertEquals(notKent, searcher.query("nam:Race=Asian AND NOT ind:6~Kent", true));
+      List<List<String>> either = new ArrayList<>();
+      for (List<String> row : dataset.subList(1, dataset.size())) {
+        if (asian.contains(row) || kent.contains(row)) {
+          either.add(row);
+        }
+      }
+      assertEquals(either, searcher.query("nam:Race=Asian OR ind:6~Kent", true));
+      assertEquals(searcher.search("2020", true, "NULL"), searcher.query("2020", true));
+      assertEquals(searcher.search("Year", false, "NULL"), searcher.query("Year", false));
+    }
+    assertThrows(IllegalArgumentException.class, () -> indexed.query("nam:Nope=1", true));
+    assertThrows(IllegalArgumentException.class, () -> indexed.query("nam:Race=Asian", false));
+    assertThrows(IllegalArgumentException.class, () -> indexed.query("ind:99~1", true));
+    assertThrows(IllegalArgumentException.class, () -> indexed.query("(ind:1~A", true));
+    assertThrows(IllegalArgumentException.class, () -> indexed.query("ind:1 Asian", true));
+    assertThrows(IllegalArgumentException.class, () -> indexed.query("Asian AND", true));
+  }
+
+  /**
+   * Test that reading the rows of a search page by page, going on from where every page stopped,
+   * gives back the same rows as the whole search, for every way a search can run, and that counts
+   * and the first few rows agree with it too.
+   *
+   * @throws IOException if the file can't be read
+   */
+  @Test
+  public void searchPagesMatchWholeSearch() throws IOException {
+    MyParser<List<String>> parsed =
+        new MyParser<>(Path.of("data/census/income_by_race_edited.csv"), row -> row);
+    parsed.toParse();
+    ColumnarTable table = new ColumnarTable(parsed.getDataset());
+    MySearcher shared =
+        new MySearcher(
+            table, new TableIndexes(table, List.of(6)), ForkJoinPool.commonPool(), 1 << 16);
+    List<Matches> searches =
+        List.of(
+            shared.matches("Asian", true, "nam: Race"),
+            shared.matches("Kent", true, "ind: 6"),
+            shared.matches("2020", false, "NULL"),
+            shared.queryMatches("nam:Race=Asian OR ind:6~Kent", true),
+            shared.queryMatches("NOT ind:1=Asian", false));
+    for (Matches matches : searches) {
+      List<List<String>> all = matches.all();
+      for (int limit : new int[] {1, 7, all.size() + 1}) {
+        List<List<String>> paged = new ArrayList<>();
+        int resume = 0;
+        while (resume != -1) {
+          Page page = matches.page(resume, 0, limit);
+          assertTrue(page.rows().size() <= limit);
+          paged.addAll(page.rows());
+          resume = page.next();
+        }
+        assertEquals(all, paged);
+      }
+      assertEquals(
+          all.subList(Math.min(3, all.size()), Math.min(8, all.size())),
+          matches.page(0, 3, 5).rows());
+      assertEquals(all.size(), matches.count());
+      assertEquals(all.subList(0, Math.min(4, all.size())), matches.first(4));
+    }
+  }
+
+  /**
+   * Test that counting a range from the range index agrees with listing its rows, at bounds that
+   * are cells of the column both with and without the bound itself.
+   *
+   * @throws IOException if the file can't be read
+   */
+  @Test
+  public void rangeCountMatchesRows() throws IOException {
+    MyParser<List<String>> parsed =
+        new MyParser<>(Path.of("data/census/income_by_race_edited.csv"), row -> row);
+    parsed.toParse();
+    ColumnarTable table = new ColumnarTable(parsed.getDataset());
+    RangeIndex index = new RangeIndex(table.column(4));
+    MySearcher searcher =
+        new MySearcher(table, new TableIndexes(table, List.of()), ForkJoinPool.commonPool(), 16);
+    List<NumberRange> ranges =
+        List.of(
+            NumberRange.between(85413, 85413),
+            NumberRange.greaterThan(85413),
+            NumberRange.lessThan(85413),
+            NumberRange.greaterThan(75857).and(NumberRange.lessThan(85413)),
+            NumberRange.between(75857, 85413));
+    for (NumberRange range : ranges) {
+      assertEquals(index.rows(range).length, index.count(range));
+      for (boolean header : List.of(true, false)) {
+        Matches matches = searcher.rangeMatches(range, header, "ind: 4");
+        assertEquals(matches.all().size(), matches.count());
+        assertEquals(index.rows(range).length, matches.count());
+      }
+    }
+    assertEquals(1, index.count(NumberRange.between(85413, 85413)));
+  }
+
+  /**
+   * Test that range searches of a numeric column find the same rows from its range index as from
+   * reading every cell as a number, including the bounds themselves and empty ranges.
+   *
+   * @throws IOException if the file can't be read
+   */
+  @Test
+  public void searchRangeMatchesScan() throws IOException {
+    MyParser<List<String>> parsed =
+        new MyParser<>(Path.of("data/census/income_by_race_edited.csv"), row -> row);
+    parsed.toParse();
+    List<List<String>> dataset = new ArrayList<>(parsed.getDataset());
+    ColumnarTable table = new ColumnarTable(dataset);
+    assertEquals(ColumnType.INT, table.schema().get(4));
+    MySearcher indexed =
+        new MySearcher(table, new TableIndexes(table, List.of()), ForkJoinPool.commonPool(), 16);
+    MySearcher plain = new MySearcher(table, null, ForkJoinPool.commonPool(), 16);
+    List<NumberRange> ranges =
+        List.of(
+            NumberRange.greaterThan(75000),
+            NumberRange.lessThan(50000),
+            NumberRange.between(60000, 80000),
+            NumberRange.between(85413, 85413),
+            NumberRange.greaterThan(1e12));
+    for (NumberRange range : ranges) {
+      List<List<String>> expected = new ArrayList<>();
+      for (List<String> row : dataset.subList(1, dataset.size())) {
+        if (!row.get(4).isEmpty() && range.contains(Double.parseDouble(row.get(4)))) {
+          expected.add(row);
+        }
+      }
+      assertEquals(expected, indexed.rangeMatches(range, true, "ind: 4").all());
+      assertEquals(expected, plain.rangeMatches(range, true, "ind: 4").all());
+      assertEquals(expected.size(), indexed.rangeMatches(range, true, "ind: 4").count());
+      // without a header the first row is checked on its own, and it is not a number
+      assertEquals(expected.size(), indexed.rangeMatches(range, false, "ind: 4").count());
+      assertEquals(expected, indexed.rangeMatches(range, false, "ind: 4").all());
+    }
+    List<List<String>> rich =
+        indexed.rangeMatches(NumberRange.greaterThan(75000), true, "ind: 4").all();
+    assertEquals(rich, indexed.query("nam:Household Income by Race>75000", true));
+    assertEquals(
+        indexed.rangeMatches(NumberRange.between(60000, 80000), true, "ind: 4").all(),
+        indexed.query("ind:4>=60000 AND ind:4<=80000", true));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> indexed.rangeMatches(NumberRange.greaterThan(0), true, "NULL"));
+    assertThrows(IllegalArgumentException.class, () -> indexed.query("ind:4>lots", true));
+  }
+
+  /**
+   * Test that folded searches ignore case and accents the same way whether they read the folded
+   * columns of the indexes or fold every cell as they go, and that they find what an exact search
+   * finds for the word as it is in the file. The indexes only fold a column once and then keep it.
+   */
+  @Test
+  public void searchFoldedIgnoresCaseAndAccents() {
+    List<List<String>> rows =
+        List.of(
+            List.of("City", "Name", "Count"),
+            List.of("Providence", "Peña", "1"),
+            List.of("PROVIDENCE", "pena", "2"),
+            List.of("Cranston", "Renée", "3"),
+            List.of("providence", "Rene", "4"),
+            List.of("Warwick", "", "5"));
+    ColumnarTable table = new ColumnarTable(rows);
+    TableIndexes indexes = new TableIndexes(table, List.of());
+    MySearcher indexed = new MySearcher(table, indexes, ForkJoinPool.commonPool(), 1);
+    MySearcher plain = new MySearcher(table, null, ForkJoinPool.commonPool(), 1 << 16);
+    assertEquals("pena", Folding.fold("Peña"));
+    assertEquals("renee", Folding.fold("RENÉE"));
+    for (MySearcher searcher : List.of(indexed, plain)) {
+      assertEquals(
+          List.of(rows.get(1), rows.get(2), rows.get(4)),
+          searcher.foldedMatches("providence", true, "nam: City").all());
+      assertEquals(
+          List.of(rows.get(1), rows.get(2)), searcher.foldedMatches("PEN", true, "ind: 1").all());
+      assertEquals(
+          List.of(rows.get(3), rows.get(4)), searcher.foldedMatches("ren", true, "ind: 1").all());
+      assertEquals(
+          List.of(rows.get(1), rows.get(2)), searcher.foldedMatches("Pena", true, "NULL").all());
+      assertEquals(List.of(rows.get(0)), searcher.foldedMatches("city", false, "NULL").all());
+      assertEquals(
+          List.of(rows.get(4)),
+          searcher.queryMatches("nam:City=providence AND NOT nam:Name~PEÑ", true, true).all());
+      assertEquals(List.of(), searcher.queryMatches("nam:City=ProviDence", true, false).all());
+    }
+    assertTrue(indexes.folded(1) == indexes.folded(1));
+    assertEquals(null, indexes.folded(3));
+  }
+
+  /**
+   * Test that a fuzzy search finds cells within the edit distance of the word, that the BK-trees of
+   * a loaded table find the same rows as working out the distance to every cell, and that a
+   * distance of 0 is the same as an exact search.
+   *
+   * @throws IOException if one of the files can't be read
+   */
+  @Test
+  public void searchFuzzyMatchesEditDistance() throws IOException {
+    List<Path> files;
+    try (var paths = Files.walk(Path.of("data"))) {
+      files = paths.filter(path -> path.toString().endsWith(".csv")).toList();
+    }
+    for (Path file : files) {
+      MyParser<List<String>> parsed = new MyParser<>(file, row -> row);
+      parsed.toParse();
+      List<List<String>> dataset = new ArrayList<>(parsed.getDataset());
+      ColumnarTable table = new ColumnarTable(dataset);
+      MySearcher indexed =
+          new MySearcher(table, new TableIndexes(table, List.of()), ForkJoinPool.commonPool(), 1);
+      MySearcher plain = new MySearcher(table, null, ForkJoinPool.commonPool(), 1 << 16);
+      List<String> words = new ArrayList<>(List.of("", "not there"));
+      for (List<String> row : dataset.subList(0, Math.min(5, dataset.size()))) {
+        for (String cell : row) {
+          words.add(cell);
+          words.add(cell.length() > 2 ? cell.substring(1) : cell + "x");
+        }
+      }
+      for (String word : words) {
+        for (boolean header : List.of(true, false)) {
+          Assertions.assertEquals(
+              indexed.matches(word, header, "NULL").all(),
+              indexed.fuzzyMatches(word, 0, header, "NULL").all(),
+              file + " " + word);
+          for (int distance = 1; distance <= 2; distance++) {
+            for (String narrow : List.of("NULL", "ind: 0")) {
+              Assertions.assertEquals(
+                  plain.fuzzyMatches(word, distance, header, narrow).all(),
+                  indexed.fuzzyMatches(word, distance, header, narrow).all(),
+                  file + " " + word + " " + distance + " " + narrow);
+            }
+          }
+        }
+      }
+    }
+    MyParser<List<String>> parsed =
+        new MyParser<>(Path.of("data/census/income_by_race_edited.csv"), row -> row);
+    parsed.toParse();
+    ColumnarTable table = new ColumnarTable(parsed.getDataset());
+    MySearcher searcher =
+        new MySearcher(table, new TableIndexes(table, List.of()), ForkJoinPool.commonPool(), 1);
+    assertEquals(
+        searcher.queryMatches("ind:1=Asian", true).all(),
+        searcher.fuzzyMatches("Asin", 1, true, "ind: 1").all());
+    assertEquals(List.of(), searcher.fuzzyMatches("Asin", 0, true, "ind: 1").all());
+    assertEquals(
+        searcher.matches("bristol-county-ri", true, "NULL").all(),
+        searcher.fuzzyMatches("bristol-conty-ri", 1, true, "NULL").all());
+  }
+
+  /**
+   * Test that grouping a table and totaling a numeric column gives the same totals as going through
+   * the parsed rows, on one thread and in chunks, with and without a header, and that a column of
+   * strings can not be totaled.
+   *
+   * @throws IOException if the file can't be read
+   */
+  @Test
+  public void aggregationMatchesRows() throws IOException {
+    MyParser<List<String>> parsed =
+        new MyParser<>(Path.of("data/census/income_by_race_edited.csv"), row -> row);
+    parsed.toParse();
+    List<List<String>> dataset = new ArrayList<>(parsed.getDataset());
+    ColumnarTable table = new ColumnarTable(dataset);
+    for (boolean header : List.of(true, false)) {
+      Map<String, double[]> expected = new LinkedHashMap<>();
+      for (List<String> row : dataset.subList(header ? 1 : 0, dataset.size())) {
+        double[] totals =
+            expected.computeIfAbsent(
+                row.get(1),
+                key -> new double[] {0, 0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY});
+        totals[0]++;
+        if (row.size() > 4 && row.get(4).matches("[0-9.]+")) {
+          double value = Double.parseDouble(row.get(4));
+          totals[1]++;
+          totals[2] += value;
+          totals[3] = Math.min(totals[3], value);
+          totals[4] = Math.max(totals[4], value);
+        }
+      }
+      for (int threshold : List.of(1, 1 << 16)) {
+        List<Aggregation.Group> groups =
+            new Aggregation(table, 1, 4, header).run(ForkJoinPool.commonPool(), threshold);
+        assertEquals(
+            new ArrayList<>(expected.keySet()), groups.stream().map(g -> g.key()).toList());
+        for (Aggregation.Group group : groups) {
+          double[] totals = expected.get(group.key());
+          assertEquals(totals[0], (double) group.rows());
+          assertEquals(totals[1], (double) group.count());
+          assertEquals(totals[2], group.sum(), 1e-6);
+          if (group.count() > 0) {
+            assertEquals(totals[3], group.min());
+            assertEquals(totals[4], group.max());
+            assertEquals(totals[2] / totals[1], group.avg(), 1e-6);
+          }
+        }
+      }
+    }
+    List<Aggregation.Group> all =
+        new Aggregation(table, -1, -1, true).run(ForkJoinPool.commonPool(), 1);
+    assertEquals(1, all.size());
+    assertEquals((long) dataset.size() - 1, all.get(0).rows());
+    assertThrows(IllegalArgumentException.class, () -> new Aggregation(table, 1, 1, true));
+    assertThrows(IllegalArgumentException.class, () -> new Aggregation(table, 99, 4, true));
+  }
+
+  /**
+   * Test that the order of a column puts the rows in the same order as sorting a copy of them, with
+   * numbers compared as numbers, equal cells in file order and empty cells last both ways, and that
+   * it is only made once.
+   *
+   * @throws IOException if the file can not be read
+   */
+  @Test
+  public void sortOrderMatchesSortedRows() throws IOException {
+    MyParser<List<String>> parsed =
+        new MyParser<>(Path.of("data/census/income_by_race_edited.csv"), row -> row);
+    parsed.toParse();
+    List<List<String>> dataset = new ArrayList<>(parsed.getDataset());
+    ColumnarTable table = new ColumnarTable(dataset);
+    TableIndexes indexes = new TableIndexes(table, List.of());
+    for (int column : List.of(4, 6)) {
+      List<List<String>> present = new ArrayList<>();
+      List<List<String>> empty = new ArrayList<>();
+      for (List<String> row : dataset.subList(1, dataset.size())) {
+        boolean blank = row.size() <= column || row.get(column).isBlank();
+        (blank ? empty : present).add(row);
+      }
+      Comparator<List<String>> byCell =
+          column == 4
+              ? Comparator.comparingDouble(row -> Double.parseDouble(row.get(column)))
+              : Comparator.comparing(row -> row.get(column));
+      present.sort(byCell);
+      List<List<String>> ascending = new ArrayList<>(present);
+      ascending.addAll(empty);
+      // the sort is stable, so equal cells stay in file order in both directions
+      List<List<String>> descending = new ArrayList<>(present);
+      descending.sort(byCell.reversed());
+      descending.addAll(empty);
+
+      SortOrder order = indexes.order(column);
+      assertEquals(ascending, order.view(table, 1, false));
+      assertEquals(descending, order.view(table, 1, true));
+      // sorting some of the rows keeps them in the order of the whole column
+      int[] some = new int[] {dataset.size() - 1, 7, 3, 1, 12};
+      List<List<String>> expected = new ArrayList<>();
+      for (int row : order.rows(1, true)) {
+        if (Arrays.stream(some).anyMatch(r -> r == row)) {
+          expected.add(dataset.get(row));
+        }
+      }
+      List<List<String>> sorted = new ArrayList<>();
+      for (int row : order.sort(some, true)) {
+        sorted.add(dataset.get(row));
+      }
+      assertEquals(expected, sorted);
+      assertTrue(order == indexes.order(column));
+    }
+    assertThrows(IndexOutOfBoundsException.class, () -> indexes.order(99));
+  }
+
+  /**
+   * Test that one searcher can be shared by many threads searching at the same time, and that each
+   * of them gets the rows of its own search.
+   *
+   * @throws Exception if one of the searches fails
+   */
+  @Test
+  public void searchSharedAcrossThreads() throws Exception {
+    MyParser<List<String>> parsed =
+        new MyParser<>(Path.of("data/census/income_by_race_edited.csv"), row -> row);
+    parsed.toParse();
+    List<List<String>> dataset = new ArrayList<>(parsed.getDataset());
+    ColumnarTable table = new ColumnarTable(dataset);
+    MySearcher shared =
+        new MySearcher(table, new TableIndexes(table, List.of(1)), ForkJoinPool.commonPool(), 16);
+    List<String> words = List.of("Total", "2020", "Asian", "Kent", "Black", "White", "2018");
+    List<String> narrows = List.of("NULL", "ind: 1", "nam: Year", "nam: Race");
+    List<Callable<Boolean>> checks = new ArrayList<>();
+    for (String word : words) {
+      for (String narrow : narrows) {
+        MySearcher expected = new MySearcher(dataset, true, narrow);
+        expected.findRows(word);
+        checks.add(() -> expected.getFound().equals(shared.search(word, true, narrow)));
+      }
+    }
+    ExecutorService threads = Executors.newFixedThreadPool(8);
+    try {
+      for (Future<Boolean> result : threads.invokeAll(checks)) {
+        assertTrue(result.get());
+      }
+    } finally {
+      threads.shutdown();
+    }
+  }
+
+  /**
+   * Test that the repeated strings of a census file are stored as dictionaries, and that this takes
+   * less memory than keeping every cell as a string, counting the map from values to codes, which
+   * keeps columns with many distinct values packed.
+   *
+   * @throws IOException if the file can't be read
+   */
+  @Test
+  public void columnarTableEncodesDictionaries() throws IOException {
+    MyParser<List<String>> parsed =
+        new MyParser<>(Path.of("data/census/income_by_race_edited.csv"), row -> row);
+    parsed.toParse();
+    ColumnarTable table = new ColumnarTable(parsed.getDataset());
+    List<ColumnMemory> memory = table.memory();
+    assertEquals(ColumnType.STRING, memory.get(1).type());
+    assertEquals("dictionary", memory.get(1).encoding());
+    assertEquals("dictionary", memory.get(6).encoding());
+    assertEquals("plain", memory.get(0).encoding());
+    for (ColumnMemory column : memory) {
+      assertTrue(column.savedBytes() > 0);
+    }
+    this.searcher = new MySearcher(table, true, "NULL");
+    this.searcher.findRows("\"Kent County, RI\"");
+    assertEquals(
+        Math.toIntExact(
+            parsed.getDataset().stream()
+                .filter(row -> row.contains("\"Kent County, RI\""))
+                .count()),
+        this.searcher.getFound().size());
+    assertTrue(this.searcher.getFound().size() > 0);
+
+    // 300 short values that repeat 8 times each are cheaper packed once the map of a dictionary
+    // from values to codes is counted
+    List<List<String>> rows = new ArrayList<>();
+    rows.add(List.of("name"));
+    for (int repeat = 0; repeat < 8; repeat++) {
+      for (int value = 0; value < 300; value++) {
+        rows.add(List.of(String.format("value%03d", value)));
+      }
+    }
+    ColumnMemory repeated = new ColumnarTable(rows).memory().get(0);
+    assertEquals("plain", repeated.encoding());
+    assertTrue(repeated.savedBytes() > 0);
+  }
+
+  /**
+   * Test that the result cache hands back what was put in it for the same key only, evicts the
+   * least recently used response when it is full, counts hits, misses and evictions, and keeps
+   * nothing for a table that is no longer loaded.
+   */
+  @Test
+  public void resultCacheEvictsLeastRecentlyUsed() {
+    String response = "x".repeat(200);
+    // every entry takes about 128 bytes of overhead and 400 of response
+    ResultCache cache = new ResultCache(1200, 1);
+    ResultCache.Key a = new ResultCache.Key(1, Arrays.asList("a", null));
+    ResultCache.Key b = new ResultCache.Key(1, Arrays.asList("b", null));
+    ResultCache.Key c = new ResultCache.Key(1, Arrays.asList("c", null));
+    cache.put(a, response);
+    cache.put(b, response);
+    assertEquals(response, cache.get(a));
+    assertEquals(null, cache.get(new ResultCache.Key(2, Arrays.asList("a", null))));
+    cache.put(c, response);
+    assertEquals(null, cache.get(b));
+    assertEquals(response, cache.get(a));
+    assertEquals(response, cache.get(c));
+    cache.put(a, "y".repeat(10_000));
+    assertEquals(new ResultCache.Stats(3, 2, 1, 2, cache.stats().bytes(), 1200), cache.stats());
+    cache.clear(2);
+    assertEquals(null, cache.get(a));
+    assertEquals(0, cache.stats().entries());
+    // a search of the table that was loaded before can not put its response back in
+    cache.put(a, response);
+    assertEquals(0, cache.stats().entries());
+    ResultCache.Key current = new ResultCache.Key(2, Arrays.asList("a", null));
+    cache.put(current, response);
+    assertEquals(response, cache.get(current));
+  }
+
+  /**
+   * Test that every file we have reads back from a snapshot as the same table, with the same column
+   * types and encodings, and that a snapshot is not used once its CSV changed.
+   *
+   * @throws IOException if a file or snapshot can't be read or written
+   */
+  @Test
+  public void snapshotMatchesTable() throws IOException {
+    Path directory = Files.createTempDirectory("snapshots");
+    SnapshotCache cache = new SnapshotCache(directory);
+    List<Path> files;
+    try (var paths = Files.walk(Path.of("data"))) {
+      files = paths.filter(path -> path.toString().endsWith(".csv")).toList();
+    }
+    for (Path file : files) {
+      MyParser<List<String>> parsed = new MyParser<>(file, row -> row);
+      parsed.toParse();
+      ColumnarTable table = new ColumnarTable(parsed.getDataset());
+      SnapshotCache.Key key = cache.keyOf(file);
+      Assertions.assertNull(cache.find(key), file.toString());
+      cache.store(key, table);
+      ColumnarTable snapshot = cache.find(key);
+      Assertions.assertEquals(table, snapshot, file.toString());
+      Assertions.assertEquals(table.memory(), snapshot.memory(), file.toString());
+    }
+
+    Path csv = directory.resolve("changing.csv");
+    Files.writeString(csv, "a,b\n1,2\n");
+    SnapshotCache.Key before = cache.keyOf(csv);
+    cache.store(before, new ColumnarTable(List.of(List.of("a", "b"), List.of("1", "2"))));
+    Files.writeString(csv, "a,b\n1,2\n3,4\n");
+    SnapshotCache.Key after = cache.keyOf(csv);
+    assertNotEquals(before, after);
+    Assertions.assertNull(cache.find(after));
+  }
+
+  /**
+   * Test that cells which look like numbers but would not read back the same are kept as strings,
+   * and that empty cells and short rows come back as they were.
+   */
+  @Test
+  public void columnarTableKeepsCellsExact() {
+    List<List<String>> rows =
+        List.of(
+            List.of("a", "b", "c", "d", "e"),
+            List.of("1", "007", "1.50", "3000000000", "-0"),
+            List.of("", "+5", "-0.25", "-12", "1e5"),
+            List.of("-2147483648", "5", "0.00097056", "7"),
+            List.of("42", "", "3"));
+    ColumnarTable table = new ColumnarTable(rows);
+    Assertions.assertEquals(rows, table);
+    assertEquals(
+        List.of(
+            ColumnType.INT,
+            ColumnType.STRING,
+            ColumnType.DOUBLE,
+            ColumnType.LONG,
+            ColumnType.STRING),
+        table.schema());
+    assertTrue(table.get(2).contains(""));
+    assertTrue(table.get(2).contains("-0.25"));
+    assertTrue(table.get(3).contains("-2147483648"));
+    assertFalse(table.get(3).contains("-0.25"));
+    assertEquals(3, table.get(4).size());
+    // a column of strings has no numbers, even in cells that look like one
+    assertTrue(Double.isNaN(table.column(1).number(1)));
+    assertEquals(-12.0, table.column(3).number(1));
+  }
+
+  /**
+   * Test that the parallel parse gives the same dataset as the sequential one, on a file that is
+   * big enough to be split into many chunks and that has rows which fail to be created.
+   *
+   * @throws IOException if the temporary file can't be written or read
+   */
+  @Test
+  public void parseParallelMatchesSequential() throws IOException {
+    StringBuilder csv = new StringBuilder("id,name,\"city, state\"\r\n");
+    for (int i = 0; i < 50000; i++) {
+      String name = i % 997 == 0 ? "" : "name" + i;
+      csv.append(i)
+          .append(',')
+          .append(name)
+          .append(",\"Providence, RI\"")
+          .append(i % 2 == 0 ? "\n" : "\r\n");
+    }
+    Path file = Files.createTempFile("parallel", ".csv");
+    Files.writeString(file, csv);
+    ForkJoinPool pool = new ForkJoinPool(8);
+    try {
+      MyParser<ArrayList<String>> sequential = new MyParser<>(file, this.creator);
+      sequential.toParse();
+      MyParser<ArrayList<String>> mapped = new MyParser<>(file, this.creator);
+      mapped.toParse(pool);
+      MyParser<ArrayList<String>> read =
+          new MyParser<>(new FileReader(file.toFile()), this.creator);
+      read.toParse(pool);
+      assertEquals(50000 - 51 + 1, sequential.getDataset().size());
+      assertEquals(sequential.getDataset(), mapped.getDataset());
+      assertEquals(sequential.getDataset(), read.getDataset());
+      assertEquals(51, mapped.getReport().getRowsRejected());
+      assertEquals(sequential.getReport().getRejects(), mapped.getReport().getRejects());
+      assertEquals(sequential.getReport().getRejects(), read.getReport().getRejects());
+    } finally {
+      pool.shutdown();
+      Files.delete(file);
+    }
+  }
+
+  /**
+   * Test that RowHandler's flyweight create, which reads straight from the parser's view of the
+   * row, builds the same rows as its List version, through both the mapped and the Reader paths.
+   *
+   * @throws IOException if one of the files can't be read
+   */
+  @Test
+  public void parseFlyweightMatchesListCreate() throws IOException {
+    CreatorFromRow<ArrayList<String>> listOnly = row -> this.creator.create(row);
+    List<Path> files;
+    try (var paths = Files.walk(Path.of("data"))) {
+      files = paths.filter(path -> path.toString().endsWith(".csv")).toList();
+    }
+    for (Path file : files) {
+      MyParser<ArrayList<String>> expected = new MyParser<>(file, listOnly);
+      expected.toParse();
+      MyParser<ArrayList<String>> mapped = new MyParser<>(file, this.creator);
+      mapped.toParse();
+      MyParser<ArrayList<String>> read =
+          new MyParser<>(new FileReader(file.toFile()), this.creator);
+      read.toParse();
+      Assertions.assertEquals(expected.getDataset(), mapped.getDataset(), file.toString());
+      Assertions.assertEquals(expected.getDataset(), read.getDataset(), file.toString());
+    }
+  }
+
+  /**
+   * Test a creator that converts whole blocks at once and turns rows down through the rejection
+   * bitmap instead of throwing. The file has more rows than fit in one block.
+   *
+   * @throws IOException if the temporary file can't be written or read
+   */
+  @Test
+  public void parseBatchCreatorRejects() throws IOException {
+    CreatorFromRow<Integer> evens =
+        new CreatorFromRow<>() {
+          @Override
+          public Integer create(List<String> row) {
+            return Integer.parseInt(row.get(0));
+          }
+
+          @Override
+          public void createBatch(RowBlock rows, List<Integer> out, Rejections rejections) {
+            for (int i = 0; i < rows.size(); i++) {
+              int value = Integer.parseInt(rows.row(i).get(0));
+              if (value % 2 == 0) {
+                out.add(value);
+              } else {
+                rejections.reject(i, "odd");
+              }
+            }
+          }
+        };
+    StringBuilder csv = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      csv.append(i).append(",x\n");
+    }
+    Path file = Files.createTempFile("batch", ".csv");
+    Files.writeString(file, csv);
+    try {
+      MyParser<Integer> parser = new MyParser<>(file, evens);
+      parser.toParse();
+      assertEquals(5000, parser.getDataset().size());
+      assertEquals(Integer.valueOf(9998), parser.getDataset().get(4999));
+      MyParser<Integer> read = new MyParser<>(new StringReader(csv.toString()), evens);
+      read.toParse();
+      assertEquals(parser.getDataset(), read.getDataset());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
   /**
    * An assertThrow test to make sure that an error will be thrown when the user might use an
    * incorrect filepath.
@@ -328,6 +1417,53 @@ public class TestingParseSearch {
     assertNotEquals("CS32, experience", postprocess(result[1]));
   }
 
+  /**
+   * Test that the tokenizer splits every line of the census and csvtest files exactly like the
+   * regex used to.
+   *
+   * @throws IOException if one of the files can't be read
+   */
+  @Test
+  public void tokenizerMatchesRegexOnFiles() throws IOException {
+    CSVTokenizer tokenizer = new CSVTokenizer();
+    for (String dir : List.of("data/census", "data/csvtest")) {
+      List<Path> files;
+      try (var paths = Files.list(Path.of(dir))) {
+        files = paths.toList();
+      }
+      for (Path file : files) {
+        for (String line : Files.readAllLines(file)) {
+          Assertions.assertEquals(
+              Arrays.asList(regexSplitCSVRow.split(line)),
+              tokenizer.split(line),
+              file + ": " + line);
+        }
+      }
+    }
+  }
+
+  /** Test that the tokenizer agrees with the regex on escaped quotes, empties and broken quotes. */
+  @Test
+  public void tokenizerMatchesRegexOnEdgeCases() {
+    CSVTokenizer tokenizer = new CSVTokenizer();
+    List<String> lines =
+        List.of(
+            "",
+            ",",
+            ",,a,,",
+            "a,b,,",
+            "\"Providence, RI\", 123.456, \"Telson, Nim\"",
+            "\"Regular expressions are \"\"fun\"\"\", \"However, sometimes \"\"useful\"\"\"",
+            "\"I, hope, you, will, have, a, \"great, CS32\", experience\"",
+            "\"unclosed, quote, here",
+            "a,\"b,c\",\"d",
+            "\"\"\"\",\"\"");
+    for (String line : lines) {
+      Assertions.assertEquals(
+          Arrays.asList(regexSplitCSVRow.split(line)), tokenizer.split(line), line);
+    }
+  }
+
   /**
    * Elimiate a single instance of leading or trailing double-quote, and replace pairs of double
    * quotes with singles.
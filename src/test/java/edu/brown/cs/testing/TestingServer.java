@@ -1,22 +1,31 @@
 package edu.brown.cs.testing;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
+import edu.brown.cs.student.main.handlers.AggregateHandler;
 import edu.brown.cs.student.main.handlers.BroadbandHandler;
+import edu.brown.cs.student.main.handlers.CacheStatsHandler;
 import edu.brown.cs.student.main.handlers.LoadHandler;
 import edu.brown.cs.student.main.handlers.SearchHandler;
 import edu.brown.cs.student.main.handlers.ViewHandler;
 import edu.brown.cs.student.main.server.Dataset;
+import edu.brown.cs.student.main.server.SnapshotCache;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import okio.Buffer;
@@ -24,6 +33,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import spark.Spark;
 
 /**
@@ -46,6 +56,9 @@ import spark.Spark;
  */
 class TestingServer {
 
+  /** A snapshot directory of its own for every test, so loads never read an earlier run's. */
+  @TempDir Path snapshots;
+
   @BeforeAll
   public static void setup_before_everything() {
 
@@ -64,10 +77,12 @@ class TestingServer {
 
     // In fact, restart the entire Spark server for every test!
     Dataset csvData = new Dataset();
-    Spark.get("loadcsv", new LoadHandler(csvData));
+    Spark.get("loadcsv", new LoadHandler(csvData, new SnapshotCache(this.snapshots)));
     Spark.get("viewcsv", new ViewHandler(csvData));
     Spark.get("searchcsv", new SearchHandler(csvData));
     Spark.get("broadband", new BroadbandHandler());
+    Spark.get("cachestats", new CacheStatsHandler(csvData));
+    Spark.get("aggregatecsv", new AggregateHandler(csvData));
 
     /// MOCK SETUP ///
     Dataset current = new Dataset();
@@ -79,7 +94,7 @@ class TestingServer {
     exampledata.add(example1);
     exampledata.add(example2);
     current.setDataset(exampledata);
-    Spark.get("loadcsv2", new LoadHandler(current));
+    Spark.get("loadcsv2", new LoadHandler(current, new SnapshotCache(this.snapshots)));
     Spark.get("viewcsv2", new ViewHandler(current));
     Spark.get("searchcsv2", new SearchHandler(current));
 
@@ -98,6 +113,8 @@ class TestingServer {
     Spark.unmap("/viewcsv");
     Spark.unmap("/searchcsv");
     Spark.unmap("/broadband");
+    Spark.unmap("/cachestats");
+    Spark.unmap("/aggregatecsv");
     Spark.unmap("/loadcsv2");
     Spark.unmap("/viewcsv2");
     Spark.unmap("/searchcsv2");
@@ -159,6 +176,523 @@ class TestingServer {
     assertEquals("data/stars/stardata.csv", response.loaded);
   }
 
+  /** A class to store the parse report that comes back with a successful load. */
+  public static class LoadReportResponse {
+    public String result;
+    public int rows_read;
+    public int rows_accepted;
+    public int rows_rejected;
+    public List<Object> rejects;
+    public List<String> schema;
+    public List<Object> memory;
+    public boolean cache_hit;
+    public double load_ms;
+  }
+
+  /**
+   * Test that loading reports how many rows were read, accepted and rejected, and the type that was
+   * inferred for every column, with its memory use.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testLoadCSVReportsRows() throws IOException {
+    HttpURLConnection clientConnection = tryRequest("loadcsv?filepath=data/csvtest/test.csv");
+    assertEquals(200, clientConnection.getResponseCode());
+
+    Moshi moshi = new Moshi.Builder().build();
+
+    LoadReportResponse response =
+        moshi
+            .adapter(LoadReportResponse.class)
+            .fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals("success", response.result);
+    assertEquals(4, response.rows_read);
+    assertEquals(4, response.rows_accepted);
+    assertEquals(0, response.rows_rejected);
+    assertEquals(0, response.rejects.size());
+    assertEquals(List.of("string", "string", "string"), response.schema);
+    assertEquals(3, response.memory.size());
+  }
+
+  /**
+   * Test that loading a file a second time reads it back from its snapshot, with the same report.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testLoadCSVTwiceHitsCache() throws IOException {
+    Moshi moshi = new Moshi.Builder().build();
+    LoadReportResponse[] responses = new LoadReportResponse[2];
+    for (int i = 0; i < 2; i++) {
+      HttpURLConnection clientConnection = tryRequest("loadcsv?filepath=data/stars/ten-star.csv");
+      assertEquals(200, clientConnection.getResponseCode());
+      responses[i] =
+          moshi
+              .adapter(LoadReportResponse.class)
+              .fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+      clientConnection.disconnect();
+    }
+    assertFalse(responses[0].cache_hit);
+    assertTrue(responses[1].cache_hit);
+    assertTrue(responses[1].load_ms >= 0);
+    assertEquals(responses[0].rows_read, responses[1].rows_read);
+    assertEquals(responses[0].schema, responses[1].schema);
+
+    HttpURLConnection clientConnection = tryRequest("viewcsv");
+    Map<String, Object> body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    assertEquals(11, ((List<?>) body.get("viewData")).size());
+    clientConnection.disconnect();
+  }
+
+  /**
+   * Test that trigram indexes can be asked for by column name and index when loading, and that a
+   * column the file does not have is an error.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testLoadCSVWithTrigrams() throws IOException {
+    HttpURLConnection clientConnection =
+        tryRequest("loadcsv?filepath=data/csvtest/test.csv&trigram=class,2");
+    Moshi moshi = new Moshi.Builder().build();
+    Map<String, Object> body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals("success", body.get("result"));
+    assertEquals(List.of(1.0, 2.0), body.get("trigram_columns"));
+
+    clientConnection = tryRequest("searchcsv?search=righ&header=true&narrow=nam:position");
+    body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals(2, ((List<?>) body.get("view_data")).size());
+
+    clientConnection = tryRequest("loadcsv?filepath=data/csvtest/test.csv&trigram=nope");
+    body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals("invalid_argument", body.get("error_type"));
+  }
+
+  /**
+   * Test that a query joins searches of two columns in one request, and that a query that can not
+   * be read gets an error that names it.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testSearchQuery() throws IOException {
+    tryRequest("loadcsv?filepath=data/csvtest/test.csv&trigram=2").getInputStream().close();
+    String query = URLEncoder.encode("nam:class=second AND NOT ind:2~lef", StandardCharsets.UTF_8);
+    HttpURLConnection clientConnection = tryRequest("searchcsv?header=true&query=" + query);
+    Moshi moshi = new Moshi.Builder().build();
+    Map<String, Object> body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals("success", body.get("result"));
+    assertEquals(List.of(List.of("jake", "second", "right")), body.get("view_data"));
+
+    query = URLEncoder.encode("nam:class=second AND (", StandardCharsets.UTF_8);
+    clientConnection = tryRequest("searchcsv?header=true&query=" + query);
+    body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals("invalid_argument", body.get("error_type"));
+    assertEquals("query", body.get("invalid_argument"));
+  }
+
+  /**
+   * Test that an offset sent again with every cursor only skips rows before the first page, for
+   * plain and sorted searches.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testSearchPagesWithOffset() throws IOException {
+    tryRequest("loadcsv?filepath=data/census/income_by_race_edited.csv").getInputStream().close();
+    Moshi moshi = new Moshi.Builder().build();
+    for (String search :
+        List.of(
+            "searchcsv?header=true&search=Asian&narrow=ind:1",
+            "searchcsv?header=true&search=Asian&narrow=ind:1&sort=4:desc")) {
+      HttpURLConnection clientConnection = tryRequest(search);
+      Map<String, Object> body =
+          moshi
+              .adapter(Map.class)
+              .fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+      clientConnection.disconnect();
+      List<?> all = (List<?>) body.get("view_data");
+
+      List<Object> paged = new ArrayList<>();
+      String cursor = null;
+      do {
+        clientConnection =
+            tryRequest(search + "&offset=2&limit=3" + (cursor == null ? "" : "&cursor=" + cursor));
+        body =
+            moshi
+                .adapter(Map.class)
+                .fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+        clientConnection.disconnect();
+        paged.addAll((List<?>) body.get("view_data"));
+        cursor = (String) body.get("next_cursor");
+      } while (cursor != null);
+      assertEquals(all.subList(2, all.size()), paged);
+    }
+  }
+
+  /**
+   * Test that search results come a page at a time with a cursor to the next page, and that a
+   * cursor stops working once another file is loaded.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testSearchPages() throws IOException {
+    tryRequest("loadcsv?filepath=data/csvtest/test.csv").getInputStream().close();
+    Moshi moshi = new Moshi.Builder().build();
+    HttpURLConnection clientConnection =
+        tryRequest("searchcsv?search=i&header=true&narrow=ind:2&limit=1");
+    Map<String, Object> body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals("success", body.get("result"));
+    assertEquals(List.of(List.of("jake", "second", "right")), body.get("view_data"));
+    String cursor = (String) body.get("next_cursor");
+
+    clientConnection =
+        tryRequest("searchcsv?search=i&header=true&narrow=ind:2&limit=1&cursor=" + cursor);
+    body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals(List.of(List.of("alex", "first", "right")), body.get("view_data"));
+    assertEquals(null, body.get("next_cursor"));
+
+    clientConnection = tryRequest("searchcsv?search=i&header=true&narrow=ind:1&cursor=" + cursor);
+    body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals("cursor", body.get("invalid_argument"));
+
+    tryRequest("loadcsv?filepath=data/csvtest/test.csv").getInputStream().close();
+    clientConnection =
+        tryRequest("searchcsv?search=i&header=true&narrow=ind:2&limit=1&cursor=" + cursor);
+    body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals("cursor", body.get("invalid_argument"));
+
+    clientConnection = tryRequest("searchcsv?search=i&header=true&limit=0");
+    body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals("limit", body.get("invalid_argument"));
+  }
+
+  /**
+   * Test that a search can send back only how many rows matched, or only the first few of them.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testSearchModes() throws IOException {
+    tryRequest("loadcsv?filepath=data/csvtest/test.csv").getInputStream().close();
+    Moshi moshi = new Moshi.Builder().build();
+    HttpURLConnection clientConnection =
+        tryRequest("searchcsv?search=right&header=true&narrow=ind:2&mode=count");
+    Map<String, Object> body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals("success", body.get("result"));
+    assertEquals(2.0, body.get("count"));
+    assertEquals(null, body.get("view_data"));
+
+    clientConnection = tryRequest("searchcsv?search=right&header=true&mode=topk&k=1");
+    body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals(List.of(List.of("jake", "second", "right")), body.get("view_data"));
+
+    clientConnection = tryRequest("searchcsv?search=right&header=true&mode=topk");
+    body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals("k", body.get("error_arg"));
+  }
+
+  /**
+   * Test that range searches of a numeric column count the rows above, below and between bounds,
+   * and that a range needs numbers.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testSearchRanges() throws IOException {
+    tryRequest("loadcsv?filepath=data/census/income_by_race_edited.csv").getInputStream().close();
+    List<String> lines = Files.readAllLines(Paths.get("data/census/income_by_race_edited.csv"));
+    long above = 0;
+    long inside = 0;
+    for (String line : lines.subList(1, lines.size())) {
+      String cell = line.split(",")[4];
+      if (!cell.isEmpty() && Integer.parseInt(cell) > 75000) {
+        above++;
+      }
+      if (!cell.isEmpty() && Integer.parseInt(cell) >= 50000 && Integer.parseInt(cell) <= 75000) {
+        inside++;
+      }
+    }
+    Moshi moshi = new Moshi.Builder().build();
+    HttpURLConnection clientConnection =
+        tryRequest("searchcsv?header=true&narrow=ind:4&gt=75000&mode=count");
+    Map<String, Object> body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals((double) above, body.get("count"));
+
+    clientConnection = tryRequest("searchcsv?header=true&narrow=ind:4&between=50000,75000");
+    body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals((int) inside, ((List<?>) body.get("view_data")).size());
+
+    clientConnection = tryRequest("searchcsv?header=true&narrow=ind:4&lt=cheap");
+    body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals("range", body.get("invalid_argument"));
+  }
+
+  /**
+   * Test that a dataset loaded with block filters instead of an inverted index finds the same rows,
+   * and that the block size and false positive rate are checked.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testLoadBloomFilters() throws IOException {
+    Moshi moshi = new Moshi.Builder().build();
+    HttpURLConnection clientConnection =
+        tryRequest("loadcsv?filepath=data/census/income_by_race_edited.csv&bloom=16&fpp=0.02");
+    Map<String, Object> body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals("success", body.get("result"));
+    Map<?, ?> bloom = (Map<?, ?>) body.get("bloom");
+    assertEquals(16.0, bloom.get("block_rows"));
+    assertEquals(21.0, bloom.get("blocks"));
+
+    clientConnection = tryRequest("searchcsv?header=true&search=Asian&mode=count");
+    body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    Map<String, Object> filtered = body;
+    tryRequest("loadcsv?filepath=data/census/income_by_race_edited.csv").getInputStream().close();
+    clientConnection = tryRequest("searchcsv?header=true&search=Asian&mode=count");
+    body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals(body.get("count"), filtered.get("count"));
+
+    for (String params : List.of("bloom=0", "bloom=many", "bloom=16&fpp=1.5")) {
+      clientConnection =
+          tryRequest("loadcsv?filepath=data/census/income_by_race_edited.csv&" + params);
+      body =
+          moshi
+              .adapter(Map.class)
+              .fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+      clientConnection.disconnect();
+      assertEquals(params.contains("fpp") ? "fpp" : "bloom", body.get("invalid_argument"));
+    }
+  }
+
+  /**
+   * Test that a search that is sent again is answered from the cache with the same response, that
+   * the counters say so, and that loading a file empties the cache.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testSearchResultCache() throws IOException {
+    tryRequest("loadcsv?filepath=data/census/income_by_race_edited.csv").getInputStream().close();
+    String search = "searchcsv?header=true&search=Asian&narrow=ind:1";
+    HttpURLConnection clientConnection = tryRequest(search);
+    String first = new Buffer().readFrom(clientConnection.getInputStream()).readUtf8();
+    clientConnection.disconnect();
+    clientConnection = tryRequest(search);
+    String second = new Buffer().readFrom(clientConnection.getInputStream()).readUtf8();
+    clientConnection.disconnect();
+    assertEquals(first, second);
+
+    Moshi moshi = new Moshi.Builder().build();
+    clientConnection = tryRequest("cachestats");
+    Map<String, Object> body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals(1.0, body.get("hits"));
+    assertEquals(1.0, body.get("misses"));
+    assertEquals(1.0, body.get("entries"));
+
+    tryRequest("loadcsv?filepath=data/census/income_by_race_edited.csv").getInputStream().close();
+    clientConnection = tryRequest("cachestats");
+    body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals(0.0, body.get("entries"));
+    clientConnection = tryRequest(search);
+    assertEquals(first, new Buffer().readFrom(clientConnection.getInputStream()).readUtf8());
+    clientConnection.disconnect();
+  }
+
+  /**
+   * Test that a misspelled search word finds rows with fuzzy, and that the distance has to be a
+   * whole number.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testSearchFuzzy() throws IOException {
+    tryRequest("loadcsv?filepath=data/census/income_by_race_edited.csv").getInputStream().close();
+    Moshi moshi = new Moshi.Builder().build();
+    HttpURLConnection clientConnection =
+        tryRequest("searchcsv?header=true&search=Hispnic&narrow=ind:1&mode=count");
+    Map<String, Object> body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals(0.0, body.get("count"));
+
+    clientConnection =
+        tryRequest("searchcsv?header=true&search=Hispnic&narrow=ind:1&fuzzy=1&mode=count");
+    body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals(40.0, body.get("count"));
+
+    clientConnection = tryRequest("searchcsv?header=true&search=Hispnic&fuzzy=one");
+    body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals("fuzzy", body.get("invalid_argument"));
+
+    // fuzzy does not go with the other ways of searching, instead of one of them being dropped
+    for (String other : List.of("fold=true", "query=ind:1=Asian", "gt=5")) {
+      clientConnection =
+          tryRequest("searchcsv?header=true&search=Hispnic&narrow=ind:1&fuzzy=1&" + other);
+      body =
+          moshi
+              .adapter(Map.class)
+              .fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+      clientConnection.disconnect();
+      assertEquals("fuzzy", body.get("invalid_argument"));
+    }
+  }
+
+  /**
+   * Test that viewcsv and searchcsv sort rows by a column given by name or index, that pages of a
+   * sorted search go on in sorted order, and that the column has to be in the table.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testSort() throws IOException {
+    tryRequest("loadcsv?filepath=data/census/income_by_race_edited.csv").getInputStream().close();
+    List<String> lines = Files.readAllLines(Paths.get("data/census/income_by_race_edited.csv"));
+    double max = 0;
+    for (String line : lines.subList(1, lines.size())) {
+      String[] cells = line.split(",");
+      max = cells[4].isEmpty() ? max : Math.max(max, Double.parseDouble(cells[4]));
+    }
+    Moshi moshi = new Moshi.Builder().build();
+    HttpURLConnection clientConnection =
+        tryRequest("viewcsv?header=true&sort=Household%20Income%20by%20Race:desc");
+    Map<String, Object> body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    List<?> rows = (List<?>) body.get("viewData");
+    assertEquals(lines.size(), rows.size());
+    assertEquals("ID Race", ((List<?>) rows.get(0)).get(0));
+    assertEquals(max, Double.parseDouble((String) ((List<?>) rows.get(1)).get(4)));
+
+    // every page of a sorted search starts below where the last one ended
+    double last = Double.POSITIVE_INFINITY;
+    int seen = 0;
+    String cursor = null;
+    do {
+      clientConnection =
+          tryRequest(
+              "searchcsv?header=true&search=Asian&narrow=ind:1&sort=4:desc&limit=3"
+                  + (cursor == null ? "" : "&cursor=" + cursor));
+      body =
+          moshi
+              .adapter(Map.class)
+              .fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+      clientConnection.disconnect();
+      for (Object row : (List<?>) body.get("view_data")) {
+        String cell = (String) ((List<?>) row).get(4);
+        if (!cell.isEmpty()) {
+          double income = Double.parseDouble(cell);
+          assertTrue(income <= last);
+          last = income;
+        }
+        seen++;
+      }
+      cursor = (String) body.get("next_cursor");
+    } while (cursor != null);
+    clientConnection = tryRequest("searchcsv?header=true&search=Asian&narrow=ind:1&mode=count");
+    body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals(body.get("count"), (double) seen);
+
+    clientConnection = tryRequest("searchcsv?header=true&search=Asian&sort=99");
+    body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals("sort", body.get("invalid_argument"));
+  }
+
+  /**
+   * Test that aggregatecsv totals a numeric column for every group, finds columns by name or index,
+   * and only totals columns of numbers.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testAggregate() throws IOException {
+    tryRequest("loadcsv?filepath=data/census/income_by_race_edited.csv").getInputStream().close();
+    List<String> lines = Files.readAllLines(Paths.get("data/census/income_by_race_edited.csv"));
+    long asian = 0;
+    double max = 0;
+    for (String line : lines.subList(1, lines.size())) {
+      String[] cells = line.split(",");
+      if (cells[1].equals("Asian")) {
+        asian++;
+        max = cells[4].isEmpty() ? max : Math.max(max, Double.parseDouble(cells[4]));
+      }
+    }
+    Moshi moshi = new Moshi.Builder().build();
+    HttpURLConnection clientConnection = tryRequest("aggregatecsv?header=true&group=Race&column=4");
+    Map<String, Object> body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals("success", body.get("result"));
+    Map<?, ?> group = null;
+    for (Object found : (List<?>) body.get("groups")) {
+      if (((Map<?, ?>) found).get("group").equals("Asian")) {
+        group = (Map<?, ?>) found;
+      }
+    }
+    assertEquals((double) asian, group.get("rows"));
+    assertEquals(max, group.get("max"));
+
+    clientConnection = tryRequest("aggregatecsv?header=true&group=1&column=Race");
+    body =
+        moshi.adapter(Map.class).fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    assertEquals("column", body.get("invalid_argument"));
+  }
+
   /**
    * Test to see if we are able to successfully load CSV without a header.
    * @throws IOException